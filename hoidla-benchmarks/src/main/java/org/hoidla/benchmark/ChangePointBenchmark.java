@@ -0,0 +1,93 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hoidla.analyze.ChangePoint;
+import org.hoidla.analyze.ChangePointDetection;
+import org.hoidla.analyze.MeanShiftCost;
+import org.hoidla.analyze.PeltChangePointDetection;
+import org.hoidla.window.CusumChangePointDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Offline and streaming change point detection over a series with level shifts
+ * @author pranab
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ChangePointBenchmark {
+	@Param({"500", "2000", "10000"})
+	private int length;
+	
+	@Param({"25", "100"})
+	private int segmentSize;
+	
+	private double[] series;
+	private ChangePointDetection detector;
+	
+	@Setup
+	public void setup() {
+		series = StreamData.levelShiftSeries(length, 4, 1);
+		detector = new ChangePointDetection(series);
+	}
+	
+	@Benchmark
+	public ChangePoint[] detectByWindow() {
+		return detector.detectByWindow(segmentSize, 4);
+	}
+
+	@Benchmark
+	public ChangePoint[] detectByBinarySearch() {
+		return detector.detectByBinarySearch(4, segmentSize);
+	}
+
+	@Benchmark
+	public ChangePoint[] detectByPelt() {
+		return new PeltChangePointDetection(series, new MeanShiftCost()).withMinSegmentLength(segmentSize).detect();
+	}
+
+	@Benchmark
+	public int detectByCusum() {
+		CusumChangePointDetector streamDetector = new CusumChangePointDetector(4 * segmentSize, segmentSize);
+		int numChangePoints = 0;
+		for (double value : series) {
+			streamDetector.add(value);
+			if (null != streamDetector.getNewChangePoint()) {
+				++numChangePoints;
+			}
+		}
+		return numChangePoints;
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.hoidla.stream.ConcurrentBloomFilter;
+import org.hoidla.stream.ConcurrentCountMinSketch;
+import org.hoidla.stream.FlatCountMinSketch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of concurrent sketches shared by all threads as number of threads grows, compared 
+ * with a single lock around a flat count min sketch. Each thread reads keys from its own offset
+ * @author pranab
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentSketchBenchmark {
+	@Param({"2718"})
+	private int width;
+	
+	@Param({"5"})
+	private int depth;
+	
+	@Param({"16"})
+	private int numStripes;
+	
+	@Param({"0", "1.1"})
+	private double skew;
+	
+	private Integer[] keys;
+	private FlatCountMinSketch lockedSketch;
+	private ConcurrentCountMinSketch sketch;
+	private ConcurrentCountMinSketch stripedSketch;
+	private ConcurrentBloomFilter filter;
+	
+	/**
+	 * Key position of a thread
+	 * @author pranab
+	 *
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+		
+		@Setup
+		public void setup() {
+			next = ThreadLocalRandom.current().nextInt(StreamData.STREAM_SIZE);
+		}
+	}
+	
+	@Setup
+	public void setup() {
+		keys = StreamData.zipfKeys(StreamData.STREAM_SIZE, 1000000, skew, 1);
+		lockedSketch = new FlatCountMinSketch(width, depth);
+		sketch = new ConcurrentCountMinSketch(width, depth);
+		stripedSketch = new ConcurrentCountMinSketch(width, depth, numStripes);
+		filter = new ConcurrentBloomFilter(1000000, 0.01);
+	}
+	
+	private Integer nextKey(Cursor cursor) {
+		return keys[cursor.next++ & StreamData.STREAM_MASK];
+	}
+	
+	private void lockedAdd(Cursor cursor) {
+		Integer key = nextKey(cursor);
+		synchronized (lockedSketch) {
+			lockedSketch.add(key);
+		}
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public void lockedCountMinAdd1(Cursor cursor) {
+		lockedAdd(cursor);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void lockedCountMinAdd4(Cursor cursor) {
+		lockedAdd(cursor);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void lockedCountMinAddMax(Cursor cursor) {
+		lockedAdd(cursor);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void countMinAdd1(Cursor cursor) {
+		sketch.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void countMinAdd4(Cursor cursor) {
+		sketch.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void countMinAddMax(Cursor cursor) {
+		sketch.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void stripedCountMinAdd1(Cursor cursor) {
+		stripedSketch.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void stripedCountMinAdd4(Cursor cursor) {
+		stripedSketch.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void stripedCountMinAddMax(Cursor cursor) {
+		stripedSketch.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void bloomAdd1(Cursor cursor) {
+		filter.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void bloomAdd4(Cursor cursor) {
+		filter.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void bloomAddMax(Cursor cursor) {
+		filter.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Group("stripedReadWrite")
+	@GroupThreads(3)
+	public void stripedWrite(Cursor cursor) {
+		stripedSketch.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Group("stripedReadWrite")
+	@GroupThreads(1)
+	public int stripedRead(Cursor cursor) {
+		return stripedSketch.getDistr(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Group("bloomReadWrite")
+	@GroupThreads(3)
+	public void bloomWrite(Cursor cursor) {
+		filter.add(nextKey(cursor));
+	}
+
+	@Benchmark
+	@Group("bloomReadWrite")
+	@GroupThreads(1)
+	public boolean bloomRead(Cursor cursor) {
+		return filter.exists(nextKey(cursor));
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hoidla.stream.CountMinSketch;
+import org.hoidla.stream.CountSketch;
+import org.hoidla.stream.FlatCountMinSketch;
+import org.hoidla.stream.FlatCountSketch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Count sketch add and frequency lookup, single threaded. Concurrent sketches shared between
+ * threads are in ConcurrentSketchBenchmark
+ * @author pranab
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountSketchBenchmark {
+	@Param({"272", "2718", "27183"})
+	private int width;
+	
+	@Param({"3", "5", "7"})
+	private int depth;
+	
+	@Param({"1000", "1000000"})
+	private int cardinality;
+	
+	@Param({"0", "1.1"})
+	private double skew;
+	
+	private Integer[] keys;
+	private int next;
+	private CountMinSketch countMinSketch;
+	private FlatCountMinSketch flatCountMinSketch;
+	private CountSketch countSketch;
+	private FlatCountSketch flatCountSketch;
+	
+	@Setup
+	public void setup() {
+		keys = StreamData.zipfKeys(StreamData.STREAM_SIZE, cardinality, skew, 1);
+		countMinSketch = new CountMinSketch(width, depth);
+		flatCountMinSketch = new FlatCountMinSketch(width, depth);
+		countSketch = new CountSketch(width, depth);
+		flatCountSketch = new FlatCountSketch(width, depth);
+		for (Integer key : keys) {
+			countMinSketch.add(key);
+			flatCountMinSketch.add(key);
+		}
+	}
+	
+	private Integer nextKey() {
+		return keys[next++ & StreamData.STREAM_MASK];
+	}
+	
+	@Benchmark
+	public void countMinAdd() {
+		countMinSketch.add(nextKey());
+	}
+
+	@Benchmark
+	public void flatCountMinAdd() {
+		flatCountMinSketch.add(nextKey());
+	}
+
+	@Benchmark
+	public void countSketchAdd() {
+		countSketch.add(nextKey());
+	}
+
+	@Benchmark
+	public void flatCountSketchAdd() {
+		flatCountSketch.add(nextKey());
+	}
+
+	@Benchmark
+	public int countMinGetDistr() {
+		return countMinSketch.getDistr(nextKey());
+	}
+
+	@Benchmark
+	public int flatCountMinGetDistr() {
+		return flatCountMinSketch.getDistr(nextKey());
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.chombo.math.Complex;
+import org.hoidla.analyze.FastFourierTransform;
+import org.hoidla.window.FastFourierTransformWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FFT over complex objects, primitive arrays and real valued input. Sliding DFT cost per 
+ * sample is to be compared with full recompute by real FFT
+ * @author pranab
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FourierBenchmark {
+	@Param({"64", "1024", "16384"})
+	private int size;
+	
+	private double[] data;
+	private Complex[] complexData;
+	private double[] re;
+	private double[] im;
+	private FastFourierTransformWindow slidingWindow;
+	private FastFourierTransformWindow slidingBinsWindow;
+	private int next;
+	
+	@Setup
+	public void setup() {
+		data = StreamData.levelShiftSeries(size, 8, 1);
+		complexData = FastFourierTransform.createComplex(data);
+		re = new double[size];
+		im = new double[size];
+		slidingWindow = new FastFourierTransformWindow(size).withSliding();
+		slidingBinsWindow = new FastFourierTransformWindow(size).withSlidingBins(1, size / 8, size / 4);
+		for (double value : data) {
+			slidingWindow.add(value);
+			slidingBinsWindow.add(value);
+		}
+	}
+	
+	@Benchmark
+	public Complex[] complexFft() {
+		return FastFourierTransform.fft(complexData);
+	}
+
+	@Benchmark
+	public double[] primitiveFft() {
+		System.arraycopy(data, 0, re, 0, size);
+		Arrays.fill(im, 0);
+		FastFourierTransform.fft(re, im);
+		return re;
+	}
+
+	@Benchmark
+	public double[] realFft() {
+		FastFourierTransform.realFft(data, re, im);
+		return re;
+	}
+
+	@Benchmark
+	public FastFourierTransformWindow slidingDft() {
+		slidingWindow.add(data[next++ & (size - 1)]);
+		return slidingWindow;
+	}
+
+	@Benchmark
+	public FastFourierTransformWindow slidingDftBins() {
+		slidingBinsWindow.add(data[next++ & (size - 1)]);
+		return slidingBinsWindow;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hoidla.stream.CountMinSketchesFrequent;
+import org.hoidla.stream.LazyMisraGriesFrequent;
+import org.hoidla.stream.MankuMotwaniLossyCounting;
+import org.hoidla.stream.MisraGriesFrequent;
+import org.hoidla.stream.SpaceSavingFrequent;
+import org.hoidla.util.BoundedSortedObjects;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Frequent item finders on skewed streams
+ * @author pranab
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrequentItemsBenchmark {
+	@Param({"100", "1000"})
+	private int maxBucket;
+	
+	@Param({"10000", "1000000"})
+	private int cardinality;
+	
+	@Param({"0.8", "1.2"})
+	private double skew;
+	
+	private Integer[] keys;
+	private int next;
+	private MisraGriesFrequent misraGries;
+	private LazyMisraGriesFrequent lazyMisraGries;
+	private SpaceSavingFrequent spaceSaving;
+	private MankuMotwaniLossyCounting lossyCounting;
+	private CountMinSketchesFrequent countMinSketches;
+	
+	@Setup
+	public void setup() {
+		keys = StreamData.zipfKeys(StreamData.STREAM_SIZE, cardinality, skew, 1);
+		misraGries = new MisraGriesFrequent(maxBucket);
+		lazyMisraGries = new LazyMisraGriesFrequent(maxBucket);
+		spaceSaving = new SpaceSavingFrequent(maxBucket);
+		lossyCounting = new MankuMotwaniLossyCounting(1.0 / maxBucket, maxBucket).withBoundaryPruning(true);
+		countMinSketches = new CountMinSketchesFrequent(1.0 / maxBucket, 0.01, maxBucket, 1);
+	}
+	
+	private Integer nextKey() {
+		return keys[next++ & StreamData.STREAM_MASK];
+	}
+	
+	@Benchmark
+	public void misraGriesAdd() {
+		misraGries.add(nextKey());
+	}
+
+	@Benchmark
+	public void lazyMisraGriesAdd() {
+		lazyMisraGries.add(nextKey());
+	}
+
+	@Benchmark
+	public void spaceSavingAdd() {
+		spaceSaving.add(nextKey());
+	}
+
+	@Benchmark
+	public void lossyCountingAdd() {
+		lossyCounting.add(nextKey());
+	}
+
+	@Benchmark
+	public void countMinSketchesAdd() {
+		countMinSketches.add(nextKey());
+	}
+
+	@Benchmark
+	public List<BoundedSortedObjects.SortableObject> spaceSavingGet() {
+		spaceSaving.add(nextKey());
+		return spaceSaving.get();
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hoidla.stream.BlockedBloomFilter;
+import org.hoidla.stream.BloomFilter;
+import org.hoidla.stream.CountingBloomFilter;
+import org.hoidla.stream.CuckooFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Set membership lookup on filters loaded to capacity, half of the queries being members 
+ * @author pranab
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MembershipBenchmark {
+	private static final int BATCH_SIZE = 1024;
+	
+	@Param({"100000", "10000000"})
+	private int maxSetSize;
+	
+	@Param({"0.01", "0.001"})
+	private double falsePositiveProb;
+	
+	private Integer[] keys;
+	private List<Integer> batch;
+	private int next;
+	private BloomFilter bloomFilter;
+	private BlockedBloomFilter blockedBloomFilter;
+	private CountingBloomFilter countingBloomFilter;
+	private CuckooFilter cuckooFilter;
+	
+	@Setup
+	public void setup() {
+		bloomFilter = new BloomFilter(maxSetSize, falsePositiveProb);
+		blockedBloomFilter = new BlockedBloomFilter(maxSetSize, falsePositiveProb);
+		countingBloomFilter = new CountingBloomFilter(maxSetSize, falsePositiveProb);
+		cuckooFilter = new CuckooFilter(maxSetSize, falsePositiveProb);
+		for (int i = 0; i < maxSetSize; ++i) {
+			Integer key = i;
+			bloomFilter.add(key);
+			blockedBloomFilter.add(key);
+			countingBloomFilter.add(key);
+			cuckooFilter.add(key);
+		}
+		keys = StreamData.zipfKeys(StreamData.STREAM_SIZE, 2 * maxSetSize, 0, 1);
+		batch = Arrays.asList(Arrays.copyOf(keys, BATCH_SIZE));
+	}
+	
+	private Integer nextKey() {
+		return keys[next++ & StreamData.STREAM_MASK];
+	}
+	
+	@Benchmark
+	public boolean bloomExists() {
+		return bloomFilter.exists(nextKey());
+	}
+
+	@Benchmark
+	public boolean blockedBloomExists() {
+		return blockedBloomFilter.exists(nextKey());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public boolean[] blockedBloomExistsAll() {
+		return blockedBloomFilter.existsAll(batch);
+	}
+
+	@Benchmark
+	public boolean countingBloomExists() {
+		return countingBloomFilter.exists(nextKey());
+	}
+
+	@Benchmark
+	public boolean cuckooExists() {
+		return cuckooFilter.exists(nextKey());
+	}
+}
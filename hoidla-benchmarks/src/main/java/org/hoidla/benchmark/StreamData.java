@@ -0,0 +1,85 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pre generated benchmark input, so that item generation and boxing are not measured
+ * @author pranab
+ *
+ */
+public class StreamData {
+	public static final int STREAM_SIZE = 1 << 20;
+	public static final int STREAM_MASK = STREAM_SIZE - 1;
+	
+	/**
+	 * Keys with Zipf distribution by inverse CDF 
+	 * @param size
+	 * @param cardinality
+	 * @param skew Zipf exponent, 0 for uniform
+	 * @param seed
+	 * @return
+	 */
+	public static Integer[] zipfKeys(int size, int cardinality, double skew, long seed) {
+		double[] cdf = new double[cardinality];
+		double sum = 0;
+		for (int k = 0; k < cardinality; ++k) {
+			sum += 1.0 / Math.pow(k + 1, skew);
+			cdf[k] = sum;
+		}
+		Random random = new Random(seed);
+		Integer[] keys = new Integer[size];
+		for (int i = 0; i < size; ++i) {
+			int k = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+			keys[i] = k < 0 ? Math.min(-k - 1, cardinality - 1) : k;
+		}
+		return keys;
+	}
+	
+	/**
+	 * Gaussian series with level shifts at equal intervals
+	 * @param size
+	 * @param numShifts
+	 * @param seed
+	 * @return
+	 */
+	public static double[] levelShiftSeries(int size, int numShifts, long seed) {
+		Random random = new Random(seed);
+		double[] series = new double[size];
+		int segment = size / (numShifts + 1);
+		for (int i = 0; i < size; ++i) {
+			double level = (i / segment) % 2 == 0 ? 0 : 3.0;
+			series[i] = level + random.nextGaussian();
+		}
+		return series;
+	}
+	
+	/**
+	 * @param series
+	 * @return boxed values
+	 */
+	public static Double[] box(double[] series) {
+		Double[] boxed = new Double[series.length];
+		for (int i = 0; i < series.length; ++i) {
+			boxed[i] = series[i];
+		}
+		return boxed;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hoidla.stream.FlajoletMartinSketches;
+import org.hoidla.stream.HyperLogLog;
+import org.hoidla.stream.HyperLogLogPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Unique count add and estimate
+ * @author pranab
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UniqueCountBenchmark {
+	@Param({"10", "14"})
+	private int precision;
+	
+	@Param({"1000", "1000000"})
+	private int cardinality;
+	
+	private Integer[] keys;
+	private int next;
+	private HyperLogLog hyperLogLog;
+	private HyperLogLogPlus hyperLogLogPlus;
+	private FlajoletMartinSketches flajoletMartin;
+	
+	@Setup
+	public void setup() {
+		keys = StreamData.zipfKeys(StreamData.STREAM_SIZE, cardinality, 0, 1);
+		hyperLogLog = new HyperLogLog(precision);
+		hyperLogLogPlus = new HyperLogLogPlus(precision);
+		flajoletMartin = new FlajoletMartinSketches(0.1, 0.05);
+		for (Integer key : keys) {
+			hyperLogLog.add(key);
+			hyperLogLogPlus.add(key);
+		}
+	}
+	
+	private Integer nextKey() {
+		return keys[next++ & StreamData.STREAM_MASK];
+	}
+	
+	@Benchmark
+	public void hyperLogLogAdd() {
+		hyperLogLog.add(nextKey());
+	}
+
+	@Benchmark
+	public void hyperLogLogPlusAdd() {
+		hyperLogLogPlus.add(nextKey());
+	}
+
+	@Benchmark
+	public void flajoletMartinAdd() {
+		flajoletMartin.add(nextKey());
+	}
+
+	@Benchmark
+	public long hyperLogLogEstimate() {
+		return hyperLogLog.getUnqueCount();
+	}
+
+	@Benchmark
+	public long hyperLogLogPlusEstimate() {
+		return hyperLogLogPlus.getUnqueCount();
+	}
+}
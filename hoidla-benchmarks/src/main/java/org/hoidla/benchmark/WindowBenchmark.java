@@ -0,0 +1,95 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hoidla.window.FastFourierTransformWindow;
+import org.hoidla.window.SizeBoundFloatStatsWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Size bound window slides with stats, order statistics and FFT processing
+ * @author pranab
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WindowBenchmark {
+	@Param({"128", "1024", "8192"})
+	private int windowSize;
+	
+	@Param({"1", "16"})
+	private int stepSize;
+	
+	@Param({"true", "false"})
+	private boolean incremental;
+	
+	private Double[] values;
+	private int next;
+	private SizeBoundFloatStatsWindow statsWindow;
+	private SizeBoundFloatStatsWindow percentileWindow;
+	private FastFourierTransformWindow fftWindow;
+	
+	@Setup
+	public void setup() {
+		values = StreamData.box(StreamData.levelShiftSeries(StreamData.STREAM_SIZE, 16, 1));
+		statsWindow = new SizeBoundFloatStatsWindow(windowSize, true).withIncremental(incremental);
+		statsWindow.setStepSize(stepSize);
+		percentileWindow = new SizeBoundFloatStatsWindow(windowSize);
+		percentileWindow.setStepSize(stepSize);
+		percentileWindow.withOrderStatistics();
+		fftWindow = new FastFourierTransformWindow(windowSize);
+	}
+	
+	private Double nextValue() {
+		return values[next++ & StreamData.STREAM_MASK];
+	}
+	
+	@Benchmark
+	public double statsWindowAdd() {
+		statsWindow.add(nextValue());
+		return statsWindow.getMean();
+	}
+
+	@Benchmark
+	public double percentileWindowAdd() {
+		percentileWindow.add(nextValue());
+		return percentileWindow.isFull() ? percentileWindow.getPercentile(90) : 0;
+	}
+
+	@Benchmark
+	public Object fftWindowAdd() {
+		fftWindow.add(nextValue());
+		return fftWindow.getAmp();
+	}
+}
@@ -40,7 +40,7 @@ public class ChangePoint extends Pair<Integer, Double> implements Comparable {
 	@Override
 	public int compareTo(Object obj) {
 		ChangePoint that = (ChangePoint)obj;
-		return (int)(that.getDiscrepancy() - this.getDiscrepancy());
+		return Double.compare(that.getDiscrepancy(), this.getDiscrepancy());
 	}
 
 }
@@ -21,16 +21,32 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /**
+ * Change point detection by minimizing segment cost, by default non parametric with empirical 
+ * CDF. Each candidate split is evaluated from cumulative statistics of the cost built once
  * @author pranab
  *
  */
 public class ChangePointDetection implements Serializable {
 	private double[] data;
+	private SegmentCost cost;
+	private boolean initialized;
+	
+	private static final double COST_TOLERANCE = 1.0e-9;
 	
 	public ChangePointDetection(double[] data) {
+		this(data, new EmpiricalCdfCost());
+	}
+	
+	/**
+	 * @param data
+	 * @param cost
+	 */
+	public ChangePointDetection(double[] data, SegmentCost cost) {
 		this.data = data;
+		this.cost = cost;
 	}
 	
 	/**
@@ -38,20 +54,15 @@ public class ChangePointDetection implements Serializable {
 	 * @param numChangePoints
 	 */
 	public ChangePoint[] detectByWindow(int winHalfSize, int numChangePoints) {
-		int size = data.length - 2 * winHalfSize;
+		initialize();
+		int size = Math.max(0, data.length - 2 * winHalfSize);
 		ChangePoint[] changePoints = new ChangePoint[size];
 		int beg = 0;
 		int center = winHalfSize;
 		int end = 2 * winHalfSize;
 		
 		for (int i = 0; end < data.length; ++beg, ++center, ++end, ++i) {
-			double[] leftCdf = countSegment(data,beg, center);
-			double leftCost = findCost(leftCdf, beg, center);
-			double[] rightCdf = countSegment(data,center, end);
-			double rightCost = findCost(rightCdf, center, end);
-			double[] allCdf = countSegment(data,beg, end);
-			double allCost = findCost(allCdf, beg, end);
-			double disc = allCost - (leftCost + rightCost);
+			double disc = cost.getCost(beg, end) - (cost.getCost(beg, center) + cost.getCost(center, end));
 			changePoints[i] = new ChangePoint(center, disc);
 		}
 		
@@ -60,12 +71,25 @@ public class ChangePointDetection implements Serializable {
 	}
 	
 	/**
+	 * Binary segmentation, always splitting the segment whose best split has the max discrepancy
 	 * @param numChangePoints
+	 * @param minSegmenLength
 	 * @return
 	 */
 	public ChangePoint[] detectByBinarySearch(int numChangePoints, int minSegmenLength) {
+		initialize();
 		List<ChangePoint> changePointsList = new ArrayList<ChangePoint>();
-		detectByBinarySearchHelper(data,  numChangePoints,  minSegmenLength, changePointsList);
+		PriorityQueue<Segment> segments = new PriorityQueue<Segment>();
+		addSegment(segments, 0, data.length, minSegmenLength);
+		while (changePointsList.size() < numChangePoints && !segments.isEmpty()) {
+			Segment segment = segments.remove();
+			changePointsList.add(segment.changePoint);
+			
+			//split
+			int split = segment.changePoint.getIndex();
+			addSegment(segments, segment.beg, split, minSegmenLength);
+			addSegment(segments, split, segment.end, minSegmenLength);
+		}
 		
 		ChangePoint[] changePoints = new ChangePoint[changePointsList.size()];
 		changePoints = changePointsList.toArray(changePoints);
@@ -75,38 +99,29 @@ public class ChangePointDetection implements Serializable {
 	}
 	
 	/**
-	 * @param data
-	 * @param numChangePoints
+	 * Finds best split of a segment and queues it, if the split lowers the cost
+	 * @param segments
+	 * @param beg
+	 * @param end
 	 * @param minSegmenLength
-	 * @param changePoints
 	 */
-	private void detectByBinarySearchHelper(double[] data, int numChangePoints, int minSegmenLength, 
-			List<ChangePoint> changePoints) {
-		if (data.length > 2 * minSegmenLength) {
-			int cpIndex = 0;
-			double maxDisc = 0;
-			for (int sp = minSegmenLength; sp < data.length - minSegmenLength; ++sp) {
-				double[] leftCdf = countSegment(data, 0, sp);
-				double leftCost = findCost(leftCdf, 0, sp);
-				double[] rightCdf = countSegment(data,sp, data.length);
-				double rightCost = findCost(rightCdf, sp, data.length);
-				double[] allCdf = countSegment(data, 0, data.length);
-				double allCost = findCost(allCdf, 0, data.length);
-				double disc = allCost - (leftCost + rightCost);
+	private void addSegment(PriorityQueue<Segment> segments, int beg, int end, int minSegmenLength) {
+		if (end - beg > 2 * minSegmenLength) {
+			int cpIndex = -1;
+			double allCost = cost.getCost(beg, end);
+			
+			//discrepancy below rounding error of cost is no change
+			double maxDisc = Math.abs(allCost) * COST_TOLERANCE;
+			for (int sp = beg + minSegmenLength; sp < end - minSegmenLength; ++sp) {
+				double disc = allCost - (cost.getCost(beg, sp) + cost.getCost(sp, end));
 				if (disc > maxDisc) {
 					maxDisc = disc;
 					cpIndex = sp;
 				}
 			}
-			
-			//add change point
-			changePoints.add(new ChangePoint(cpIndex, maxDisc));
-			
-			//split and recurse
-			double[] leftData = Arrays.copyOfRange(data, 0, cpIndex);
-			double[] rightData = Arrays.copyOfRange(data, cpIndex, data.length);
-			detectByBinarySearchHelper(leftData, numChangePoints,  minSegmenLength,changePoints);
-			detectByBinarySearchHelper(rightData, numChangePoints,  minSegmenLength, changePoints);
+			if (cpIndex >= 0) {
+				segments.add(new Segment(beg, end, new ChangePoint(cpIndex, maxDisc)));
+			}
 		}
 	}
 	
@@ -128,45 +143,34 @@ public class ChangePointDetection implements Serializable {
 	}
 	
 	/**
-	 * @param beg
-	 * @param end
-	 * @return
+	 * Cumulative statistics of cost are built once
 	 */
-	private double[] countSegment(double[] data, int beg, int end) {
-		double[] counts = new double[data.length];
-		for (int i = 0; i < data.length; ++i) {
-			double count = 0;
-			for (int j = beg; j < end; ++j) {
-				if (data[j] < data[i]) {
-					++count;
-				} else if (data[j] == data[i]) {
-					count += 0.5;
-				}
-			}
-			count /= (end - beg);
-			counts[i] = count;
+	private void initialize() {
+		if (!initialized) {
+			cost.initialize(data);
+			initialized = true;
 		}
-		return counts;
 	}
 	
 	/**
-	 * @param cdf
-	 * @param beg
-	 * @param end
-	 * @return
+	 * Segment with its best split
+	 * @author pranab
+	 *
 	 */
-	private double findCost(double[] cdf, int beg, int end) {
-		//max likelihood cost
-		double cost = 0;
-		for (int i = 0; i < cdf.length; ++i) {
-			double inv = 1.0 - cdf[i];
-			double temp = cdf[i] * Math.log(cdf[i]) + inv * Math.log(inv);
-			int j = i + 1;
-			temp /= ((j  - 0.5) * (cdf.length - j + 0.5));
-			cost += temp;
+	private static class Segment implements Comparable<Segment> {
+		private int beg;
+		private int end;
+		private ChangePoint changePoint;
+		
+		public Segment(int beg, int end, ChangePoint changePoint) {
+			this.beg = beg;
+			this.end = end;
+			this.changePoint = changePoint;
 		}
-		cost *= (beg - end);
-		return cost;
-	}
 
+		@Override
+		public int compareTo(Segment that) {
+			return changePoint.compareTo(that.changePoint);
+		}
+	}
 }
@@ -0,0 +1,110 @@
+/*
+ * hoidla: various algorithms for sequence data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.analyze;
+
+import java.util.Arrays;
+
+/**
+ * Non parametric cost as max likelihood of empirical CDF. The CDF is evaluated at a small number of 
+ * quantiles, with cumulative counts of data below each quantile built once, so that the cost of any 
+ * segment is found in log time, as in ED-PELT by Haynes, Fearnhead and Eckley
+ * @author pranab
+ *
+ */
+public class EmpiricalCdfCost implements SegmentCost {
+	private int size;
+	private int numQuantiles;
+	private int[] cumCounts;
+	private double costScale;
+	private double[] xLogX;
+	
+	private static final double QUANTILE_FACTOR = 4.0;
+
+	/**
+	 * Ranks data once and builds cumulative counts of data below each quantile, with ties 
+	 * counted as half. Quantiles are spaced as per the weight function of the cost
+	 * @param data
+	 */
+	@Override
+	public void initialize(double[] data) {
+		size = data.length;
+		if (size == 0) {
+			numQuantiles = 0;
+			cumCounts = new int[0];
+			xLogX = new double[1];
+			return;
+		}
+		numQuantiles = Math.min(size, Math.max(1, (int)Math.ceil(QUANTILE_FACTOR * Math.log(size))));
+		double c = -Math.log(2 * size - 1);
+		costScale = 2 * c / numQuantiles;
+		
+		double[] sorted = Arrays.copyOf(data, size);
+		Arrays.sort(sorted);
+		double[] quantiles = new double[numQuantiles];
+		for (int k = 0; k < numQuantiles; ++k) {
+			double prob = 1.0 / (1 + (2 * size - 1) * Math.exp(c * (2 * k + 1) / numQuantiles));
+			quantiles[k] = sorted[(int)((size - 1) * prob)];
+		}
+		
+		//doubled counts at each position, laid out so that all quantiles for a position are adjacent
+		cumCounts = new int[(size + 1) * numQuantiles];
+		for (int i = 0; i < size; ++i) {
+			int prev = i * numQuantiles;
+			int cur = prev + numQuantiles;
+			for (int k = 0; k < numQuantiles; ++k) {
+				int inc = data[i] < quantiles[k] ? 2 : (data[i] == quantiles[k] ? 1 : 0);
+				cumCounts[cur + k] = cumCounts[prev + k] + inc;
+			}
+		}
+		
+		//m log m for all doubled counts, so that no log is needed for segment cost
+		xLogX = new double[2 * size + 1];
+		for (int m = 1; m <= 2 * size; ++m) {
+			xLogX[m] = m * Math.log(m);
+		}
+	}
+
+	/**
+	 * With doubled count c and length n, n(F log F + (1 - F) log(1 - F)) for F = c / 2n is
+	 * (g(c) + g(2n - c) - g(2n)) / 2 where g(m) = m log m 
+	 * @param beg
+	 * @param end
+	 * @return
+	 */
+	@Override
+	public double getCost(int beg, int end) {
+		int twiceLen = 2 * (end - beg);
+		int begOffset = beg * numQuantiles;
+		int endOffset = end * numQuantiles;
+		double cost = 0;
+		for (int k = 0; k < numQuantiles; ++k) {
+			int count = cumCounts[endOffset + k] - cumCounts[begOffset + k];
+			cost += xLogX[count] + xLogX[twiceLen - count];
+		}
+		cost -= numQuantiles * xLogX[twiceLen];
+		return costScale * cost / 2;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.analyze.SegmentCost#getPenalty()
+	 */
+	@Override
+	public double getPenalty() {
+		return 6 * Math.log(Math.max(2, size));
+	}
+}
@@ -19,6 +19,10 @@
 
 package org.hoidla.analyze;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.chombo.math.Complex;
 import org.chombo.math.MathUtils;
 import org.chombo.util.BasicUtils;
@@ -29,6 +33,7 @@ import org.chombo.util.BasicUtils;
  *
  */
 public class FastFourierTransform {
+	private static final Map<Integer, Plan> plans = new ConcurrentHashMap<Integer, Plan>();
 	
 	/**
 	 * compute the FFT of x[], assuming its length is a power of 2
@@ -37,39 +42,14 @@ public class FastFourierTransform {
 	 */
 	public static Complex[] fft(Complex[] x) {
 		int n = x.length;
-
-		// base case
-		if (n == 1) 
-			return new Complex[] { x[0] };
-
-        // radix 2 Cooley-Tukey FFT
-		if (!MathUtils.isPowerOfTwo(n)) {
-			throw new IllegalArgumentException("data size is not a power of 2");
-		}
-
-		// fft of even terms
-		Complex[] even = new Complex[n/2];
-		for (int k = 0; k < n/2; k++) {
-			even[k] = x[2*k];
-		}
-		Complex[] q = fft(even);
-
-        // fft of odd terms
-		Complex[] odd  = even;  // reuse the array
-		for (int k = 0; k < n/2; k++) {
-			odd[k] = x[2*k + 1];
-		}
-		Complex[] r = fft(odd);
-
-        // combine
-		Complex[] y = new Complex[n];
-		for (int k = 0; k < n/2; k++) {
-			double kth = -2 * k * Math.PI / n;
-			Complex wk = new Complex(Math.cos(kth), Math.sin(kth));
-			y[k] = q[k].plus(wk.times(r[k]));
-			y[k + n/2] = q[k].minus(wk.times(r[k]));
+		double[] re = new double[n];
+		double[] im = new double[n];
+		for (int i = 0; i < n; i++) {
+			re[i] = x[i].re();
+			im[i] = x[i].im();
 		}
-		return y;
+		fft(re, im);
+		return createComplex(re, im);
     }
 
 
@@ -80,29 +60,214 @@ public class FastFourierTransform {
 	 */
 	public static Complex[] ifft(Complex[] x) {
 		int n = x.length;
-		Complex[] y = new Complex[n];
-
-		// take conjugate
+		double[] re = new double[n];
+		double[] im = new double[n];
 		for (int i = 0; i < n; i++) {
-			y[i] = x[i].conjugate();
+			re[i] = x[i].re();
+			im[i] = x[i].im();
 		}
-
-		// compute forward FFT
-		y = fft(y);
-
-		// take conjugate again
-		for (int i = 0; i < n; i++) {
-			y[i] = y[i].conjugate();
+		ifft(re, im);
+		return createComplex(re, im);
+    }
+	
+	/**
+	 * In place iterative radix 2 FFT, length a power of 2. Bit reversal permutation and 
+	 * twiddle factors are cached per size
+	 * @param re real part
+	 * @param im imaginary part
+	 */
+	public static void fft(double[] re, double[] im) {
+		if (re.length != im.length) {
+			throw new IllegalArgumentException("real and imaginary vectors are not of same length");
 		}
-
-		// divide by n
-		for (int i = 0; i < n; i++) {
-			y[i] = y[i].scale(1.0 / n);
+		getPlan(re.length).transform(re, im, 1);
+	}
+	
+	/**
+	 * In place inverse FFT, by forward transform with real and imaginary parts swapped
+	 * @param re real part
+	 * @param im imaginary part
+	 */
+	public static void ifft(double[] re, double[] im) {
+		fft(im, re);
+		double scale = 1.0 / re.length;
+		for (int i = 0; i < re.length; i++) {
+			re[i] *= scale;
+			im[i] *= scale;
 		}
-
-		return y;
-    }
-
+	}
+	
+	/**
+	 * FFT of real valued data, length a power of 2, with a complex FFT of half the length. 
+	 * Only the non redundant half of the spectrum is computed, since the rest is its 
+	 * complex conjugate
+	 * @param data real data of length n
+	 * @param re real part of bins 0 to n/2, length at least n/2 + 1
+	 * @param im imaginary part of bins 0 to n/2, length at least n/2 + 1
+	 */
+	public static void realFft(double[] data, double[] re, double[] im) {
+		int n = data.length;
+		if (n < 2) {
+			throw new IllegalArgumentException("data size should be at least 2");
+		}
+		int m = n / 2;
+		if (re.length <= m || im.length <= m) {
+			throw new IllegalArgumentException("output vectors should be of length at least n/2 + 1");
+		}
+		Plan plan = getPlan(n);
+		
+		//even samples as real and odd as imaginary part, transformed at half size
+		for (int k = 0; k < m; ++k) {
+			re[k] = data[2 * k];
+			im[k] = data[2 * k + 1];
+		}
+		plan.transform(re, im, 2);
+		
+		//split into spectrum of the real data, bins k and m - k together
+		double zr = re[0];
+		double zi = im[0];
+		re[0] = zr + zi;
+		im[0] = 0;
+		re[m] = zr - zi;
+		im[m] = 0;
+		for (int k = 1; k <= m / 2; ++k) {
+			int j = m - k;
+			double ar = re[k];
+			double ai = im[k];
+			double cr = re[j];
+			double ci = im[j];
+			plan.split(ar, ai, cr, ci, k, re, im, k);
+			if (j != k) {
+				plan.split(cr, ci, ar, ai, j, re, im, j);
+			}
+		}
+	}
+	
+	/**
+	 * @param size
+	 * @return cached plan for the size
+	 */
+	private static Plan getPlan(int size) {
+		Plan plan = plans.get(size);
+		if (null == plan) {
+			if (!MathUtils.isPowerOfTwo(size)) {
+				throw new IllegalArgumentException("data size is not a power of 2");
+			}
+			plan = new Plan(size);
+			plans.put(size, plan);
+		}
+		return plan;
+	}
+	
+	/**
+	 * Bit reversal permutation and twiddle factors for a transform size
+	 * @author pranab
+	 *
+	 */
+	private static class Plan {
+		private int size;
+		private double[] cos;
+		private double[] sin;
+		private int[][] swaps = new int[2][];
+		
+		/**
+		 * @param size
+		 */
+		private Plan(int size) {
+			this.size = size;
+			int half = size / 2;
+			cos = new double[half];
+			sin = new double[half];
+			for (int k = 0; k < half; ++k) {
+				double kth = -2 * k * Math.PI / size;
+				cos[k] = Math.cos(kth);
+				sin[k] = Math.sin(kth);
+			}
+			swaps[0] = bitReversalSwaps(size);
+			if (size > 1) {
+				swaps[1] = bitReversalSwaps(half);
+			}
+		}
+		
+		/**
+		 * @param n
+		 * @return index pairs to swap
+		 */
+		private static int[] bitReversalSwaps(int n) {
+			int bits = Integer.numberOfTrailingZeros(n);
+			int[] pairs = new int[n];
+			int numPairs = 0;
+			for (int i = 0; i < n; ++i) {
+				int j = bits == 0 ? 0 : Integer.reverse(i) >>> (Integer.SIZE - bits);
+				if (i < j) {
+					pairs[numPairs++] = i;
+					pairs[numPairs++] = j;
+				}
+			}
+			return Arrays.copyOf(pairs, numPairs);
+		}
+		
+		/**
+		 * @param re
+		 * @param im
+		 * @param stride 1 for full size and 2 for half size transform
+		 */
+		private void transform(double[] re, double[] im, int stride) {
+			int n = size / stride;
+			int[] pairs = swaps[stride - 1];
+			for (int p = 0; p < pairs.length; p += 2) {
+				int i = pairs[p];
+				int j = pairs[p + 1];
+				double t = re[i];
+				re[i] = re[j];
+				re[j] = t;
+				t = im[i];
+				im[i] = im[j];
+				im[j] = t;
+			}
+			
+			//butterflies
+			for (int len = 2; len <= n; len <<= 1) {
+				int half = len >> 1;
+				int step = stride * (n / len);
+				for (int i = 0; i < n; i += len) {
+					for (int j = 0, t = 0; j < half; ++j, t += step) {
+						int a = i + j;
+						int b = a + half;
+						double wr = cos[t];
+						double wi = sin[t];
+						double xr = re[b] * wr - im[b] * wi;
+						double xi = re[b] * wi + im[b] * wr;
+						re[b] = re[a] - xr;
+						im[b] = im[a] - xi;
+						re[a] += xr;
+						im[a] += xi;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Bin k of real data spectrum from bins k and m - k of half size transform
+		 * @param ar
+		 * @param ai
+		 * @param cr
+		 * @param ci
+		 * @param k
+		 * @param re
+		 * @param im
+		 * @param bin
+		 */
+		private void split(double ar, double ai, double cr, double ci, int k, double[] re, double[] im, int bin) {
+			double er = (ar + cr) / 2;
+			double ei = (ai - ci) / 2;
+			double or = (ai + ci) / 2;
+			double oi = (cr - ar) / 2;
+			re[bin] = er + cos[k] * or - sin[k] * oi;
+			im[bin] = ei + cos[k] * oi + sin[k] * or;
+		}
+	}
+	
 	/**
 	 * compute the circular convolution of x and y
 	 * @param x
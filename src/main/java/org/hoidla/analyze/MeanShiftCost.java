@@ -0,0 +1,79 @@
+/*
+ * hoidla: various algorithms for sequence data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.analyze;
+
+/**
+ * Normal cost for change in mean with constant variance. Variance is estimated from successive
+ * differences, which are not affected by mean shifts
+ * @author pranab
+ *
+ */
+public class MeanShiftCost implements SegmentCost {
+	private double[] cumSum;
+	private double[] cumSumSq;
+	private double variance;
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.analyze.SegmentCost#initialize(double[])
+	 */
+	@Override
+	public void initialize(double[] data) {
+		int size = data.length;
+		cumSum = new double[size + 1];
+		cumSumSq = new double[size + 1];
+		
+		//centered to limit cancellation in sum of squares
+		double mean = 0;
+		for (double value : data) {
+			mean += value;
+		}
+		mean /= Math.max(1, size);
+		double diffSumSq = 0;
+		for (int i = 0; i < size; ++i) {
+			double value = data[i] - mean;
+			cumSum[i + 1] = cumSum[i] + value;
+			cumSumSq[i + 1] = cumSumSq[i] + value * value;
+			if (i > 0) {
+				double diff = data[i] - data[i - 1];
+				diffSumSq += diff * diff;
+			}
+		}
+		variance = size > 1 ? diffSumSq / (2 * (size - 1)) : 0;
+		if (variance == 0) {
+			variance = 1;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.analyze.SegmentCost#getCost(int, int)
+	 */
+	@Override
+	public double getCost(int beg, int end) {
+		double sum = cumSum[end] - cumSum[beg];
+		double sumSq = cumSumSq[end] - cumSumSq[beg];
+		return Math.max(0, sumSq - sum * sum / (end - beg)) / variance;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.analyze.SegmentCost#getPenalty()
+	 */
+	@Override
+	public double getPenalty() {
+		return 2 * Math.log(cumSum.length);
+	}
+}
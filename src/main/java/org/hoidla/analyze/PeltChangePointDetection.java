@@ -0,0 +1,145 @@
+/*
+ * hoidla: various algorithms for sequence data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.analyze;
+
+import java.io.Serializable;
+
+/**
+ * Optimal partitioning by penalized segment cost, with pruning of candidate last change points 
+ * that can never be optimal (PELT), as per Killick, Fearnhead and Eckley. Expected time is linear
+ * when number of change points grows with series length, quadratic at worst for long segments
+ * @author pranab
+ *
+ */
+public class PeltChangePointDetection implements Serializable {
+	private double[] data;
+	private SegmentCost cost;
+	private double penalty = -1;
+	private int minSegmentLength = 2;
+	
+	/**
+	 * @param data
+	 */
+	public PeltChangePointDetection(double[] data) {
+		this(data, new EmpiricalCdfCost());
+	}
+	
+	/**
+	 * @param data
+	 * @param cost
+	 */
+	public PeltChangePointDetection(double[] data, SegmentCost cost) {
+		this.data = data;
+		this.cost = cost;
+	}
+	
+	/**
+	 * @param penalty for each change point, default from segment cost
+	 * @return
+	 */
+	public PeltChangePointDetection withPenalty(double penalty) {
+		this.penalty = penalty;
+		return this;
+	}
+
+	/**
+	 * @param minSegmentLength
+	 * @return
+	 */
+	public PeltChangePointDetection withMinSegmentLength(int minSegmentLength) {
+		if (minSegmentLength < 1) {
+			throw new IllegalArgumentException("min segment length should be positive");
+		}
+		this.minSegmentLength = minSegmentLength;
+		return this;
+	}
+	
+	/**
+	 * @return change points in order of position, with cost reduction from the split of the 
+	 * segment bounded by adjacent change points
+	 */
+	public ChangePoint[] detect() {
+		int size = data.length;
+		if (size < 2 * minSegmentLength) {
+			return new ChangePoint[0];
+		}
+		cost.initialize(data);
+		double beta = penalty < 0 ? cost.getPenalty() : penalty;
+		
+		//optimal cost up to each position and last change point for it
+		double[] optCost = new double[size + 1];
+		int[] lastChangePoint = new int[size + 1];
+		int[] candidates = new int[size + 1];
+		int numCandidates = 0;
+		optCost[0] = -beta;
+		for (int t = 1; t < minSegmentLength; ++t) {
+			optCost[t] = Double.POSITIVE_INFINITY;
+		}
+		
+		for (int t = minSegmentLength; t <= size; ++t) {
+			//position that can now end a segment of min length
+			int newCandidate = t - minSegmentLength;
+			if (!Double.isInfinite(optCost[newCandidate])) {
+				candidates[numCandidates++] = newCandidate;
+			}
+			
+			double minCost = Double.POSITIVE_INFINITY;
+			int bestCandidate = 0;
+			for (int c = 0; c < numCandidates; ++c) {
+				int tau = candidates[c];
+				double tauCost = optCost[tau] + cost.getCost(tau, t) + beta;
+				if (tauCost < minCost) {
+					minCost = tauCost;
+					bestCandidate = tau;
+				}
+			}
+			optCost[t] = minCost;
+			lastChangePoint[t] = bestCandidate;
+			
+			//prune candidates that can not be last change point for any later position
+			int retained = 0;
+			for (int c = 0; c < numCandidates; ++c) {
+				int tau = candidates[c];
+				if (optCost[tau] + cost.getCost(tau, t) <= minCost) {
+					candidates[retained++] = tau;
+				}
+			}
+			numCandidates = retained;
+		}
+		
+		//backtrack
+		int numChangePoints = 0;
+		for (int t = lastChangePoint[size]; t > 0; t = lastChangePoint[t]) {
+			++numChangePoints;
+		}
+		int[] bounds = new int[numChangePoints + 2];
+		bounds[numChangePoints + 1] = size;
+		int b = numChangePoints;
+		for (int t = lastChangePoint[size]; t > 0; t = lastChangePoint[t]) {
+			bounds[b--] = t;
+		}
+		
+		ChangePoint[] changePoints = new ChangePoint[numChangePoints];
+		for (int i = 1; i <= numChangePoints; ++i) {
+			double disc = cost.getCost(bounds[i - 1], bounds[i + 1]) - 
+				(cost.getCost(bounds[i - 1], bounds[i]) + cost.getCost(bounds[i], bounds[i + 1]));
+			changePoints[i - 1] = new ChangePoint(bounds[i], disc);
+		}
+		return changePoints;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * hoidla: various algorithms for sequence data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.analyze;
+
+import java.io.Serializable;
+
+/**
+ * Cost of a segment of a series as per some model, typically twice the negative log likelihood,
+ * found from cumulative statistics built once so that segments can be evaluated without a scan
+ * @author pranab
+ *
+ */
+public interface SegmentCost extends Serializable {
+	
+	/**
+	 * Builds cumulative statistics
+	 * @param data
+	 */
+	public void initialize(double[] data);
+	
+	/**
+	 * @param beg
+	 * @param end exclusive
+	 * @return cost, lower for a better fit
+	 */
+	public double getCost(int beg, int end);
+	
+	/**
+	 * @return default penalty for each change point, a multiple of log of series length large 
+	 * enough that a series without change rarely gets split
+	 */
+	public double getPenalty();
+}
@@ -0,0 +1,74 @@
+/*
+ * hoidla: various algorithms for sequence data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.analyze;
+
+/**
+ * Normal cost for change in mean and variance
+ * @author pranab
+ *
+ */
+public class VarianceShiftCost implements SegmentCost {
+	private double[] cumSum;
+	private double[] cumSumSq;
+	private double minVariance;
+	
+	private static final double MIN_VARIANCE_FRACTION = 1.0e-9;
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.analyze.SegmentCost#initialize(double[])
+	 */
+	@Override
+	public void initialize(double[] data) {
+		int size = data.length;
+		cumSum = new double[size + 1];
+		cumSumSq = new double[size + 1];
+		double mean = 0;
+		for (double value : data) {
+			mean += value;
+		}
+		mean /= Math.max(1, size);
+		for (int i = 0; i < size; ++i) {
+			double value = data[i] - mean;
+			cumSum[i + 1] = cumSum[i] + value;
+			cumSumSq[i + 1] = cumSumSq[i] + value * value;
+		}
+		
+		//floor for constant segments, relative to overall variance
+		double variance = size > 0 ? cumSumSq[size] / size : 0;
+		minVariance = variance > 0 ? variance * MIN_VARIANCE_FRACTION : MIN_VARIANCE_FRACTION;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.analyze.SegmentCost#getCost(int, int)
+	 */
+	@Override
+	public double getCost(int beg, int end) {
+		int len = end - beg;
+		double mean = (cumSum[end] - cumSum[beg]) / len;
+		double variance = (cumSumSq[end] - cumSumSq[beg]) / len - mean * mean;
+		return len * Math.log(Math.max(variance, minVariance));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.analyze.SegmentCost#getPenalty()
+	 */
+	@Override
+	public double getPenalty() {
+		return 4 * Math.log(cumSum.length);
+	}
+}
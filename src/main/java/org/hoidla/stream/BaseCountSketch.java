@@ -17,9 +17,13 @@
 
 package org.hoidla.stream;
 
+import java.nio.ByteBuffer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
 import org.hoidla.util.EpochObjectCounter;
 import org.hoidla.util.Expirer;
 import org.hoidla.util.Hashing;
@@ -31,7 +35,7 @@ import org.hoidla.util.SimpleObjectCounter;
  * @author pranab
  *
  */
-public abstract class BaseCountSketch {
+public abstract class BaseCountSketch implements BinarySerializable {
 	//sketch
 	protected int width;
 	protected int depth;
@@ -116,6 +120,89 @@ public abstract class BaseCountSketch {
 		}
 	}
 
+	/**
+	 * @param seed hash seed, sketches to be merged should have same seed
+	 * @return
+	 */
+	public BaseCountSketch withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+	
+	/**
+	 * adds counters of another sketch with same dimensions and hash family
+	 * @param other
+	 */
+	protected void mergeCounters(BaseCountSketch other) {
+		if (width != other.width || depth != other.depth || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge sketches with different size or hash family");
+		}
+		if (null != expirer || null != other.expirer) {
+			throw new UnsupportedOperationException("merge not supported for sketch with expiry");
+		}
+		for (int i = 0; i < depth; ++i) {
+			for (int j = 0; j < width; ++j) {
+				sketch[i][j].change(other.sketch[i][j].getCount());
+			}
+		}
+	}
+
+	/**
+	 * @return type in binary form
+	 */
+	protected abstract byte getSerialType();
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 16 + 4 * width * depth;
+	}
+
+	/**
+	 * Counter values are written, hence not supported with expiry
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		if (null != expirer) {
+			throw new UnsupportedOperationException("serialization not supported for sketch with expiry");
+		}
+		BinaryFormat.writeHeader(buffer, getSerialType());
+		buffer.putInt(width);
+		buffer.putInt(depth);
+		buffer.putLong(hashFamily.getSeed());
+		for (int i = 0; i < depth; ++i) {
+			for (int j = 0; j < width; ++j) {
+				buffer.putInt(sketch[i][j].getCount());
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		if (null != expirer) {
+			throw new UnsupportedOperationException("serialization not supported for sketch with expiry");
+		}
+		BinaryFormat.readHeader(buffer, getSerialType());
+		int width = buffer.getInt();
+		int depth = buffer.getInt();
+		if (width != this.width || depth != this.depth) {
+			initialize(width, depth);
+		}
+		hashFamily.withSeed(buffer.getLong());
+		for (int i = 0; i < depth; ++i) {
+			for (int j = 0; j < width; ++j) {
+				sketch[i][j].initialize();
+				sketch[i][j].change(buffer.getInt());
+			}
+		}
+	}
+
 	public int getCount() {
 		int count = 0;
 		for (int d = 0; d < depth; ++d) {
@@ -0,0 +1,189 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+
+/**
+ * Count sketch with all counters in one row major int array, instead of a counter object
+ * per cell
+ * @author pranab
+ *
+ */
+public abstract class BaseFlatCountSketch implements FrequentItems.FrequencyDistribution, BinarySerializable {
+	protected int width;
+	protected int depth;
+	protected int[] sketch;
+	protected long count;
+	
+	//hash family
+	protected Hashing.MultiHashFamily hashFamily;
+	
+	private static final Logger LOG = LoggerFactory.getLogger(BaseFlatCountSketch.class);
+
+	/** 
+	 * Constructor based on error bounds
+	 * @param errorLimit
+	 * @param errorProbLimit
+	 */
+	public BaseFlatCountSketch(double errorLimit, double errorProbLimit) {
+		LOG.info("errorLimit:" + errorLimit + " errorProbLimit:" + errorProbLimit );
+		initialize((int)Math.round(Math.E / errorLimit), (int)Math.round(Math.log(1.0 / errorProbLimit)));
+	}	
+
+	/**
+	 * Constructor  base of number of hash functions and hash value range
+	 * @param width
+	 * @param depth
+	 */
+	public BaseFlatCountSketch(int width, int depth) {
+		initialize(width, depth);
+	}
+
+	/**
+	 * @param width
+	 * @param depth
+	 */
+	public void initialize(int width, int depth) {
+		LOG.info("width: " + width + " depth:" + depth);
+		this.width = width;
+		this.depth = depth;
+		sketch = new int[depth * width];
+		hashFamily = new Hashing.MultiHashFamily(depth, width);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#add(java.lang.Object, long)
+	 */
+	@Override
+	public void add(Object value, long sequence) {
+		throw new UnsupportedOperationException("expiry not supported for flat count sketch");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#expire()
+	 */
+	@Override
+	public void expire() {
+		throw new UnsupportedOperationException("expiry not supported for flat count sketch");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#initialize()
+	 */
+	@Override
+	public void initialize() {
+		Arrays.fill(sketch, 0);
+		count = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#getCount()
+	 */
+	@Override
+	public int getCount() {
+		return (int)count;
+	}
+
+	/**
+	 * @param seed hash seed, sketches to be merged should have same seed
+	 * @return
+	 */
+	public BaseFlatCountSketch withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+	
+	/**
+	 * adds counters of another sketch with same dimensions and hash family
+	 * @param other
+	 */
+	protected void mergeCounters(BaseFlatCountSketch other) {
+		if (width != other.width || depth != other.depth || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge sketches with different size or hash family");
+		}
+		for (int c = 0; c < sketch.length; ++c) {
+			sketch[c] += other.sketch[c];
+		}
+		count += other.count;
+	}
+
+	/**
+	 * @return type in binary form
+	 */
+	protected abstract byte getSerialType();
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 24 + 4 * sketch.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, getSerialType());
+		buffer.putInt(width);
+		buffer.putInt(depth);
+		buffer.putLong(hashFamily.getSeed());
+		buffer.putLong(count);
+		BinaryFormat.writeInts(buffer, sketch, 0, sketch.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, getSerialType());
+		int width = buffer.getInt();
+		int depth = buffer.getInt();
+		if (width != this.width || depth != this.depth) {
+			initialize(width, depth);
+		}
+		hashFamily.withSeed(buffer.getLong());
+		count = buffer.getLong();
+		BinaryFormat.readInts(buffer, sketch, 0, sketch.length);
+	}
+
+	/**
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getDepth() {
+		return depth;
+	}
+}
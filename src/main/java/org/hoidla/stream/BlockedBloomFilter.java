@@ -0,0 +1,253 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+
+/**
+ * Blocked bloom filter. All bits of an item are within one block of 64 bytes selected by the 
+ * high bits of the hash, so that a lookup touches one cache line, or two when the block 
+ * straddles a line boundary, since JVM does not expose array alignment. False positive rate 
+ * is slightly higher than a standard filter of the same size
+ * @author pranab
+ *
+ */
+public class BlockedBloomFilter implements Mergeable<BlockedBloomFilter>, BinarySerializable {
+	private int numBlocks;
+	private int hashFamilySize;
+	private long[] filter;
+	private Hashing.MultiHashFamily hashFamily;
+	
+	private static final int BLOCK_WORDS = 8;
+	private static final int BLOCK_BITS = BLOCK_WORDS * Long.SIZE;
+	
+	/**
+	 * @param maxSetSize
+	 * @param falsePositiveProb
+	 */
+	public BlockedBloomFilter(int maxSetSize, double falsePositiveProb) {
+		double c = Math.log(2);
+		long bitVectorSize = Math.round((-maxSetSize * Math.log(falsePositiveProb) / (c * c)));
+		initialize((int)((bitVectorSize + BLOCK_BITS - 1) / BLOCK_BITS), 
+				Math.max(1, (int)Math.round(c *  bitVectorSize / maxSetSize)));
+	}
+
+	/**
+	 * @param numBlocks
+	 * @param hashFamilySize
+	 */
+	private void initialize(int numBlocks, int hashFamilySize) {
+		this.numBlocks = numBlocks;
+		this.hashFamilySize = hashFamilySize;
+		filter = new long[numBlocks * BLOCK_WORDS];
+		hashFamily = new Hashing.MultiHashFamily(1);
+	}
+	
+	/**
+	 * @param seed hash seed, filters to be merged should have same seed
+	 * @return
+	 */
+	public BlockedBloomFilter withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+
+	/**
+	 * Adds new object
+	 * @param value
+	 */
+	public void add(Object value) {
+		addHash(hashFamily.hash64(value));
+	}
+	
+	/**
+	 * Adds all objects, hashing them all before touching the filter
+	 * @param values
+	 */
+	public void addAll(Collection<?> values) {
+		for (long hash : hashAll(values)) {
+			addHash(hash);
+		}
+	}
+
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean exists(Object value) {
+		return existsHash(hashFamily.hash64(value));
+	}
+	
+	/**
+	 * Batch lookup. Hashes are computed first and the independent block reads that follow
+	 * let the processor overlap cache misses 
+	 * @param values
+	 * @return membership for each value in iteration order
+	 */
+	public boolean[] existsAll(Collection<?> values) {
+		long[] hashes = hashAll(values);
+		int[] blocks = new int[hashes.length];
+		for (int i = 0; i < hashes.length; ++i) {
+			blocks[i] = getBlock(hashes[i]);
+		}
+		boolean[] found = new boolean[hashes.length];
+		for (int i = 0; i < hashes.length; ++i) {
+			found[i] = existsInBlock(blocks[i], hashes[i]);
+		}
+		return found;
+	}
+	
+	/**
+	 * Union with another filter of same size and hash family
+	 * @param other
+	 */
+	@Override
+	public void merge(BlockedBloomFilter other) {
+		if (numBlocks != other.numBlocks || hashFamilySize != other.hashFamilySize || 
+				!hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge filters with different size or hash family");
+		}
+		for (int w = 0; w < filter.length; ++w) {
+			filter[w] |= other.filter[w];
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	public void clear() {
+		Arrays.fill(filter, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 16 + 8 * filter.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.BLOCKED_BLOOM_FILTER);
+		buffer.putInt(numBlocks);
+		buffer.putInt(hashFamilySize);
+		buffer.putLong(hashFamily.getSeed());
+		BinaryFormat.writeLongs(buffer, filter, 0, filter.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.BLOCKED_BLOOM_FILTER);
+		int numBlocks = buffer.getInt();
+		int hashFamilySize = buffer.getInt();
+		if (numBlocks != this.numBlocks || hashFamilySize != this.hashFamilySize) {
+			initialize(numBlocks, hashFamilySize);
+		}
+		hashFamily.withSeed(buffer.getLong());
+		BinaryFormat.readLongs(buffer, filter, 0, filter.length);
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getNumBlocks() {
+		return numBlocks;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getHashFamilySize() {
+		return hashFamilySize;
+	}
+
+	/**
+	 * @param values
+	 * @return
+	 */
+	private long[] hashAll(Collection<?> values) {
+		long[] hashes = new long[values.size()];
+		int i = 0;
+		for (Object value : values) {
+			hashes[i++] = hashFamily.hash64(value);
+		}
+		return hashes;
+	}
+	
+	/**
+	 * @param hash
+	 * @return first word of block, from high 32 bits of hash
+	 */
+	private int getBlock(long hash) {
+		return (int)(((hash >>> 32) * numBlocks) >>> 32) * BLOCK_WORDS;
+	}
+	
+	/**
+	 * @param hash
+	 */
+	private void addHash(long hash) {
+		int block = getBlock(hash);
+		long bits = hashFamily.mix(hash, 0);
+		int pos = (int)bits;
+		int step = (int)(bits >>> 32) | 1;
+		for (int h = 0; h < hashFamilySize; ++h, pos += step) {
+			int bit = pos & (BLOCK_BITS - 1);
+			filter[block + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+	
+	/**
+	 * @param hash
+	 * @return
+	 */
+	private boolean existsHash(long hash) {
+		return existsInBlock(getBlock(hash), hash);
+	}
+
+	/**
+	 * In block bit positions by double hashing with odd step, hence distinct
+	 * @param block
+	 * @param hash
+	 * @return
+	 */
+	private boolean existsInBlock(int block, long hash) {
+		long bits = hashFamily.mix(hash, 0);
+		int pos = (int)bits;
+		int step = (int)(bits >>> 32) | 1;
+		for (int h = 0; h < hashFamilySize; ++h, pos += step) {
+			int bit = pos & (BLOCK_BITS - 1);
+			if ((filter[block + (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -17,15 +17,19 @@
 
 package org.hoidla.stream;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.BitSet;
 
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
 import org.hoidla.util.Hashing;
 
 /**
  * @author pranab
  *
  */
-public class BloomFilter {
+public class BloomFilter implements Mergeable<BloomFilter>, BinarySerializable {
 	private int bitVectorSize;
 	private int hashFamilySize;
 	private BitSet filter;
@@ -41,7 +45,7 @@ public class BloomFilter {
 		
 		hashFamilySize = (int)Math.round(c *  bitVectorSize / maxSetSize) ;
 		filter = new BitSet(bitVectorSize);
-		hashFamily = new Hashing.MultiHashFamily(bitVectorSize, hashFamilySize);
+		hashFamily = new Hashing.MultiHashFamily(hashFamilySize, bitVectorSize);
 	}
 
 	/**
@@ -49,8 +53,16 @@ public class BloomFilter {
 	 * @param value
 	 */
 	public void add(Object value) {
+		addHash(hashFamily.hash64(value));
+	}
+	
+	/**
+	 * Adds by 64 bit hash of an object
+	 * @param hash
+	 */
+	protected void addHash(long hash) {
 		for (int h = 0; h < hashFamilySize; ++h) {
-			int bucket = hashFamily.hash(value,  h);
+			int bucket = hashFamily.index(hash,  h);
 			filter.set(bucket);
 		}
 	}
@@ -60,9 +72,17 @@ public class BloomFilter {
 	 * @return
 	 */
 	public boolean exists(Object value) {
+		return existsHash(hashFamily.hash64(value));
+	}
+	
+	/**
+	 * @param hash 64 bit hash of an object
+	 * @return
+	 */
+	protected boolean existsHash(long hash) {
 		boolean doesExist = true;
 		for (int h = 0; h < hashFamilySize; ++h) {
-			int bucket = hashFamily.hash(value,  h);
+			int bucket = hashFamily.index(hash,  h);
 			if (!filter.get(bucket)) {
 				doesExist = false;
 				break;
@@ -71,4 +91,73 @@ public class BloomFilter {
 		return doesExist;
 	}
 	
+	/**
+	 * @param seed hash seed, filters to be merged should have same seed
+	 * @return
+	 */
+	public BloomFilter withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+
+	/**
+	 * Union with another filter of same size and hash family
+	 * @param other
+	 */
+	@Override
+	public void merge(BloomFilter other) {
+		if (bitVectorSize != other.bitVectorSize || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge filters with different size or hash family");
+		}
+		filter.or(other.filter);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 16 + 8 * numWords(bitVectorSize);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.BLOOM_FILTER);
+		buffer.putInt(bitVectorSize);
+		buffer.putInt(hashFamilySize);
+		buffer.putLong(hashFamily.getSeed());
+		long[] words = Arrays.copyOf(filter.toLongArray(), numWords(bitVectorSize));
+		BinaryFormat.writeLongs(buffer, words, 0, words.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.BLOOM_FILTER);
+		int bitVectorSize = buffer.getInt();
+		int hashFamilySize = buffer.getInt();
+		if (bitVectorSize != this.bitVectorSize || hashFamilySize != this.hashFamilySize) {
+			this.bitVectorSize = bitVectorSize;
+			this.hashFamilySize = hashFamilySize;
+			hashFamily = new Hashing.MultiHashFamily(hashFamilySize, bitVectorSize);
+		}
+		hashFamily.withSeed(buffer.getLong());
+		long[] words = new long[numWords(bitVectorSize)];
+		BinaryFormat.readLongs(buffer, words, 0, words.length);
+		filter = BitSet.valueOf(words);
+	}
+	
+	/**
+	 * @param numBits
+	 * @return
+	 */
+	private static int numWords(int numBits) {
+		return (numBits + Long.SIZE - 1) / Long.SIZE;
+	}
+	
 }
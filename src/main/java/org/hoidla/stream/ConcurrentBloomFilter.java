@@ -0,0 +1,121 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.hoidla.util.Hashing;
+
+/**
+ * Thread safe bloom filter with bit vector in an atomic long array. Bits are set with compare 
+ * and swap only when not already set, lookups are lock free
+ * @author pranab
+ *
+ */
+public class ConcurrentBloomFilter implements Mergeable<ConcurrentBloomFilter> {
+	private int bitVectorSize;
+	private int hashFamilySize;
+	private AtomicLongArray filter;
+	private Hashing.MultiHashFamily hashFamily;
+	
+	/**
+	 * @param maxSetSize
+	 * @param falsePositiveProb
+	 */
+	public ConcurrentBloomFilter(int maxSetSize, double falsePositiveProb) {
+		double c = Math.log(2);
+		bitVectorSize = (int)Math.round((-maxSetSize * Math.log(falsePositiveProb) / (c * c)));
+		hashFamilySize = (int)Math.round(c *  bitVectorSize / maxSetSize) ;
+		filter = new AtomicLongArray((bitVectorSize + Long.SIZE - 1) / Long.SIZE);
+		hashFamily = new Hashing.MultiHashFamily(hashFamilySize, bitVectorSize);
+	}
+	
+	/**
+	 * @param seed hash seed, filters to be merged should have same seed. Should be set before 
+	 * the filter is shared between threads
+	 * @return
+	 */
+	public ConcurrentBloomFilter withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+
+	/**
+	 * Adds new object
+	 * @param value
+	 */
+	public void add(Object value) {
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			int bucket = hashFamily.index(hash,  h);
+			setBits(bucket >>> 6, 1L << bucket);
+		}
+	}
+	
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean exists(Object value) {
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			int bucket = hashFamily.index(hash,  h);
+			if ((filter.get(bucket >>> 6) & (1L << bucket)) == 0) {
+				return false;
+			}
+		}		
+		return true;
+	}
+	
+	/**
+	 * Union with another filter of same size and hash family
+	 * @param other
+	 */
+	@Override
+	public void merge(ConcurrentBloomFilter other) {
+		if (bitVectorSize != other.bitVectorSize || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge filters with different size or hash family");
+		}
+		for (int w = 0; w < filter.length(); ++w) {
+			setBits(w, other.filter.get(w));
+		}
+	}
+	
+	/**
+	 * clears all bits, concurrent adds may partially survive
+	 */
+	public void clear() {
+		for (int w = 0; w < filter.length(); ++w) {
+			filter.set(w, 0);
+		}
+	}
+	
+	/**
+	 * @param word
+	 * @param bits
+	 */
+	private void setBits(int word, long bits) {
+		long current = filter.get(word);
+		while ((current & bits) != bits) {
+			if (filter.compareAndSet(word, current, current | bits)) {
+				break;
+			}
+			current = filter.get(word);
+		}
+	}
+}
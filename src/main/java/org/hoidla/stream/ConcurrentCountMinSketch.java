@@ -0,0 +1,201 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.hoidla.util.Hashing;
+
+/**
+ * Thread safe count min sketch with lock free atomic counters. Counters can be striped, with each
+ * thread incrementing the counters of its own stripe to reduce contention on hot items. Reads 
+ * sum over the stripes without locking
+ * @author pranab
+ *
+ */
+public class ConcurrentCountMinSketch implements FrequentItems.FrequencyDistribution, 
+	Mergeable<ConcurrentCountMinSketch> {
+	private int width;
+	private int depth;
+	private int numStripes;
+	private int stripeSize;
+	private AtomicLongArray sketch;
+	private LongAdder count = new LongAdder();
+	private Hashing.MultiHashFamily hashFamily;
+	
+	private static final Logger LOG = LoggerFactory.getLogger(ConcurrentCountMinSketch.class);
+
+	/** 
+	 * Constructor based on error bounds
+	 * @param errorLimit
+	 * @param errorProbLimit
+	 */
+	public ConcurrentCountMinSketch(double errorLimit, double errorProbLimit) {
+		this((int)Math.round(Math.E / errorLimit), (int)Math.round(Math.log(1.0 / errorProbLimit)), 1);
+	}
+	
+	/**
+	 * @param width
+	 * @param depth
+	 */
+	public ConcurrentCountMinSketch(int width, int depth) {
+		this(width, depth, 1);
+	}
+
+	/**
+	 * @param width
+	 * @param depth
+	 * @param numStripes number of counter copies, memory grows linearly with it
+	 */
+	public ConcurrentCountMinSketch(int width, int depth, int numStripes) {
+		LOG.info("width: " + width + " depth:" + depth + " numStripes:" + numStripes);
+		if (numStripes < 1) {
+			throw new IllegalArgumentException("number of stripes should be at least 1");
+		}
+		this.width = width;
+		this.depth = depth;
+		this.numStripes = numStripes;
+		stripeSize = depth * width;
+		sketch = new AtomicLongArray(numStripes * stripeSize);
+		hashFamily = new Hashing.MultiHashFamily(depth, width);
+	}
+	
+	/**
+	 * @param seed hash seed, sketches to be merged should have same seed. Should be set before 
+	 * the sketch is shared between threads
+	 * @return
+	 */
+	public ConcurrentCountMinSketch withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#add(java.lang.Object)
+	 */
+	@Override
+	public void add(Object value) {
+		long hash = hashFamily.hash64(value);
+		int base = numStripes == 1 ? 0 : (int)(Thread.currentThread().getId() % numStripes) * stripeSize;
+		for (int d = 0; d < depth; ++d) {
+			sketch.getAndIncrement(base + d * width + hashFamily.index(hash,  d));
+		}
+		count.increment();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#add(java.lang.Object, long)
+	 */
+	@Override
+	public void add(Object value, long sequence) {
+		throw new UnsupportedOperationException("expiry not supported for concurrent count min sketch");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#getDistr(java.lang.Object)
+	 */
+	@Override
+	public int getDistr(Object value) {
+		long count = Long.MAX_VALUE;
+		long hash = hashFamily.hash64(value);
+		for (int d = 0; d < depth; ++d) {
+			int cell = d * width + hashFamily.index(hash,  d);
+			long thisCount = 0;
+			for (int s = 0; s < numStripes; ++s) {
+				thisCount += sketch.get(s * stripeSize + cell);
+			}
+			if (thisCount < count) {
+				count = thisCount;
+			}
+		}
+		return (int)Math.min(count, Integer.MAX_VALUE);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#expire()
+	 */
+	@Override
+	public void expire() {
+		throw new UnsupportedOperationException("expiry not supported for concurrent count min sketch");
+	}
+
+	/**
+	 * Zeroes counters, concurrent adds may partially survive
+	 */
+	@Override
+	public void initialize() {
+		for (int c = 0; c < sketch.length(); ++c) {
+			sketch.set(c, 0);
+		}
+		count.reset();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#getCount()
+	 */
+	@Override
+	public int getCount() {
+		return (int)count.sum();
+	}
+
+	/**
+	 * adds counters of another sketch with same dimensions and hash family, number of stripes
+	 * may differ
+	 * @param other
+	 */
+	@Override
+	public void merge(ConcurrentCountMinSketch other) {
+		if (width != other.width || depth != other.depth || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge sketches with different size or hash family");
+		}
+		for (int s = 0; s < other.numStripes; ++s) {
+			for (int c = 0; c < stripeSize; ++c) {
+				long otherCount = other.sketch.get(s * other.stripeSize + c);
+				if (otherCount != 0) {
+					sketch.getAndAdd(c, otherCount);
+				}
+			}
+		}
+		count.add(other.count.sum());
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getNumStripes() {
+		return numStripes;
+	}
+}
@@ -20,6 +20,7 @@ package org.hoidla.stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.hoidla.util.BinaryFormat;
 import org.hoidla.util.EpochObjectCounter;
 import org.hoidla.util.Expirer;
 import org.hoidla.util.Hashing;
@@ -35,7 +36,8 @@ import org.hoidla.util.ObjectCounter;
  * @author pranab
  *
  */
-public class CountMinSketch extends  BaseCountSketch implements FrequentItems.FrequencyDistribution {
+public class CountMinSketch extends  BaseCountSketch implements FrequentItems.FrequencyDistribution, 
+	Mergeable<CountMinSketch> {
 	private static final Logger LOG = LoggerFactory.getLogger(CountMinSketch.class);
 	
 	/** 
@@ -68,8 +70,9 @@ public class CountMinSketch extends  BaseCountSketch implements FrequentItems.Fr
 	 */
 	public void add(Object value) {
 		LOG.debug("item:" + value.toString());
+		long hash = hashFamily.hash64(value);
 		for (int d = 0; d < depth; ++d) {
-			int w = hashFamily.hash(value,  d);
+			int w = hashFamily.index(hash,  d);
 			ObjectCounter counter = sketch[d][w];
 			counter.increment();
 			LOG.debug("item:" + value.toString() + " current count:" + counter.getCount() );
@@ -91,10 +94,15 @@ public class CountMinSketch extends  BaseCountSketch implements FrequentItems.Fr
 		}
 
 		//increment
+		long hash = hashFamily.hash64(value);
 		for (int d = 0; d < depth; ++d) {
-			int w = hashFamily.hash(value,  d);
+			int w = hashFamily.index(hash,  d);
 			counter = sketch[d][w];
-			counter.increment();
+			if (expirer.isSequenceExpirer()) {
+				counter.increment(sequence);
+			} else {
+				counter.increment();
+			}
 		}
 	}
 
@@ -105,8 +113,9 @@ public class CountMinSketch extends  BaseCountSketch implements FrequentItems.Fr
 	 */
 	public int getDistr(Object value) {
 		int count = Integer.MAX_VALUE;
+		long hash = hashFamily.hash64(value);
 		for (int d = 0; d < depth; ++d) {
-			int w =  hashFamily.hash(value,  d);
+			int w =  hashFamily.index(hash,  d);
 			int thisCount = sketch[d][w].getCount();
 			if (thisCount < count) {
 				count = thisCount;
@@ -116,5 +125,21 @@ public class CountMinSketch extends  BaseCountSketch implements FrequentItems.Fr
 		return count;
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseCountSketch#getSerialType()
+	 */
+	@Override
+	protected byte getSerialType() {
+		return BinaryFormat.COUNT_MIN_SKETCH;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.Mergeable#merge(java.lang.Object)
+	 */
+	@Override
+	public void merge(CountMinSketch other) {
+		mergeCounters(other);
+	}
+	
 	
 }
@@ -17,6 +17,7 @@
 
 package org.hoidla.stream;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,13 +25,15 @@ import java.util.TreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.hoidla.util.BoundedSortedObjects.SortableObject;
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
 import org.hoidla.util.EpochObjectCounter;
 import org.hoidla.util.Expirer;
 import org.hoidla.util.Hashing;
 import org.hoidla.util.ObjectCounter;
 import org.hoidla.util.SequencedObjectCounter;
 import org.hoidla.util.SimpleObjectCounter;
+import org.hoidla.util.TopItemsHeap;
 
 import org.hoidla.util.BoundedSortedObjects;
 import org.hoidla.util.Expirer;
@@ -41,13 +44,16 @@ import org.hoidla.util.Expirer;
  * @author pranab
  *
  */
-public class CountMinSketchesFrequent  extends FrequentItems.FrequentItemsFinder {
-	protected CountMinSketch minSketches;
+public class CountMinSketchesFrequent  extends FrequentItems.FrequentItemsFinder implements 
+	Mergeable<CountMinSketchesFrequent>, BinarySerializable {
+	protected FrequentItems.FrequencyDistribution minSketches;
 	protected TreeMap<Integer, Object> orderedItems = new TreeMap<Integer, Object>();
 	protected int mostFrequentCount;
-	private BoundedSortedObjects sortedObjects;		
+	private TopItemsHeap topItems;
 	private int freqCountLimitPercent;
 	private boolean globalTotalCount = false;
+	private double errorLimit;
+	private double errorProbLimit;
 	private static final Logger LOG = LoggerFactory.getLogger(CountMinSketchesFrequent.class);
 
 	/**
@@ -58,12 +64,15 @@ public class CountMinSketchesFrequent  extends FrequentItems.FrequentItemsFinder
 	public CountMinSketchesFrequent(double errorLimit, double errorProbLimit, int mostFrequentCount,
 			int freqCountLimitPercent) {
 		minSketches = new CountMinSketch(errorLimit,  errorProbLimit);
+		this.errorLimit = errorLimit;
+		this.errorProbLimit = errorProbLimit;
 		this.mostFrequentCount = mostFrequentCount;
-		sortedObjects  = new  BoundedSortedObjects(mostFrequentCount);
+		topItems  = new  TopItemsHeap(mostFrequentCount);
 		this.freqCountLimitPercent =  freqCountLimitPercent;
 	}
 	
 	/**
+	 * Sliding window version with epoch ring count min sketch
 	 * @param errorLimit
 	 * @param errorProbLimit
 	 * @param mostFrequentCount
@@ -72,9 +81,12 @@ public class CountMinSketchesFrequent  extends FrequentItems.FrequentItemsFinder
 	 */
 	public CountMinSketchesFrequent(double errorLimit, double errorProbLimit, int mostFrequentCount,
 			int freqCountLimitPercent, Expirer expirer) {
-		minSketches = new CountMinSketch(errorLimit,  errorProbLimit, expirer);
+		minSketches = new EpochCountMinSketch(errorLimit,  errorProbLimit, expirer);
+		this.expirer = expirer;
+		this.errorLimit = errorLimit;
+		this.errorProbLimit = errorProbLimit;
 		this.mostFrequentCount = mostFrequentCount;
-		sortedObjects  = new  BoundedSortedObjects(mostFrequentCount);
+		topItems  = new  TopItemsHeap(mostFrequentCount);
 		this.freqCountLimitPercent =  freqCountLimitPercent;
 	}
 	
@@ -93,6 +105,7 @@ public class CountMinSketchesFrequent  extends FrequentItems.FrequentItemsFinder
 	 */
 	public void setExpirer(Expirer expirer) {
 		this.expirer = expirer;
+		minSketches = new EpochCountMinSketch(errorLimit,  errorProbLimit, expirer);
 	}
 
 	/* (non-Javadoc)
@@ -121,35 +134,98 @@ public class CountMinSketchesFrequent  extends FrequentItems.FrequentItemsFinder
 	 */
 	private void trackCount(Object item) {
 		int itemCount = minSketches.getDistr(item);
-		int totalCount = 0;
+		if (topItems.update(item, itemCount)) {
+			return;
+		}
+		
+		long totalCount = 0;
 		if (globalTotalCount) {
 			//for narrow domain
 			totalCount = minSketches.getCount();
 		} else {
-			//when domain is very large
-			for(SortableObject obj : sortedObjects.get()){
-				totalCount += minSketches.getDistr(obj.getItem());
-			}
+			//when domain is very large, running total of tracked counts
+			totalCount = topItems.getTotalRank();
 		}
 		if ( itemCount > (totalCount * freqCountLimitPercent) / 100) {
-			sortedObjects.add(item, itemCount);
+			topItems.add(item, itemCount);
 		}
 	}
 	
 	/**
-	 * 
+	 * re reads counts of tracked items from the sketch
 	 */
 	public void refreshCount() {
 		Map<Object, Integer> freqCounts = new HashMap<Object, Integer>();
-		List<BoundedSortedObjects.SortableObject> topHitters = sortedObjects.get();
-		for (BoundedSortedObjects.SortableObject topHitter : topHitters) {
-			int count = minSketches.getDistr(topHitter.getItem());
-			freqCounts.put(topHitter.getItem(), count);
+		for (Object item : topItems.getItems()) {
+			freqCounts.put(item, minSketches.getDistr(item));
 		}
 		
-		sortedObjects.clear();
+		topItems.clear();
 		for (Object item :  freqCounts.keySet()) {
-			sortedObjects.add(item, freqCounts.get(item));
+			topItems.add(item, freqCounts.get(item));
+		}
+	}
+
+	/**
+	 * Merges the sketches and re evaluates the union of tracked items against merged sketch
+	 * @param other
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void merge(CountMinSketchesFrequent other) {
+		if (minSketches.getClass() != other.minSketches.getClass() || !(minSketches instanceof Mergeable)) {
+			throw new IllegalArgumentException("can not merge with different type of sketch");
+		}
+		((Mergeable<FrequentItems.FrequencyDistribution>)minSketches).merge(other.minSketches);
+		count += other.count;
+		refreshCount();
+		for (Object item : other.topItems.getItems()) {
+			topItems.add(item, minSketches.getDistr(item));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		int size = BinaryFormat.HEADER_SIZE + 12 + ((BinarySerializable)minSketches).getSerializedSize();
+		for (Object item : topItems.getItems()) {
+			size += BinaryFormat.getItemSize(item) + 4;
+		}
+		return size;
+	}
+
+	/**
+	 * Sketch followed by tracked items
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.COUNT_MIN_SKETCHES_FREQUENT);
+		buffer.putLong(count);
+		((BinarySerializable)minSketches).writeTo(buffer);
+		List<Object> items = topItems.getItems();
+		buffer.putInt(items.size());
+		for (Object item : items) {
+			BinaryFormat.writeItem(buffer, item);
+			buffer.putInt(topItems.getRank(item));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.COUNT_MIN_SKETCHES_FREQUENT);
+		count = buffer.getLong();
+		((BinarySerializable)minSketches).readFrom(buffer);
+		int numItems = buffer.getInt();
+		topItems.clear();
+		for (int i = 0; i < numItems; ++i) {
+			Object item = BinaryFormat.readItem(buffer);
+			topItems.add(item, buffer.getInt());
 		}
 	}
 
@@ -158,15 +234,16 @@ public class CountMinSketchesFrequent  extends FrequentItems.FrequentItemsFinder
 	 */
 	@Override
 	public List<BoundedSortedObjects.SortableObject> get() {
-		sortedObjects.truncate();
-		return sortedObjects.get();	
+		return topItems.get();	
 	}
 	
 	public void expire() {
 		minSketches.expire();
+		refreshCount();
 	}
 	
 	public void intialize() {
 		minSketches.initialize();
+		topItems.clear();
 	}
 }
@@ -21,8 +21,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.hoidla.util.BinaryFormat;
 import org.hoidla.util.Expirer;
-import org.hoidla.util.Hashing;
 import org.hoidla.util.ObjectCounter;
 
 /**
@@ -30,8 +30,8 @@ import org.hoidla.util.ObjectCounter;
  * @author pranab
  *
  */
-public class CountSketch extends  BaseCountSketch  implements FrequentItems.FrequencyDistribution {
-	private Hashing.MultiHashFamily multiplierHashFamily;
+public class CountSketch extends  BaseCountSketch  implements FrequentItems.FrequencyDistribution, 
+	Mergeable<CountSketch> {
 
 	/** 
 	 * Constructor based on error bounds
@@ -55,20 +55,13 @@ public class CountSketch extends  BaseCountSketch  implements FrequentItems.Freq
 		super(width, depth);
 	}
 
-	/**
-	 * @param width
-	 * @param depth
-	 */
-	public void initialize(int width, int depth) {
-		super.initialize(width, depth);
-		multiplierHashFamily = new Hashing.MultiHashFamily(width);
-	}
-	
 	@Override
 	public void add(Object value) {
+		long hash = hashFamily.hash64(value);
+		long signBits = hashFamily.mix(hash, depth);
 		for (int d = 0; d < depth; ++d) {
-			int w = hashFamily.hash(value,  d);
-			int count = (multiplierHashFamily.hash(value,  d) % 2) * 2 - 1;
+			int w = hashFamily.index(hash,  d);
+			int count = sign(signBits, d);
 			ObjectCounter counter = sketch[d][w];
 			counter.change(count);
 		}
@@ -84,9 +77,11 @@ public class CountSketch extends  BaseCountSketch  implements FrequentItems.Freq
 	public int getDistr(Object value) {
 		int median = 0;
 		List<Integer> hashCounts = new ArrayList<Integer>();
+		long hash = hashFamily.hash64(value);
+		long signBits = hashFamily.mix(hash, depth);
 		for (int d = 0; d < depth; ++d) {
-			int w = hashFamily.hash(value,  d);
-			int mult = (multiplierHashFamily.hash(value,  d) % 2) * 2 - 1;
+			int w = hashFamily.index(hash,  d);
+			int mult = sign(signBits, d);
 			int thisCount = sketch[d][w].getCount();
 			hashCounts.add(thisCount * mult );
 		}			
@@ -100,5 +95,30 @@ public class CountSketch extends  BaseCountSketch  implements FrequentItems.Freq
 		
 		return median;
 	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseCountSketch#getSerialType()
+	 */
+	@Override
+	protected byte getSerialType() {
+		return BinaryFormat.COUNT_SKETCH;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.Mergeable#merge(java.lang.Object)
+	 */
+	@Override
+	public void merge(CountSketch other) {
+		mergeCounters(other);
+	}
+	
+	/**
+	 * @param signBits
+	 * @param d
+	 * @return +1 or -1
+	 */
+	private int sign(long signBits, int d) {
+		return (int)((signBits >>> (d & 63)) & 1) * 2 - 1;
+	}
 
 }
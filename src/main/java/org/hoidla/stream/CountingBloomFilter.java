@@ -0,0 +1,211 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+
+/**
+ * Counting bloom filter supporting removal, with 4 bit counters packed 16 to a long. A counter
+ * that reaches the max value stays there, since its true count is no longer known
+ * @author pranab
+ *
+ */
+public class CountingBloomFilter implements Mergeable<CountingBloomFilter>, BinarySerializable {
+	private int bitVectorSize;
+	private int hashFamilySize;
+	private long[] counters;
+	private Hashing.MultiHashFamily hashFamily;
+	
+	private static final int COUNTER_BITS = 4;
+	private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+	private static final long MAX_COUNT = (1L << COUNTER_BITS) - 1;
+	
+	/**
+	 * @param maxSetSize
+	 * @param falsePositiveProb
+	 */
+	public CountingBloomFilter(int maxSetSize, double falsePositiveProb) {
+		double c = Math.log(2);
+		int bitVectorSize = (int)Math.round((-maxSetSize * Math.log(falsePositiveProb) / (c * c)));
+		initialize(bitVectorSize, (int)Math.round(c *  bitVectorSize / maxSetSize));
+	}
+	
+	/**
+	 * @param bitVectorSize
+	 * @param hashFamilySize
+	 */
+	private void initialize(int bitVectorSize, int hashFamilySize) {
+		this.bitVectorSize = bitVectorSize;
+		this.hashFamilySize = hashFamilySize;
+		counters = new long[(bitVectorSize + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD];
+		hashFamily = new Hashing.MultiHashFamily(hashFamilySize, bitVectorSize);
+	}
+
+	/**
+	 * @param seed hash seed, filters to be merged should have same seed
+	 * @return
+	 */
+	public CountingBloomFilter withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+
+	/**
+	 * Adds new object
+	 * @param value
+	 */
+	public void add(Object value) {
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			int bucket = hashFamily.index(hash,  h);
+			long count = getCounter(bucket);
+			if (count < MAX_COUNT) {
+				setCounter(bucket, count + 1);
+			}
+		}
+	}
+	
+	/**
+	 * Removes an object, which should have been added before
+	 * @param value
+	 * @return false if the object is not in the filter
+	 */
+	public boolean remove(Object value) {
+		if (!exists(value)) {
+			return false;
+		}
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			int bucket = hashFamily.index(hash,  h);
+			long count = getCounter(bucket);
+			if (count < MAX_COUNT) {
+				setCounter(bucket, count - 1);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean exists(Object value) {
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			if (getCounter(hashFamily.index(hash,  h)) == 0) {
+				return false;
+			}
+		}		
+		return true;
+	}
+	
+	/**
+	 * @param value
+	 * @return estimated number of times the object was added, as the min of its counters
+	 */
+	public int getCount(Object value) {
+		long count = MAX_COUNT;
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			count = Math.min(count, getCounter(hashFamily.index(hash,  h)));
+		}		
+		return (int)count;
+	}
+	
+	/**
+	 * Adds counters of another filter of same size and hash family, saturating at max value
+	 * @param other
+	 */
+	@Override
+	public void merge(CountingBloomFilter other) {
+		if (bitVectorSize != other.bitVectorSize || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge filters with different size or hash family");
+		}
+		for (int bucket = 0; bucket < bitVectorSize; ++bucket) {
+			long otherCount = other.getCounter(bucket);
+			if (otherCount > 0) {
+				setCounter(bucket, Math.min(MAX_COUNT, getCounter(bucket) + otherCount));
+			}
+		}
+	}
+
+	/**
+	 * 
+	 */
+	public void clear() {
+		Arrays.fill(counters, 0);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 16 + 8 * counters.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.COUNTING_BLOOM_FILTER);
+		buffer.putInt(bitVectorSize);
+		buffer.putInt(hashFamilySize);
+		buffer.putLong(hashFamily.getSeed());
+		BinaryFormat.writeLongs(buffer, counters, 0, counters.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.COUNTING_BLOOM_FILTER);
+		int bitVectorSize = buffer.getInt();
+		int hashFamilySize = buffer.getInt();
+		if (bitVectorSize != this.bitVectorSize || hashFamilySize != this.hashFamilySize) {
+			initialize(bitVectorSize, hashFamilySize);
+		}
+		hashFamily.withSeed(buffer.getLong());
+		BinaryFormat.readLongs(buffer, counters, 0, counters.length);
+	}
+	
+	/**
+	 * @param bucket
+	 * @return
+	 */
+	private long getCounter(int bucket) {
+		return (counters[bucket / COUNTERS_PER_WORD] >>> ((bucket % COUNTERS_PER_WORD) * COUNTER_BITS)) & MAX_COUNT;
+	}
+	
+	/**
+	 * @param bucket
+	 * @param count
+	 */
+	private void setCounter(int bucket, long count) {
+		int word = bucket / COUNTERS_PER_WORD;
+		int shift = (bucket % COUNTERS_PER_WORD) * COUNTER_BITS;
+		counters[word] = (counters[word] & ~(MAX_COUNT << shift)) | (count << shift);
+	}
+}
@@ -0,0 +1,352 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+
+/**
+ * Cuckoo filter as per Fan et al. Fingerprints are bit packed in a long array in buckets of 4 slots,
+ * so that a bucket is within one or two adjacent words. Each item has two candidate buckets, with 
+ * the second derived from the first and the fingerprint (partial key cuckoo hashing). Supports 
+ * removal and is more space efficient than bloom filter for low false positive probability
+ * @author pranab
+ *
+ */
+public class CuckooFilter implements BinarySerializable {
+	private int numBuckets;
+	private int fingerprintBits;
+	private long fingerprintMask;
+	private long[] table;
+	private long count;
+	private int victimBucket;
+	private int victimFingerprint;
+	private long kickState = 0x9e3779b97f4a7c15L;
+	private Hashing.MultiHashFamily hashFamily;
+	
+	private static final int BUCKET_SIZE = 4;
+	private static final int MAX_KICKS = 500;
+	private static final double MAX_LOAD_FACTOR = 0.95;
+	
+	/**
+	 * @param maxSetSize
+	 * @param falsePositiveProb
+	 */
+	public CuckooFilter(int maxSetSize, double falsePositiveProb) {
+		int fingerprintBits = (int)Math.ceil(Math.log(2.0 * BUCKET_SIZE / falsePositiveProb) / Math.log(2));
+		fingerprintBits = Math.max(4, Math.min(16, fingerprintBits));
+		initialize(Math.max(1, (int)Math.ceil(maxSetSize / (BUCKET_SIZE * MAX_LOAD_FACTOR))), fingerprintBits);
+	}
+	
+	/**
+	 * @param numBuckets
+	 * @param fingerprintBits
+	 */
+	private void initialize(int numBuckets, int fingerprintBits) {
+		this.numBuckets = numBuckets;
+		this.fingerprintBits = fingerprintBits;
+		fingerprintMask = (1L << fingerprintBits) - 1;
+		
+		//extra word for slot spanning last word
+		table = new long[(int)(((long)numBuckets * BUCKET_SIZE * fingerprintBits + Long.SIZE - 1) / Long.SIZE) + 1];
+		hashFamily = new Hashing.MultiHashFamily(1);
+		count = 0;
+		victimFingerprint = 0;
+	}
+	
+	/**
+	 * @param seed hash seed
+	 * @return
+	 */
+	public CuckooFilter withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+
+	/**
+	 * Adds an object. Adding same object more than twice the bucket size will fail
+	 * @param value
+	 * @return false if the filter is full
+	 */
+	public boolean add(Object value) {
+		if (victimFingerprint != 0) {
+			return false;
+		}
+		long hash = hashFamily.hash64(value);
+		int fingerprint = getFingerprint(hash);
+		int bucket = getBucket(hash);
+		if (insert(bucket, fingerprint) || insert(getAltBucket(bucket, fingerprint), fingerprint)) {
+			++count;
+			return true;
+		}
+		
+		//relocate existing fingerprints
+		bucket = (nextRandom() & 1) == 0 ? bucket : getAltBucket(bucket, fingerprint);
+		for (int k = 0; k < MAX_KICKS; ++k) {
+			int slot = bucket * BUCKET_SIZE + (nextRandom() & (BUCKET_SIZE - 1));
+			int evicted = getSlot(slot);
+			setSlot(slot, fingerprint);
+			fingerprint = evicted;
+			bucket = getAltBucket(bucket, fingerprint);
+			if (insert(bucket, fingerprint)) {
+				++count;
+				return true;
+			}
+		}
+		
+		//keep the last evicted, so that no added object is lost
+		victimBucket = bucket;
+		victimFingerprint = fingerprint;
+		++count;
+		return true;
+	}
+	
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean exists(Object value) {
+		long hash = hashFamily.hash64(value);
+		int fingerprint = getFingerprint(hash);
+		int bucket = getBucket(hash);
+		int altBucket = getAltBucket(bucket, fingerprint);
+		return contains(bucket, fingerprint) || contains(altBucket, fingerprint) || 
+			(victimFingerprint == fingerprint && (victimBucket == bucket || victimBucket == altBucket));
+	}
+	
+	/**
+	 * Removes an object, which should have been added before, otherwise another object with
+	 * same fingerprint may get removed
+	 * @param value
+	 * @return false if not found
+	 */
+	public boolean remove(Object value) {
+		long hash = hashFamily.hash64(value);
+		int fingerprint = getFingerprint(hash);
+		int bucket = getBucket(hash);
+		int altBucket = getAltBucket(bucket, fingerprint);
+		boolean removed = false;
+		if (victimFingerprint == fingerprint && (victimBucket == bucket || victimBucket == altBucket)) {
+			victimFingerprint = 0;
+			removed = true;
+		} else {
+			removed = delete(bucket, fingerprint) || delete(altBucket, fingerprint);
+		}
+		if (removed) {
+			--count;
+			if (victimFingerprint != 0) {
+				//space has opened up for the victim
+				int victim = victimFingerprint;
+				if (insert(victimBucket, victim) || insert(getAltBucket(victimBucket, victim), victim)) {
+					victimFingerprint = 0;
+				}
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * @return number of objects in the filter
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return
+	 */
+	public double getLoadFactor() {
+		return (double)count / ((long)numBuckets * BUCKET_SIZE);
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getFingerprintBits() {
+		return fingerprintBits;
+	}
+
+	/**
+	 * 
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		count = 0;
+		victimFingerprint = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 32 + 8 * table.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.CUCKOO_FILTER);
+		buffer.putInt(numBuckets);
+		buffer.putInt(fingerprintBits);
+		buffer.putLong(hashFamily.getSeed());
+		buffer.putLong(count);
+		buffer.putInt(victimBucket);
+		buffer.putInt(victimFingerprint);
+		BinaryFormat.writeLongs(buffer, table, 0, table.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.CUCKOO_FILTER);
+		int numBuckets = buffer.getInt();
+		int fingerprintBits = buffer.getInt();
+		if (numBuckets != this.numBuckets || fingerprintBits != this.fingerprintBits) {
+			initialize(numBuckets, fingerprintBits);
+		}
+		hashFamily.withSeed(buffer.getLong());
+		count = buffer.getLong();
+		victimBucket = buffer.getInt();
+		victimFingerprint = buffer.getInt();
+		BinaryFormat.readLongs(buffer, table, 0, table.length);
+	}
+	
+	/**
+	 * @param hash
+	 * @return non zero fingerprint from high bits of hash
+	 */
+	private int getFingerprint(long hash) {
+		int fingerprint = (int)(hash >>> (Long.SIZE - fingerprintBits));
+		return fingerprint == 0 ? 1 : fingerprint;
+	}
+	
+	/**
+	 * @param hash
+	 * @return
+	 */
+	private int getBucket(long hash) {
+		return (int)(((hash & 0xffffffffL) * numBuckets) >>> 32);
+	}
+
+	/**
+	 * @param bucket
+	 * @param fingerprint
+	 * @return other bucket as (h(fingerprint) - bucket) mod number of buckets, which maps each 
+	 * bucket to the other and does not need power of 2 number of buckets
+	 */
+	private int getAltBucket(int bucket, int fingerprint) {
+		int altBucket = (int)((Hashing.fmix64(fingerprint) >>> 1) % numBuckets) - bucket;
+		return altBucket < 0 ? altBucket + numBuckets : altBucket;
+	}
+	
+	/**
+	 * @param bucket
+	 * @param fingerprint
+	 * @return
+	 */
+	private boolean insert(int bucket, int fingerprint) {
+		int start = bucket * BUCKET_SIZE;
+		for (int s = start; s < start + BUCKET_SIZE; ++s) {
+			if (getSlot(s) == 0) {
+				setSlot(s, fingerprint);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param bucket
+	 * @param fingerprint
+	 * @return
+	 */
+	private boolean contains(int bucket, int fingerprint) {
+		int start = bucket * BUCKET_SIZE;
+		for (int s = start; s < start + BUCKET_SIZE; ++s) {
+			if (getSlot(s) == fingerprint) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @param bucket
+	 * @param fingerprint
+	 * @return
+	 */
+	private boolean delete(int bucket, int fingerprint) {
+		int start = bucket * BUCKET_SIZE;
+		for (int s = start; s < start + BUCKET_SIZE; ++s) {
+			if (getSlot(s) == fingerprint) {
+				setSlot(s, 0);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @param slot
+	 * @return fingerprint, which may span two words
+	 */
+	private int getSlot(int slot) {
+		long bitPos = (long)slot * fingerprintBits;
+		int word = (int)(bitPos >>> 6);
+		int offset = (int)(bitPos & 63);
+		long value = table[word] >>> offset;
+		if (offset + fingerprintBits > Long.SIZE) {
+			value |= table[word + 1] << (Long.SIZE - offset);
+		}
+		return (int)(value & fingerprintMask);
+	}
+	
+	/**
+	 * @param slot
+	 * @param fingerprint
+	 */
+	private void setSlot(int slot, int fingerprint) {
+		long bitPos = (long)slot * fingerprintBits;
+		int word = (int)(bitPos >>> 6);
+		int offset = (int)(bitPos & 63);
+		table[word] = (table[word] & ~(fingerprintMask << offset)) | ((long)fingerprint << offset);
+		if (offset + fingerprintBits > Long.SIZE) {
+			int shift = Long.SIZE - offset;
+			table[word + 1] = (table[word + 1] & ~(fingerprintMask >>> shift)) | ((long)fingerprint >>> shift);
+		}
+	}
+	
+	/**
+	 * @return xorshift random bits for choosing eviction slot
+	 */
+	private int nextRandom() {
+		kickState ^= kickState << 13;
+		kickState ^= kickState >>> 7;
+		kickState ^= kickState << 17;
+		return (int)(kickState >>> 32);
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.Expirer;
+
+/**
+ * Sliding window count min sketch. Keeps a ring of flat sub sketches, one per epoch, along 
+ * with their sum, which is what gets queried. Expiry happens once per epoch boundary by 
+ * subtracting and zeroing the oldest sub sketch, so add stays O(depth) and memory is 
+ * bounded by the number of epochs
+ * @author pranab
+ *
+ */
+public class EpochCountMinSketch extends FlatCountMinSketch {
+	private Expirer expirer;
+	private int numEpochs;
+	private int[][] epochSketches;
+	private long[] epochCounts;
+	private int head;
+	private long currentEpoch = -1;
+	private long epochSpan;
+	
+	/**
+	 * @param errorLimit
+	 * @param errorProbLimit
+	 * @param expirer
+	 */
+	public EpochCountMinSketch(double errorLimit, double errorProbLimit, Expirer expirer) {
+		super(errorLimit, errorProbLimit);
+		initializeEpochs(expirer);
+	}
+
+	/**
+	 * @param width
+	 * @param depth
+	 * @param expirer
+	 */
+	public EpochCountMinSketch(int width, int depth, Expirer expirer) {
+		super(width, depth);
+		initializeEpochs(expirer);
+	}
+	
+	/**
+	 * @param expirer
+	 */
+	private void initializeEpochs(Expirer expirer) {
+		this.expirer = expirer;
+		numEpochs = expirer.getNumEpochs();
+		if (numEpochs < 1) {
+			throw new IllegalArgumentException("number of epochs should be positive");
+		}
+		epochSpan = expirer.isSequenceExpirer() ? expirer.getEpochSpan() : 0;
+		epochSketches = new int[numEpochs][depth * width];
+		epochCounts = new long[numEpochs];
+	}
+
+	/**
+	 * Adds a value to the current epoch
+	 * @param value
+	 */
+	@Override
+	public void add(Object value) {
+		increment(value, head);
+	}
+
+	/**
+	 * Adds a value to the epoch of the sequence, rotating the ring when a new epoch 
+	 * starts. Values belonging to epochs already expired are ignored
+	 * @param value
+	 * @param sequence
+	 */
+	@Override
+	public void add(Object value, long sequence) {
+		if (!expirer.isSequenceExpirer()) {
+			increment(value, head);
+			return;
+		}
+		
+		long epoch = sequence / epochSpan;
+		if (currentEpoch < 0) {
+			currentEpoch = epoch;
+		} else if (epoch > currentEpoch) {
+			advance(epoch - currentEpoch);
+			currentEpoch = epoch;
+		}
+		
+		long age = currentEpoch - epoch;
+		if (age < numEpochs) {
+			increment(value, (int)((head - age + numEpochs) % numEpochs));
+		}
+	}
+
+	/**
+	 * For epoch expirer closes the current epoch. For sequence expirer expires epochs
+	 * older than the window with current time as the sequence
+	 */
+	@Override
+	public void expire() {
+		if (expirer.isSequenceExpirer()) {
+			long epoch = System.currentTimeMillis() / epochSpan;
+			if (currentEpoch >= 0 && epoch > currentEpoch) {
+				advance(epoch - currentEpoch);
+				currentEpoch = epoch;
+			}
+		} else {
+			advance(1);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseFlatCountSketch#initialize()
+	 */
+	@Override
+	public void initialize() {
+		super.initialize();
+		for (int[] epochSketch : epochSketches) {
+			Arrays.fill(epochSketch, 0);
+		}
+		Arrays.fill(epochCounts, 0);
+		head = 0;
+		currentEpoch = -1;
+	}
+	
+	/**
+	 * Merges another sliding window sketch with same epochs, aligning epochs by sequence. 
+	 * For epoch expirer current epochs of both are aligned
+	 * @param other
+	 */
+	@Override
+	public void merge(FlatCountMinSketch other) {
+		if (!(other instanceof EpochCountMinSketch)) {
+			throw new IllegalArgumentException("can only merge with another sliding window sketch");
+		}
+		EpochCountMinSketch that = (EpochCountMinSketch)other;
+		if (numEpochs != that.numEpochs || epochSpan != that.epochSpan) {
+			throw new IllegalArgumentException("can not merge sketches with different epochs");
+		}
+		mergeCounters(that);
+		
+		//align to the later current epoch
+		long epochShift = 0;
+		if (expirer.isSequenceExpirer() && that.currentEpoch >= 0) {
+			if (currentEpoch < 0) {
+				currentEpoch = that.currentEpoch;
+			} else if (that.currentEpoch > currentEpoch) {
+				advance(that.currentEpoch - currentEpoch);
+				currentEpoch = that.currentEpoch;
+			}
+			epochShift = currentEpoch - that.currentEpoch;
+		}
+		
+		for (int age = 0; age < numEpochs; ++age) {
+			int thatIndex = (that.head - age + numEpochs) % numEpochs;
+			long thisAge = age + epochShift;
+			if (thisAge < numEpochs) {
+				int thisIndex = (int)((head - thisAge + numEpochs) % numEpochs);
+				int[] thisEpoch = epochSketches[thisIndex];
+				int[] thatEpoch = that.epochSketches[thatIndex];
+				for (int c = 0; c < thisEpoch.length; ++c) {
+					thisEpoch[c] += thatEpoch[c];
+				}
+				epochCounts[thisIndex] += that.epochCounts[thatIndex];
+			} else {
+				//already expired here
+				int[] thatEpoch = that.epochSketches[thatIndex];
+				for (int c = 0; c < thatEpoch.length; ++c) {
+					sketch[c] -= thatEpoch[c];
+				}
+				count -= that.epochCounts[thatIndex];
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FlatCountMinSketch#getSerialType()
+	 */
+	@Override
+	protected byte getSerialType() {
+		return BinaryFormat.EPOCH_COUNT_MIN_SKETCH;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseFlatCountSketch#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return super.getSerializedSize() + 28 + 8 * numEpochs + 4 * numEpochs * sketch.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseFlatCountSketch#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		super.writeTo(buffer);
+		buffer.putInt(numEpochs);
+		buffer.putLong(epochSpan);
+		buffer.putInt(head);
+		buffer.putLong(currentEpoch);
+		buffer.putInt(sketch.length);
+		BinaryFormat.writeLongs(buffer, epochCounts, 0, numEpochs);
+		for (int[] epochSketch : epochSketches) {
+			BinaryFormat.writeInts(buffer, epochSketch, 0, epochSketch.length);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseFlatCountSketch#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		super.readFrom(buffer);
+		if (buffer.getInt() != numEpochs || buffer.getLong() != epochSpan) {
+			throw new IllegalArgumentException("serialized sketch has different epochs");
+		}
+		head = buffer.getInt();
+		currentEpoch = buffer.getLong();
+		int epochSize = buffer.getInt();
+		if (epochSize != epochSketches[0].length) {
+			epochSketches = new int[numEpochs][epochSize];
+		}
+		BinaryFormat.readLongs(buffer, epochCounts, 0, numEpochs);
+		for (int[] epochSketch : epochSketches) {
+			BinaryFormat.readInts(buffer, epochSketch, 0, epochSketch.length);
+		}
+	}
+	
+	/**
+	 * @param value
+	 * @param epochIndex
+	 */
+	private void increment(Object value, int epochIndex) {
+		int[] epochSketch = epochSketches[epochIndex];
+		long hash = hashFamily.hash64(value);
+		for (int d = 0, offset = 0; d < depth; ++d, offset += width) {
+			int cell = offset + hashFamily.index(hash,  d);
+			++epochSketch[cell];
+			++sketch[cell];
+		}
+		++epochCounts[epochIndex];
+		++count;
+	}
+	
+	/**
+	 * moves the ring forward, dropping the oldest epochs
+	 * @param numAdvance
+	 */
+	private void advance(long numAdvance) {
+		if (numAdvance >= numEpochs) {
+			super.initialize();
+			for (int[] epochSketch : epochSketches) {
+				Arrays.fill(epochSketch, 0);
+			}
+			Arrays.fill(epochCounts, 0);
+		} else {
+			for (long i = 0; i < numAdvance; ++i) {
+				head = (head + 1) % numEpochs;
+				int[] oldest = epochSketches[head];
+				for (int c = 0; c < oldest.length; ++c) {
+					sketch[c] -= oldest[c];
+				}
+				Arrays.fill(oldest, 0);
+				count -= epochCounts[head];
+				epochCounts[head] = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return
+	 */
+	public int getNumEpochs() {
+		return numEpochs;
+	}
+}
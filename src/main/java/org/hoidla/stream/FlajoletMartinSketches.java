@@ -18,6 +18,10 @@
 
 package org.hoidla.stream;
 
+import java.nio.ByteBuffer;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
 import org.hoidla.util.Hashing;
 
 /**
@@ -25,13 +29,14 @@ import org.hoidla.util.Hashing;
  * @author pranab
  *
  */
-public class FlajoletMartinSketches implements UniqueItems.UniqueItemsCounter {
+public class FlajoletMartinSketches implements UniqueItems.UniqueItemsCounter, Mergeable<FlajoletMartinSketches>, 
+	BinarySerializable {
 	private int numCounters;
 	private Hashing.MultiHashFamily hashFamily;
 	private long[] counters;
 	
 	public FlajoletMartinSketches(double errorLimit, double errorProbLimit) {
-		int numCounters = (int)(1.0 / (errorLimit * errorLimit * Math.log(1.0 / errorProbLimit)));
+		numCounters = (int)(1.0 / (errorLimit * errorLimit * Math.log(1.0 / errorProbLimit)));
 		hashFamily = new Hashing.MultiHashFamily(numCounters);
 		counters = new long[numCounters];
 		clear();
@@ -42,16 +47,11 @@ public class FlajoletMartinSketches implements UniqueItems.UniqueItemsCounter {
 	 * @param value
 	 */
 	public void add(Object value) {
+		long itemHash = hashFamily.hash64(value);
 		for (int i = 0; i < numCounters; ++i) {
-			int hash = hashFamily.hash(value,  i);
-			if (hash > 0) {
-				int k = 0;
-				long bitmask = 1;
-				for (int j = 0; j < 32 && ((hash & 1) == 0); ++j, ++k) {
-					hash >>= 1;
-					bitmask <<= 1;
-				}
-				counters[i] |= bitmask;
+			long hash = hashFamily.mix(itemHash,  i);
+			if (hash != 0) {
+				counters[i] |= 1L << Long.numberOfTrailingZeros(hash);
 			}
 		}
 	}
@@ -73,6 +73,63 @@ public class FlajoletMartinSketches implements UniqueItems.UniqueItemsCounter {
 		return count;
 	}	
 	
+	/**
+	 * @param seed hash seed, sketches to be merged should have same seed
+	 * @return
+	 */
+	public FlajoletMartinSketches withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.Mergeable#merge(java.lang.Object)
+	 */
+	@Override
+	public void merge(FlajoletMartinSketches other) {
+		if (numCounters != other.numCounters || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge sketches with different size or hash family");
+		}
+		for (int i = 0; i < numCounters; ++i) {
+			counters[i] |= other.counters[i];
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 12 + 8 * numCounters;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.FLAJOLET_MARTIN);
+		buffer.putInt(numCounters);
+		buffer.putLong(hashFamily.getSeed());
+		BinaryFormat.writeLongs(buffer, counters, 0, numCounters);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.FLAJOLET_MARTIN);
+		int numCounters = buffer.getInt();
+		if (numCounters != this.numCounters) {
+			this.numCounters = numCounters;
+			hashFamily = new Hashing.MultiHashFamily(numCounters);
+			counters = new long[numCounters];
+		}
+		hashFamily.withSeed(buffer.getLong());
+		BinaryFormat.readLongs(buffer, counters, 0, numCounters);
+	}
+	
 	public void clear() {
 		for (int i = 0; i < numCounters; ++i) {
 			counters[i] = 0;
@@ -0,0 +1,96 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import org.hoidla.util.BinaryFormat;
+
+/**
+ * Frequent distribution by count min sketch algorithms with flat primitive counters
+ * @author pranab
+ *
+ */
+public class FlatCountMinSketch extends BaseFlatCountSketch implements Mergeable<FlatCountMinSketch> {
+
+	/** 
+	 * Constructor based on error bounds
+	 * @param errorLimit
+	 * @param errorProbLimit
+	 */
+	public FlatCountMinSketch(double errorLimit, double errorProbLimit) {
+		super(errorLimit, errorProbLimit);
+	}
+
+	/**
+	 * Constructor  base of number of hash functions and hash value range
+	 * @param width
+	 * @param depth
+	 */
+	public FlatCountMinSketch(int width, int depth) {
+		super(width, depth);
+	}
+
+	/**
+	 * Adds a value
+	 * @param value
+	 */
+	@Override
+	public void add(Object value) {
+		long hash = hashFamily.hash64(value);
+		for (int d = 0, offset = 0; d < depth; ++d, offset += width) {
+			++sketch[offset + hashFamily.index(hash,  d)];
+		}
+		++count;
+	}
+
+	/**
+	 * Get frequency count for a value
+	 * @param value
+	 * @return
+	 */
+	@Override
+	public int getDistr(Object value) {
+		int count = Integer.MAX_VALUE;
+		long hash = hashFamily.hash64(value);
+		for (int d = 0, offset = 0; d < depth; ++d, offset += width) {
+			int thisCount = sketch[offset + hashFamily.index(hash,  d)];
+			if (thisCount < count) {
+				count = thisCount;
+			}
+		}			
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseFlatCountSketch#getSerialType()
+	 */
+	@Override
+	protected byte getSerialType() {
+		return BinaryFormat.FLAT_COUNT_MIN_SKETCH;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.Mergeable#merge(java.lang.Object)
+	 */
+	@Override
+	public void merge(FlatCountMinSketch other) {
+		if (other instanceof EpochCountMinSketch) {
+			throw new IllegalArgumentException("can not merge sliding window sketch into a plain sketch");
+		}
+		mergeCounters(other);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import org.hoidla.util.BinaryFormat;
+
+/**
+ * Frequent distribution by Count Sketch with flat primitive counters
+ * @author pranab
+ *
+ */
+public class FlatCountSketch extends BaseFlatCountSketch implements Mergeable<FlatCountSketch> {
+	private int[] hashCounts;
+
+	/** 
+	 * Constructor based on error bounds
+	 * @param errorLimit
+	 * @param errorProbLimit
+	 */
+	public FlatCountSketch(double errorLimit, double errorProbLimit) {
+		super(errorLimit, errorProbLimit);
+	}
+
+	/**
+	 * Constructor  base of number of hash functions and hash value range
+	 * @param width
+	 * @param depth
+	 */
+	public FlatCountSketch(int width, int depth) {
+		super(width, depth);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseFlatCountSketch#initialize(int, int)
+	 */
+	@Override
+	public void initialize(int width, int depth) {
+		super.initialize(width, depth);
+		hashCounts = new int[depth];
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#add(java.lang.Object)
+	 */
+	@Override
+	public void add(Object value) {
+		long hash = hashFamily.hash64(value);
+		long signBits = hashFamily.mix(hash, depth);
+		for (int d = 0, offset = 0; d < depth; ++d, offset += width) {
+			sketch[offset + hashFamily.index(hash,  d)] += sign(signBits, d);
+		}
+		++count;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#getDistr(java.lang.Object)
+	 */
+	@Override
+	public int getDistr(Object value) {
+		//insertion sort, depth being small
+		long hash = hashFamily.hash64(value);
+		long signBits = hashFamily.mix(hash, depth);
+		for (int d = 0, offset = 0; d < depth; ++d, offset += width) {
+			int thisCount = sketch[offset + hashFamily.index(hash,  d)] * sign(signBits, d);
+			int i = d - 1;
+			for (; i >= 0 && hashCounts[i] > thisCount; --i) {
+				hashCounts[i + 1] = hashCounts[i];
+			}
+			hashCounts[i + 1] = thisCount;
+		}
+		int mid = depth / 2;
+		return depth % 2 == 1 ? hashCounts[mid] : (hashCounts[mid - 1] + hashCounts[mid]) / 2;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.BaseFlatCountSketch#getSerialType()
+	 */
+	@Override
+	protected byte getSerialType() {
+		return BinaryFormat.FLAT_COUNT_SKETCH;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.Mergeable#merge(java.lang.Object)
+	 */
+	@Override
+	public void merge(FlatCountSketch other) {
+		mergeCounters(other);
+	}
+	
+	/**
+	 * @param signBits
+	 * @param d
+	 * @return +1 or -1
+	 */
+	private int sign(long signBits, int d) {
+		return (int)((signBits >>> (d & 63)) & 1) * 2 - 1;
+	}
+}
@@ -59,6 +59,11 @@ public class FrequentItems {
 			if (context.expireWindow > 0) {
 				freqFinder.setExpirer(new Expirer(context.expireWindow));
 			}
+		} else if (context.strategy.equals("LazyMisraGries")) {
+			freqFinder = new LazyMisraGriesFrequent(context.maxBucket);
+			if (context.expireWindow > 0) {
+				freqFinder.setExpirer(new Expirer(context.expireWindow));
+			}
 		} else if (context.strategy.equals("CountMinSketches")) {
 			if (context.expireWindow > 0) {
 				freqFinder = new CountMinSketchesFrequent(context.errorLimit, context.errorProbLimit, 
@@ -67,6 +72,13 @@ public class FrequentItems {
 				freqFinder = new CountMinSketchesFrequent(context.errorLimit, context.errorProbLimit, 
 						context.mostFrequentCount, context.freqCountLimitPercent);
 			}
+		} else if (context.strategy.equals("SpaceSaving")) {
+			if (context.expireWindow > 0) {
+				throw new IllegalArgumentException("expiry not supported for space saving");
+			}
+			freqFinder = context.maxBucket > 0 ? 
+				new SpaceSavingFrequent(context.maxBucket, context.mostFrequentCount) :
+				new SpaceSavingFrequent(context.errorLimit, context.mostFrequentCount);
 		} else {
 			throw new IllegalArgumentException("unsupported frequent item algorithm");
 		}
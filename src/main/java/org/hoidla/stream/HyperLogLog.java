@@ -18,7 +18,11 @@
 
 package org.hoidla.stream;
 
+import java.nio.ByteBuffer;
+
 import org.hoidla.stream.UniqueItems.UniqueItemsCounter;
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
 import org.hoidla.util.Hashing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,7 +32,7 @@ import org.slf4j.LoggerFactory;
  * @author pranab
  *
  */
-public class HyperLogLog implements UniqueItemsCounter {
+public class HyperLogLog implements UniqueItemsCounter, Mergeable<HyperLogLog>, BinarySerializable {
 	private int numBucketBits;
 	private int bucketCount;
 	private Hashing.MultiHashFamily hashFamily;
@@ -47,6 +51,7 @@ public class HyperLogLog implements UniqueItemsCounter {
 		final int maxBits = Integer.SIZE * 3 / 4;
 		this.numBucketBits = this.numBucketBits < minBits ? minBits : 
 			(this.numBucketBits > maxBits ? maxBits : this.numBucketBits);
+		hashFamily = new Hashing.MultiHashFamily(1);
 		
 		//set up buckets
 		bucketCount = 1 << this.numBucketBits;
@@ -117,10 +122,7 @@ public class HyperLogLog implements UniqueItemsCounter {
 	 */
 	@Override
 	public void add(Object value) {
-		int hash = value.hashCode();
-		if (hash < 0){
-			hash = - hash;
-		}
+		int hash = (int)(hashFamily.hash64(value) >>> 32);
 		
 		//bucket based on numBucketBits MS bits
 		int bucketIndex = hash >>> (Integer.SIZE  - numBucketBits);
@@ -128,7 +130,7 @@ public class HyperLogLog implements UniqueItemsCounter {
 		//hash for the bucket using remaining
 		int bucketHash = hash << numBucketBits | (bucketCount -1);
 		int leadZeros = Integer.numberOfLeadingZeros(bucketHash);
-		LOG.info("bucketIndex:" + bucketIndex + " leadZeros:" + leadZeros);
+		LOG.debug("bucketIndex:" + bucketIndex + " leadZeros:" + leadZeros);
 		
 		//update
 		if (leadZeros > buckets[bucketIndex]) {
@@ -138,6 +140,74 @@ public class HyperLogLog implements UniqueItemsCounter {
 		++count;
 	}
 
+	/**
+	 * @param seed hash seed, counters to be merged should have same seed
+	 * @return
+	 */
+	public HyperLogLog withSeed(long seed) {
+		hashFamily.withSeed(seed);
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.Mergeable#merge(java.lang.Object)
+	 */
+	@Override
+	public void merge(HyperLogLog other) {
+		if (numBucketBits != other.numBucketBits || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge counters with different size or hash family");
+		}
+		for (int i = 0; i < bucketCount; ++i) {
+			if (other.buckets[i] > buckets[i]) {
+				buckets[i] = other.buckets[i];
+			}
+		}
+		count += other.count;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 20 + bucketCount;
+	}
+
+	/**
+	 * Registers are written as bytes
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.HYPER_LOG_LOG);
+		buffer.putInt(numBucketBits);
+		buffer.putLong(hashFamily.getSeed());
+		buffer.putLong(count);
+		for (int i = 0; i < bucketCount; ++i) {
+			buffer.put((byte)buckets[i]);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.HYPER_LOG_LOG);
+		int numBucketBits = buffer.getInt();
+		if (numBucketBits != this.numBucketBits) {
+			this.numBucketBits = numBucketBits;
+			bucketCount = 1 << numBucketBits;
+			buckets = new int[bucketCount];
+			calculateBiasCorrection();
+		}
+		hashFamily.withSeed(buffer.getLong());
+		count = buffer.getLong();
+		for (int i = 0; i < bucketCount; ++i) {
+			buckets[i] = buffer.get();
+		}
+	}
+
 	public long getCount() {
 		return count;
 	}
@@ -0,0 +1,415 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+
+/**
+ * HyperLogLog++ by Heule, Nunkesser and Hall. 64 bit hash, 6 bit registers packed 10 to a long 
+ * and sparse representation with higher precision for low cardinality. Bias is corrected 
+ * with the improved raw estimator by Ertl, which needs no empirical tables. Instances with 
+ * same precision can be merged
+ * @author pranab
+ *
+ */
+public class HyperLogLogPlus implements UniqueItems.UniqueItemsCounter, Mergeable<HyperLogLogPlus>, 
+	BinarySerializable {
+	private int precision;
+	private int numRegisters;
+	private long[] registers;
+	private int[] sparseList;
+	private int sparseSize;
+	private int[] tempList;
+	private int tempSize;
+	private int sparseLimit;
+	private Hashing.Hasher hasher = new Hashing.MurmurHash64();
+	
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+	public static final int SPARSE_PRECISION = 25;
+	private static final int REGISTER_BITS = 6;
+	private static final int REGISTERS_PER_WORD = 10;
+	private static final long REGISTER_MASK = (1L << REGISTER_BITS) - 1;
+	private static final long HASH_SEED = 0x5f3759dfL;
+	
+	/**
+	 * @param precision number of bits for register index
+	 */
+	public HyperLogLogPlus(int precision) {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException("precision should be between " + MIN_PRECISION + 
+				" and " + MAX_PRECISION);
+		}
+		setPrecision(precision);
+		clear();
+	}
+	
+	/**
+	 * @param precision
+	 */
+	private void setPrecision(int precision) {
+		this.precision = precision;
+		numRegisters = 1 << precision;
+		
+		//sparse is used as long as it takes less space than dense
+		sparseLimit = numRegisters / 5;
+	}
+	
+	/**
+	 * @param relStdDev
+	 */
+	public HyperLogLogPlus(double relStdDev) {
+		this(Math.min(MAX_PRECISION, Math.max(MIN_PRECISION, 
+			(int)Math.ceil(Math.log((1.04 / relStdDev) * (1.04 / relStdDev)) / Math.log(2)))));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.UniqueItems.UniqueItemsCounter#add(java.lang.Object)
+	 */
+	@Override
+	public void add(Object value) {
+		addHash(hasher.hash(value, HASH_SEED));
+	}
+	
+	/**
+	 * @param hash 64 bit hash of an item
+	 */
+	public void addHash(long hash) {
+		if (null != sparseList) {
+			tempList[tempSize++] = encodeSparse(hash);
+			if (tempSize == tempList.length) {
+				mergeTemp();
+				if (sparseSize > sparseLimit) {
+					toDense();
+				}
+			}
+		} else {
+			int index = (int)(hash >>> (Long.SIZE - precision));
+			int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+			updateRegister(index, rank);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.UniqueItems.UniqueItemsCounter#getUnqueCount()
+	 */
+	@Override
+	public long getUnqueCount() {
+		if (null != sparseList) {
+			mergeTemp();
+			
+			//linear counting with sparse precision
+			double sparseRegisters = 1 << SPARSE_PRECISION;
+			int numDistinct = 0;
+			for (int i = 0; i < sparseSize; ++i) {
+				if (i == 0 || (sparseList[i] >>> REGISTER_BITS) != (sparseList[i - 1] >>> REGISTER_BITS)) {
+					++numDistinct;
+				}
+			}
+			return Math.round(sparseRegisters * Math.log(sparseRegisters / (sparseRegisters - numDistinct)));
+		}
+		
+		//register value histogram
+		int maxRank = Long.SIZE - precision + 1;
+		int[] rankCounts = new int[maxRank + 1];
+		for (int i = 0; i < numRegisters; ++i) {
+			++rankCounts[getRegister(i)];
+		}
+		
+		//improved estimator
+		double m = numRegisters;
+		double z = m * tau(1.0 - rankCounts[maxRank] / m);
+		for (int k = maxRank - 1; k >= 1; --k) {
+			z += rankCounts[k];
+			z *= 0.5;
+		}
+		z += m * sigma(rankCounts[0] / m);
+		return Math.round(m * m / (2.0 * Math.log(2) * z));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.UniqueItems.UniqueItemsCounter#clear()
+	 */
+	@Override
+	public void clear() {
+		registers = null;
+		sparseList = new int[Math.max(16, sparseLimit / 4)];
+		sparseSize = 0;
+		tempList = new int[Math.max(16, sparseLimit / 4)];
+		tempSize = 0;
+	}
+	
+	/**
+	 * Union with another counter of same precision
+	 * @param other
+	 */
+	@Override
+	public void merge(HyperLogLogPlus other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("can not merge counters with different precision");
+		}
+		if (null != other.sparseList) {
+			other.mergeTemp();
+			if (null != sparseList) {
+				for (int i = 0; i < other.sparseSize; ++i) {
+					tempList[tempSize++] = other.sparseList[i];
+					if (tempSize == tempList.length) {
+						mergeTemp();
+					}
+				}
+				mergeTemp();
+				if (sparseSize > sparseLimit) {
+					toDense();
+				}
+			} else {
+				for (int i = 0; i < other.sparseSize; ++i) {
+					updateFromSparse(other.sparseList[i]);
+				}
+			}
+		} else {
+			if (null != sparseList) {
+				toDense();
+			}
+			for (int i = 0; i < registers.length; ++i) {
+				registers[i] = maxRegisters(registers[i], other.registers[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Sparse list is written as is when in sparse mode, otherwise packed registers
+	 * @return
+	 */
+	@Override
+	public int getSerializedSize() {
+		if (null != sparseList) {
+			mergeTemp();
+			return BinaryFormat.HEADER_SIZE + 9 + 4 * sparseSize;
+		}
+		return BinaryFormat.HEADER_SIZE + 9 + 8 * registers.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.HYPER_LOG_LOG_PLUS);
+		buffer.putInt(precision);
+		if (null != sparseList) {
+			mergeTemp();
+			buffer.put((byte)1);
+			buffer.putInt(sparseSize);
+			BinaryFormat.writeInts(buffer, sparseList, 0, sparseSize);
+		} else {
+			buffer.put((byte)0);
+			buffer.putInt(registers.length);
+			BinaryFormat.writeLongs(buffer, registers, 0, registers.length);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.HYPER_LOG_LOG_PLUS);
+		setPrecision(buffer.getInt());
+		clear();
+		boolean sparse = buffer.get() == 1;
+		int size = buffer.getInt();
+		if (sparse) {
+			sparseList = new int[Math.max(sparseList.length, size)];
+			sparseSize = size;
+			BinaryFormat.readInts(buffer, sparseList, 0, size);
+		} else {
+			sparseList = null;
+			tempList = null;
+			registers = new long[size];
+			BinaryFormat.readLongs(buffer, registers, 0, size);
+		}
+	}
+	
+	/**
+	 * @return
+	 */
+	public boolean isSparse() {
+		return null != sparseList;
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+	
+	/**
+	 * sparse entry is index with sparse precision followed by 6 bit rank
+	 * @param hash
+	 * @return
+	 */
+	private int encodeSparse(long hash) {
+		int index = (int)(hash >>> (Long.SIZE - SPARSE_PRECISION));
+		int rank = Long.numberOfLeadingZeros((hash << SPARSE_PRECISION) | (1L << (SPARSE_PRECISION - 1))) + 1;
+		return (index << REGISTER_BITS) | rank;
+	}
+	
+	/**
+	 * sorts temp list and merges into sparse list, keeping max rank per index
+	 */
+	private void mergeTemp() {
+		if (tempSize == 0) {
+			return;
+		}
+		Arrays.sort(tempList, 0, tempSize);
+		int[] merged = new int[Math.max(sparseList.length, sparseSize + tempSize)];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < sparseSize || j < tempSize) {
+			int next;
+			if (j == tempSize || (i < sparseSize && sparseList[i] <= tempList[j])) {
+				next = sparseList[i++];
+			} else {
+				next = tempList[j++];
+			}
+			
+			//same index, entries being sorted the later one has higher rank
+			if (k > 0 && (merged[k - 1] >>> REGISTER_BITS) == (next >>> REGISTER_BITS)) {
+				merged[k - 1] = next;
+			} else {
+				merged[k++] = next;
+			}
+		}
+		sparseList = merged;
+		sparseSize = k;
+		tempSize = 0;
+	}
+	
+	/**
+	 * converts to dense registers
+	 */
+	private void toDense() {
+		mergeTemp();
+		registers = new long[(numRegisters + REGISTERS_PER_WORD - 1) / REGISTERS_PER_WORD];
+		for (int i = 0; i < sparseSize; ++i) {
+			updateFromSparse(sparseList[i]);
+		}
+		sparseList = null;
+		tempList = null;
+		sparseSize = tempSize = 0;
+	}
+	
+	/**
+	 * @param entry
+	 */
+	private void updateFromSparse(int entry) {
+		int sparseIndex = entry >>> REGISTER_BITS;
+		int sparseRank = entry & (int)REGISTER_MASK;
+		int extraBits = SPARSE_PRECISION - precision;
+		int index = sparseIndex >>> extraBits;
+		int low = sparseIndex & ((1 << extraBits) - 1);
+		int rank = low != 0 ? Integer.numberOfLeadingZeros(low) - (Integer.SIZE - extraBits) + 1 : 
+			extraBits + sparseRank;
+		updateRegister(index, rank);
+	}
+	
+	/**
+	 * @param index
+	 * @return
+	 */
+	private int getRegister(int index) {
+		int shift = (index % REGISTERS_PER_WORD) * REGISTER_BITS;
+		return (int)((registers[index / REGISTERS_PER_WORD] >>> shift) & REGISTER_MASK);
+	}
+	
+	/**
+	 * @param index
+	 * @param rank
+	 */
+	private void updateRegister(int index, int rank) {
+		int word = index / REGISTERS_PER_WORD;
+		int shift = (index % REGISTERS_PER_WORD) * REGISTER_BITS;
+		long current = (registers[word] >>> shift) & REGISTER_MASK;
+		if (rank > current) {
+			registers[word] = (registers[word] & ~(REGISTER_MASK << shift)) | ((long)rank << shift);
+		}
+	}
+	
+	/**
+	 * register wise max of two packed words
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	private long maxRegisters(long first, long second) {
+		long max = 0;
+		for (int shift = 0; shift < REGISTERS_PER_WORD * REGISTER_BITS; shift += REGISTER_BITS) {
+			long a = (first >>> shift) & REGISTER_MASK;
+			long b = (second >>> shift) & REGISTER_MASK;
+			max |= (a > b ? a : b) << shift;
+		}
+		return max;
+	}
+	
+	/**
+	 * @param x
+	 * @return
+	 */
+	private static double sigma(double x) {
+		if (x == 1.0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double y = 1.0;
+		double z = x;
+		double prevZ;
+		do {
+			x *= x;
+			prevZ = z;
+			z += x * y;
+			y += y;
+		} while (prevZ != z);
+		return z;
+	}
+	
+	/**
+	 * @param x
+	 * @return
+	 */
+	private static double tau(double x) {
+		if (x == 0.0 || x == 1.0) {
+			return 0.0;
+		}
+		double y = 1.0;
+		double z = 1.0 - x;
+		double prevZ;
+		do {
+			x = Math.sqrt(x);
+			prevZ = z;
+			y *= 0.5;
+			z -= (1.0 - x) * (1.0 - x) * y;
+		} while (prevZ != z);
+		return z / 3.0;
+	}
+}
@@ -0,0 +1,549 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.BoundedSortedObjects;
+import org.hoidla.util.Expirer;
+
+/**
+ * Misra Gries with lazy decrement. Counts are stored raw in primitive slots and a global 
+ * offset is subtracted on read, so decrementing all is just incrementing the offset. Slots 
+ * are indexed by count in linked buckets, making the items that drop to zero the ones in 
+ * the lowest bucket. Both hit and miss are amortized O(1). With expirer, counts are also 
+ * kept per epoch and expired in a batch at epoch boundary
+ * @author pranab
+ *
+ */
+public class LazyMisraGriesFrequent extends FrequentItems.FrequentItemsFinder implements 
+	Mergeable<LazyMisraGriesFrequent>, BinarySerializable {
+	private int maxBucket;
+	private long offset;
+	private Map<Object, Integer> slots;
+	
+	//slots
+	private Object[] items;
+	private long[] counts;
+	private int[] slotBucket;
+	private int[] slotPrev;
+	private int[] slotNext;
+	private int[] freeSlots;
+	private int numFreeSlots;
+	
+	//buckets indexed by raw count
+	private long[] bucketCounts;
+	private int[] bucketHead;
+	private int[] bucketPrev;
+	private int[] bucketNext;
+	private int[] freeBuckets;
+	private int numFreeBuckets;
+	private int lowBucket = NONE;
+	private int highBucket = NONE;
+	
+	//epoch expiry
+	private int numEpochs;
+	private long epochSpan;
+	private int[] epochCounts;
+	private int epochHead;
+	private long currentEpoch = -1;
+	
+	private static final int NONE = -1;
+	
+	/**
+	 * @param maxBucket
+	 */
+	public LazyMisraGriesFrequent(int maxBucket) {
+		if (maxBucket < 1) {
+			throw new IllegalArgumentException("number of buckets should be positive");
+		}
+		this.maxBucket = maxBucket;
+		slots = new HashMap<Object, Integer>(2 * maxBucket);
+		items = new Object[maxBucket];
+		counts = new long[maxBucket];
+		slotBucket = new int[maxBucket];
+		slotPrev = new int[maxBucket];
+		slotNext = new int[maxBucket];
+		freeSlots = new int[maxBucket];
+		bucketCounts = new long[maxBucket];
+		bucketHead = new int[maxBucket];
+		bucketPrev = new int[maxBucket];
+		bucketNext = new int[maxBucket];
+		freeBuckets = new int[maxBucket];
+		initialize();
+	}
+
+	/**
+	 * @param maxBucket
+	 * @param expirer
+	 */
+	public LazyMisraGriesFrequent(int maxBucket, Expirer expirer) {
+		this(maxBucket);
+		setExpirer(expirer);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#setExpirer(org.hoidla.util.Expirer)
+	 */
+	@Override
+	public void setExpirer(Expirer expirer) {
+		this.expirer = expirer;
+		numEpochs = expirer.getNumEpochs();
+		if (numEpochs < 1) {
+			throw new IllegalArgumentException("number of epochs should be positive");
+		}
+		epochSpan = expirer.isSequenceExpirer() ? expirer.getEpochSpan() : 0;
+		epochCounts = new int[maxBucket * numEpochs];
+		epochHead = 0;
+		currentEpoch = -1;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#add(java.lang.Object)
+	 */
+	@Override
+	public void add(Object value) {
+		++count;
+		Integer slot = slots.get(value);
+		if (null != slot) {
+			//existing bucket
+			increment(slot);
+		} else if (numFreeSlots > 0) {
+			//add new bucket
+			slot = insert(value);
+		} else {
+			//decrement all
+			++offset;
+			evictZeros();
+		}
+		
+		if (null != slot && null != epochCounts) {
+			++epochCounts[slot * numEpochs + epochHead];
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#add(java.lang.Object, long)
+	 */
+	@Override
+	public void add(Object value, long timestamp) {
+		if (null != expirer && expirer.isSequenceExpirer()) {
+			long epoch = timestamp / epochSpan;
+			if (currentEpoch < 0) {
+				currentEpoch = epoch;
+			} else if (epoch > currentEpoch) {
+				advance(epoch - currentEpoch);
+				currentEpoch = epoch;
+			}
+		}
+		add(value);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#get()
+	 */
+	@Override
+	public List<BoundedSortedObjects.SortableObject> get() {
+		List<BoundedSortedObjects.SortableObject> topItems = 
+			new ArrayList<BoundedSortedObjects.SortableObject>(maxBucket - numFreeSlots);
+		for (int bucket = highBucket; bucket != NONE; bucket = bucketPrev[bucket]) {
+			int itemCount = (int)(bucketCounts[bucket] - offset);
+			for (int slot = bucketHead[bucket]; slot != NONE; slot = slotNext[slot]) {
+				topItems.add(new BoundedSortedObjects.SortableObject(itemCount, items[slot]));
+			}
+		}
+		return topItems;
+	}
+	
+	/**
+	 * @param value
+	 * @return count, 0 if not tracked
+	 */
+	public long getCount(Object value) {
+		Integer slot = slots.get(value);
+		return null != slot ? counts[slot] - offset : 0;
+	}
+
+	/**
+	 * For sequence expirer, expires with current time as the sequence. For epoch expirer
+	 * closes the current epoch 
+	 */
+	@Override
+	public void expire() {
+		if (null == expirer) {
+			return;
+		}
+		if (expirer.isSequenceExpirer()) {
+			long epoch = System.currentTimeMillis() / epochSpan;
+			if (currentEpoch >= 0 && epoch > currentEpoch) {
+				advance(epoch - currentEpoch);
+				currentEpoch = epoch;
+			}
+		} else {
+			advance(1);
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	public void initialize() {
+		slots.clear();
+		Arrays.fill(items, null);
+		for (int i = 0; i < maxBucket; ++i) {
+			freeSlots[i] = maxBucket - 1 - i;
+			freeBuckets[i] = maxBucket - 1 - i;
+		}
+		numFreeSlots = numFreeBuckets = maxBucket;
+		lowBucket = highBucket = NONE;
+		offset = 0;
+		count = 0;
+		if (null != epochCounts) {
+			Arrays.fill(epochCounts, 0);
+			epochHead = 0;
+			currentEpoch = -1;
+		}
+	}
+	
+	/**
+	 * Adds counts of the other and then subtracts the count of rank max bucket plus one from 
+	 * all, which keeps the Misra Gries error guarantee for the combined stream
+	 * @param other
+	 */
+	@Override
+	public void merge(LazyMisraGriesFrequent other) {
+		if (null != expirer || null != other.expirer) {
+			throw new UnsupportedOperationException("merge not supported with expiry");
+		}
+		Map<Object, Long> merged = new HashMap<Object, Long>(2 * (slots.size() + other.slots.size()));
+		for (Map.Entry<Object, Integer> entry : slots.entrySet()) {
+			merged.put(entry.getKey(), counts[entry.getValue()] - offset);
+		}
+		for (Map.Entry<Object, Integer> entry : other.slots.entrySet()) {
+			Long itemCount = merged.get(entry.getKey());
+			long thatCount = other.counts[entry.getValue()] - other.offset;
+			merged.put(entry.getKey(), null != itemCount ? itemCount + thatCount : thatCount);
+		}
+		
+		long cutoff = 0;
+		if (merged.size() > maxBucket) {
+			long[] mergedCounts = new long[merged.size()];
+			int i = 0;
+			for (long itemCount : merged.values()) {
+				mergedCounts[i++] = itemCount;
+			}
+			Arrays.sort(mergedCounts);
+			cutoff = mergedCounts[mergedCounts.length - 1 - maxBucket];
+		}
+		
+		long totalCount = count + other.count;
+		initialize();
+		count = totalCount;
+		for (Map.Entry<Object, Long> entry : merged.entrySet()) {
+			long itemCount = entry.getValue() - cutoff;
+			if (itemCount > 0) {
+				int slot = freeSlots[--numFreeSlots];
+				items[slot] = entry.getKey();
+				counts[slot] = itemCount;
+				slots.put(entry.getKey(), slot);
+			}
+		}
+		rebuild();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		int size = BinaryFormat.HEADER_SIZE + 20;
+		for (Object item : slots.keySet()) {
+			size += BinaryFormat.getItemSize(item) + 8;
+		}
+		if (null != epochCounts) {
+			size += 16 + 4 * slots.size() * numEpochs;
+		}
+		return size;
+	}
+
+	/**
+	 * Items are written with counts net of the global offset, and per epoch counts when 
+	 * there is expiry
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.LAZY_MISRA_GRIES);
+		buffer.putInt(maxBucket);
+		buffer.putLong(count);
+		buffer.putInt(slots.size());
+		for (Map.Entry<Object, Integer> entry : slots.entrySet()) {
+			BinaryFormat.writeItem(buffer, entry.getKey());
+			buffer.putLong(counts[entry.getValue()] - offset);
+		}
+		if (null != epochCounts) {
+			buffer.putInt(numEpochs);
+			buffer.putInt(epochHead);
+			buffer.putLong(currentEpoch);
+			buffer.putInt(slots.size());
+			for (int slot : slots.values()) {
+				BinaryFormat.writeInts(buffer, epochCounts, slot * numEpochs, numEpochs);
+			}
+		} else {
+			buffer.putInt(0);
+		}
+	}
+
+	/**
+	 * Number of buckets and epochs have to match the configuration of this instance
+	 * @param buffer
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.LAZY_MISRA_GRIES);
+		if (buffer.getInt() != maxBucket) {
+			throw new IllegalArgumentException("serialized state has different number of buckets");
+		}
+		long totalCount = buffer.getLong();
+		int numItems = buffer.getInt();
+		initialize();
+		count = totalCount;
+		int[] readSlots = new int[numItems];
+		for (int i = 0; i < numItems; ++i) {
+			Object item = BinaryFormat.readItem(buffer);
+			int slot = freeSlots[--numFreeSlots];
+			items[slot] = item;
+			counts[slot] = buffer.getLong();
+			slots.put(item, slot);
+			readSlots[i] = slot;
+		}
+		
+		int storedEpochs = buffer.getInt();
+		if (storedEpochs != (null != epochCounts ? numEpochs : 0)) {
+			throw new IllegalArgumentException("serialized state has different epochs");
+		}
+		if (storedEpochs > 0) {
+			epochHead = buffer.getInt();
+			currentEpoch = buffer.getLong();
+			buffer.getInt();
+			for (int slot : readSlots) {
+				BinaryFormat.readInts(buffer, epochCounts, slot * numEpochs, numEpochs);
+			}
+		}
+		rebuild();
+	}
+	
+	/**
+	 * @param value
+	 * @return slot
+	 */
+	private int insert(Object value) {
+		int slot = freeSlots[--numFreeSlots];
+		items[slot] = value;
+		counts[slot] = offset + 1;
+		slots.put(value, slot);
+		if (null != epochCounts) {
+			Arrays.fill(epochCounts, slot * numEpochs, (slot + 1) * numEpochs, 0);
+		}
+		
+		//new item has the lowest count
+		if (lowBucket != NONE && bucketCounts[lowBucket] == counts[slot]) {
+			push(lowBucket, slot);
+		} else {
+			push(newBucket(NONE, lowBucket, counts[slot]), slot);
+		}
+		return slot;
+	}
+	
+	/**
+	 * moves slot to the bucket with next higher count
+	 * @param slot
+	 */
+	private void increment(int slot) {
+		int bucket = slotBucket[slot];
+		long newCount = ++counts[slot];
+		int next = bucketNext[bucket];
+		if (next != NONE && bucketCounts[next] == newCount) {
+			unlink(slot);
+			push(next, slot);
+		} else if (bucketHead[bucket] == slot && slotNext[slot] == NONE) {
+			//only item in bucket, bucket moves up in place
+			bucketCounts[bucket] = newCount;
+		} else {
+			unlink(slot);
+			push(newBucket(bucket, next, newCount), slot);
+		}
+	}
+	
+	/**
+	 * removes all items in buckets whose count has dropped to zero
+	 */
+	private void evictZeros() {
+		while (lowBucket != NONE && bucketCounts[lowBucket] <= offset) {
+			int bucket = lowBucket;
+			for (int slot = bucketHead[bucket]; slot != NONE; slot = slotNext[slot]) {
+				slots.remove(items[slot]);
+				items[slot] = null;
+				freeSlots[numFreeSlots++] = slot;
+			}
+			bucketHead[bucket] = NONE;
+			removeBucket(bucket);
+		}
+	}
+	
+	/**
+	 * moves epoch ring forward, subtracting expired epoch counts and rebuilding the count index
+	 * @param numAdvance
+	 */
+	private void advance(long numAdvance) {
+		if (numAdvance >= numEpochs) {
+			initialize();
+			return;
+		}
+		
+		for (long i = 0; i < numAdvance; ++i) {
+			epochHead = (epochHead + 1) % numEpochs;
+			for (Integer slot : slots.values()) {
+				int cell = slot * numEpochs + epochHead;
+				counts[slot] -= epochCounts[cell];
+				epochCounts[cell] = 0;
+			}
+		}
+		rebuild();
+	}
+	
+	/**
+	 * rebuilds count buckets after non uniform count change, dropping items with no count left
+	 */
+	private void rebuild() {
+		long[] sorted = new long[slots.size()];
+		int n = 0;
+		for (Integer slot : slots.values()) {
+			long itemCount = counts[slot] - offset;
+			if (itemCount > 0) {
+				sorted[n++] = (itemCount << 32) | slot;
+			} else {
+				items[slot] = null;
+				freeSlots[numFreeSlots++] = slot;
+			}
+		}
+		Arrays.sort(sorted, 0, n);
+		
+		//reset buckets
+		slots.clear();
+		for (int i = 0; i < maxBucket; ++i) {
+			freeBuckets[i] = maxBucket - 1 - i;
+		}
+		numFreeBuckets = maxBucket;
+		lowBucket = highBucket = NONE;
+		
+		for (int i = 0; i < n; ++i) {
+			int slot = (int)(sorted[i] & 0xFFFFFFFFL);
+			slots.put(items[slot], slot);
+			if (highBucket != NONE && bucketCounts[highBucket] == counts[slot]) {
+				push(highBucket, slot);
+			} else {
+				push(newBucket(highBucket, NONE, counts[slot]), slot);
+			}
+		}
+	}
+	
+	/**
+	 * @param prev
+	 * @param next
+	 * @param bucketCount
+	 * @return bucket
+	 */
+	private int newBucket(int prev, int next, long bucketCount) {
+		int bucket = freeBuckets[--numFreeBuckets];
+		bucketCounts[bucket] = bucketCount;
+		bucketHead[bucket] = NONE;
+		bucketPrev[bucket] = prev;
+		bucketNext[bucket] = next;
+		if (prev != NONE) {
+			bucketNext[prev] = bucket;
+		} else {
+			lowBucket = bucket;
+		}
+		if (next != NONE) {
+			bucketPrev[next] = bucket;
+		} else {
+			highBucket = bucket;
+		}
+		return bucket;
+	}
+	
+	/**
+	 * @param bucket
+	 */
+	private void removeBucket(int bucket) {
+		int prev = bucketPrev[bucket];
+		int next = bucketNext[bucket];
+		if (prev != NONE) {
+			bucketNext[prev] = next;
+		} else {
+			lowBucket = next;
+		}
+		if (next != NONE) {
+			bucketPrev[next] = prev;
+		} else {
+			highBucket = prev;
+		}
+		freeBuckets[numFreeBuckets++] = bucket;
+	}
+	
+	/**
+	 * @param bucket
+	 * @param slot
+	 */
+	private void push(int bucket, int slot) {
+		slotBucket[slot] = bucket;
+		slotPrev[slot] = NONE;
+		slotNext[slot] = bucketHead[bucket];
+		if (bucketHead[bucket] != NONE) {
+			slotPrev[bucketHead[bucket]] = slot;
+		}
+		bucketHead[bucket] = slot;
+	}
+	
+	/**
+	 * removes slot from its bucket, removing the bucket if it becomes empty
+	 * @param slot
+	 */
+	private void unlink(int slot) {
+		int bucket = slotBucket[slot];
+		if (slotPrev[slot] != NONE) {
+			slotNext[slotPrev[slot]] = slotNext[slot];
+		} else {
+			bucketHead[bucket] = slotNext[slot];
+		}
+		if (slotNext[slot] != NONE) {
+			slotPrev[slotNext[slot]] = slotPrev[slot];
+		}
+		if (bucketHead[bucket] == NONE) {
+			removeBucket(bucket);
+		}
+	}
+}
@@ -17,39 +17,66 @@
 
 package org.hoidla.stream;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
 import org.hoidla.util.BoundedSortedObjects;
 import org.hoidla.util.Expirer;
 import org.hoidla.util.ObjectCounter;
+import org.hoidla.util.OpenCountTable;
 import org.hoidla.util.SequencedObjectCounter;
 import org.hoidla.util.SimpleObjectCounter;
+import org.hoidla.util.TopItemsHeap;
 
 /**
  * @author pranab
  *
  */
-public class MankuMotwaniLossyCounting extends FrequentItems.FrequentItemsFinder {
+public class MankuMotwaniLossyCounting extends FrequentItems.FrequentItemsFinder implements 
+	Mergeable<MankuMotwaniLossyCounting>, BinarySerializable {
 	private int bucketSize;
 	private long currentBucket;
 	private Map<Object, ImmutablePair<ObjectCounter, Long>> buckets = 
 			new HashMap<Object, ImmutablePair<ObjectCounter, Long>>(); 
 	private int maxFrequentItems;
+	private double errorLimit;
+	private OpenCountTable countTable;
 	
 	public MankuMotwaniLossyCounting(double errorLimit, int maxFrequentItems) {
 		bucketSize = (int)(1 / errorLimit);
+		this.errorLimit = errorLimit;
 		this.maxFrequentItems = maxFrequentItems;
 	}
 	
+	/**
+	 * Keeps count and delta in a primitive open addressing table and prunes only at bucket
+	 * boundaries, instead of scanning all entries for every item. Window expiry is not 
+	 * supported in this mode
+	 * @param boundaryPruning
+	 * @return
+	 */
+	public MankuMotwaniLossyCounting withBoundaryPruning(boolean boundaryPruning) {
+		countTable = boundaryPruning ? new OpenCountTable(4 * bucketSize) : null;
+		return this;
+	}
+	
 	@Override
 	public void setExpirer(Expirer expirer) {
 	}
 
 	@Override
 	public void add(Object value) {
+		if (null != countTable) {
+			addWithBoundaryPruning(value);
+			return;
+		}
 		++count;
 		currentBucket = count / bucketSize + 1;
 		
@@ -68,6 +95,9 @@ public class MankuMotwaniLossyCounting extends FrequentItems.FrequentItemsFinder
 
 	@Override
 	public void add(Object value, long sequence) {
+		if (null != countTable) {
+			throw new UnsupportedOperationException("expiry not supported with bucket boundary pruning");
+		}
 		//expire from window
 		ImmutablePair<ObjectCounter, Long> counterWithError = null;
 		if (null != expirer) {
@@ -103,18 +133,159 @@ public class MankuMotwaniLossyCounting extends FrequentItems.FrequentItemsFinder
 
 	@Override
 	public List<BoundedSortedObjects.SortableObject> get() {
-		BoundedSortedObjects sortedObjects  = new  BoundedSortedObjects(maxFrequentItems);		
-		ImmutablePair<ObjectCounter, Long> counterWithError = null;
-		int i = 0;
-		for (Object key : buckets.keySet()) {
-			counterWithError = buckets.get(key);
-			sortedObjects.add(key, counterWithError.getLeft().getCount());
-			if (++i  % 1000 == 0) {
-				sortedObjects.truncate();
+		TopItemsHeap topItems  = new  TopItemsHeap(maxFrequentItems);		
+		if (null != countTable) {
+			for (int i = 0; i < countTable.getCapacity(); ++i) {
+				if (null != countTable.getKeyAt(i)) {
+					topItems.add(countTable.getKeyAt(i), (int)countTable.getCountAt(i));
+				}
 			}
+			return topItems.get();
+		}
+		for (Map.Entry<Object, ImmutablePair<ObjectCounter, Long>> bucket : buckets.entrySet()) {
+			topItems.add(bucket.getKey(), bucket.getValue().getLeft().getCount());
 		}		
-		sortedObjects.truncate();
-		return sortedObjects.get();
+		return topItems.get();
+	}
+
+	/**
+	 * Items with true frequency possibly above support fraction of the stream, i.e. count at least 
+	 * (support - error) times stream size. Only for bucket boundary pruning mode
+	 * @param support
+	 * @return items ordered by count
+	 */
+	public List<BoundedSortedObjects.SortableObject> getFrequent(double support) {
+		if (null == countTable) {
+			throw new IllegalStateException("frequent item query needs bucket boundary pruning");
+		}
+		List<BoundedSortedObjects.SortableObject> frequentItems = new ArrayList<BoundedSortedObjects.SortableObject>();
+		double threshold = (support - errorLimit) * count;
+		for (int i = 0; i < countTable.getCapacity(); ++i) {
+			if (null != countTable.getKeyAt(i) && countTable.getCountAt(i) >= threshold) {
+				frequentItems.add(new BoundedSortedObjects.SortableObject((int)countTable.getCountAt(i), 
+					countTable.getKeyAt(i)));
+			}
+		}
+		Collections.sort(frequentItems);
+		return frequentItems;
+	}
+	
+	/**
+	 * Merges another one with same error limit, only in bucket boundary pruning mode. Counts
+	 * and deltas are added. An item absent on one side could have had count up to that side's
+	 * current bucket, which is added to its delta
+	 * @param other
+	 */
+	@Override
+	public void merge(MankuMotwaniLossyCounting other) {
+		if (null == countTable || null == other.countTable) {
+			throw new UnsupportedOperationException("merge needs bucket boundary pruning");
+		}
+		if (bucketSize != other.bucketSize) {
+			throw new IllegalArgumentException("can not merge with different error limit");
+		}
+		
+		long thisBucket = currentBucket;
+		long thatBucket = other.currentBucket;
+		for (int i = 0; i < countTable.getCapacity(); ++i) {
+			Object key = countTable.getKeyAt(i);
+			if (null != key && other.countTable.getCount(key) == 0) {
+				countTable.addDeltaAt(i, thatBucket);
+			}
+		}
+		for (int i = 0; i < other.countTable.getCapacity(); ++i) {
+			Object key = other.countTable.getKeyAt(i);
+			if (null != key) {
+				long delta = other.countTable.getDeltaAt(i);
+				if (countTable.getCount(key) == 0) {
+					delta += thisBucket;
+				}
+				countTable.add(key, other.countTable.getCountAt(i), delta);
+			}
+		}
+		
+		count += other.count;
+		currentBucket = (count + bucketSize - 1) / bucketSize;
+		countTable.prune(currentBucket);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		checkBoundaryPruning();
+		int size = BinaryFormat.HEADER_SIZE + 24;
+		for (int i = 0; i < countTable.getCapacity(); ++i) {
+			if (null != countTable.getKeyAt(i)) {
+				size += BinaryFormat.getItemSize(countTable.getKeyAt(i)) + 16;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Only for bucket boundary pruning mode
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		checkBoundaryPruning();
+		BinaryFormat.writeHeader(buffer, BinaryFormat.LOSSY_COUNTING);
+		buffer.putInt(bucketSize);
+		buffer.putLong(count);
+		buffer.putLong(currentBucket);
+		buffer.putInt(countTable.size());
+		for (int i = 0; i < countTable.getCapacity(); ++i) {
+			if (null != countTable.getKeyAt(i)) {
+				BinaryFormat.writeItem(buffer, countTable.getKeyAt(i));
+				buffer.putLong(countTable.getCountAt(i));
+				buffer.putLong(countTable.getDeltaAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Only for bucket boundary pruning mode
+	 * @param buffer
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		checkBoundaryPruning();
+		BinaryFormat.readHeader(buffer, BinaryFormat.LOSSY_COUNTING);
+		if (buffer.getInt() != bucketSize) {
+			throw new IllegalArgumentException("serialized state has different error limit");
+		}
+		count = buffer.getLong();
+		currentBucket = buffer.getLong();
+		int numItems = buffer.getInt();
+		countTable.clear();
+		for (int i = 0; i < numItems; ++i) {
+			Object item = BinaryFormat.readItem(buffer);
+			long itemCount = buffer.getLong();
+			countTable.add(item, itemCount, buffer.getLong());
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	private void checkBoundaryPruning() {
+		if (null == countTable) {
+			throw new UnsupportedOperationException("serialization needs bucket boundary pruning");
+		}
+	}
+
+	/**
+	 * @param value
+	 */
+	private void addWithBoundaryPruning(Object value) {
+		++count;
+		currentBucket = (count + bucketSize - 1) / bucketSize;
+		countTable.increment(value, currentBucket - 1);
+		if (count % bucketSize == 0) {
+			countTable.prune(currentBucket);
+		}
 	}
 
 	private void delete() {
@@ -0,0 +1,33 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+/**
+ * Sketch or summary that can absorb another one of same kind and configuration, so that 
+ * partial ones built on separate partitions can be reduced into one
+ * @author pranab
+ *
+ * @param <T>
+ */
+public interface Mergeable<T> {
+	
+	/**
+	 * @param other
+	 */
+	public void merge(T other);
+}
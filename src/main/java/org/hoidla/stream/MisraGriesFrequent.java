@@ -18,22 +18,28 @@
 
 package org.hoidla.stream;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
 import org.hoidla.util.BoundedSortedObjects;
 import org.hoidla.util.Expirer;
 import org.hoidla.util.ObjectCounter;
 import org.hoidla.util.SequencedObjectCounter;
 import org.hoidla.util.SimpleObjectCounter;
+import org.hoidla.util.TopItemsHeap;
 
 /**
  * @author pranab
  *
  * @param <T>
  */
-public class MisraGriesFrequent  extends FrequentItems.FrequentItemsFinder {
+public class MisraGriesFrequent  extends FrequentItems.FrequentItemsFinder implements Mergeable<MisraGriesFrequent>, 
+	BinarySerializable {
 	private Map<Object, ObjectCounter> buckets = new HashMap<Object, ObjectCounter>(); 
 	private int maxBucket;
 	
@@ -134,12 +140,101 @@ public class MisraGriesFrequent  extends FrequentItems.FrequentItemsFinder {
 	 * @return items ordered by count
 	 */
 	public List<BoundedSortedObjects.SortableObject> get() {
-		BoundedSortedObjects sortedObjects  = new  BoundedSortedObjects(maxBucket);		
-		for (Object key : buckets.keySet()) {
-			sortedObjects.add(key, buckets.get(key).getCount());
+		TopItemsHeap topItems  = new  TopItemsHeap(maxBucket);		
+		for (Map.Entry<Object, ObjectCounter> bucket : buckets.entrySet()) {
+			topItems.add(bucket.getKey(), bucket.getValue().getCount());
 		}		
-		sortedObjects.truncate();
-		return sortedObjects.get();
+		return topItems.get();
+	}
+
+	/**
+	 * Adds counts of the other and then subtracts the count of rank max bucket plus one from 
+	 * all, which keeps the Misra Gries error guarantee for the combined stream
+	 * @param other
+	 */
+	@Override
+	public void merge(MisraGriesFrequent other) {
+		if (null != expirer || null != other.expirer) {
+			throw new UnsupportedOperationException("merge not supported with expiry");
+		}
+		for (Map.Entry<Object, ObjectCounter> bucket : other.buckets.entrySet()) {
+			ObjectCounter counter = buckets.get(bucket.getKey());
+			if (null == counter) {
+				counter = new SimpleObjectCounter();
+				buckets.put(bucket.getKey(), counter);
+			}
+			counter.change(bucket.getValue().getCount());
+		}
+		
+		if (buckets.size() > maxBucket) {
+			int[] counts = new int[buckets.size()];
+			int i = 0;
+			for (ObjectCounter counter : buckets.values()) {
+				counts[i++] = counter.getCount();
+			}
+			Arrays.sort(counts);
+			int cutoff = counts[counts.length - 1 - maxBucket];
+			toBeRemoved.clear();
+			for (Map.Entry<Object, ObjectCounter> bucket : buckets.entrySet()) {
+				bucket.getValue().change(-cutoff);
+				if (bucket.getValue().getCount() <= 0) {
+					toBeRemoved.add(bucket.getKey());
+				}
+			}
+			for (Object key : toBeRemoved) {
+				buckets.remove(key);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		int size = BinaryFormat.HEADER_SIZE + 8;
+		for (Object item : buckets.keySet()) {
+			size += BinaryFormat.getItemSize(item) + 4;
+		}
+		return size;
+	}
+
+	/**
+	 * Counts are written, hence not supported with expiry
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		if (null != expirer) {
+			throw new UnsupportedOperationException("serialization not supported with expiry");
+		}
+		BinaryFormat.writeHeader(buffer, BinaryFormat.MISRA_GRIES);
+		buffer.putInt(maxBucket);
+		buffer.putInt(buckets.size());
+		for (Map.Entry<Object, ObjectCounter> bucket : buckets.entrySet()) {
+			BinaryFormat.writeItem(buffer, bucket.getKey());
+			buffer.putInt(bucket.getValue().getCount());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		if (null != expirer) {
+			throw new UnsupportedOperationException("serialization not supported with expiry");
+		}
+		BinaryFormat.readHeader(buffer, BinaryFormat.MISRA_GRIES);
+		maxBucket = buffer.getInt();
+		int numItems = buffer.getInt();
+		buckets.clear();
+		for (int i = 0; i < numItems; ++i) {
+			Object item = BinaryFormat.readItem(buffer);
+			ObjectCounter counter = new SimpleObjectCounter();
+			counter.change(buffer.getInt());
+			buckets.put(item, counter);
+		}
 	}
 
 	@Override
@@ -0,0 +1,256 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+import org.hoidla.util.MappedStorage;
+
+/**
+ * Bloom filter with bit vector outside the heap, in a direct buffer or memory mapped file.
+ * Storage layout is same as the serialized form of BloomFilter
+ * @author pranab
+ *
+ */
+public class OffHeapBloomFilter implements Mergeable<OffHeapBloomFilter>, BinarySerializable, Closeable {
+	private int bitVectorSize;
+	private int hashFamilySize;
+	private MappedStorage storage;
+	private ByteBuffer buffer;
+	private Hashing.MultiHashFamily hashFamily;
+	
+	private static final int SIZE_OFFSET = BinaryFormat.HEADER_SIZE;
+	private static final int HASH_SIZE_OFFSET = SIZE_OFFSET + 4;
+	private static final int SEED_OFFSET = HASH_SIZE_OFFSET + 4;
+	private static final int DATA_OFFSET = SEED_OFFSET + 8;
+	
+	/**
+	 * Filter in direct buffer
+	 * @param maxSetSize
+	 * @param falsePositiveProb
+	 */
+	public OffHeapBloomFilter(int maxSetSize, double falsePositiveProb) {
+		setSize(maxSetSize, falsePositiveProb);
+		initialize(new MappedStorage(getStorageSize(bitVectorSize)));
+	}
+	
+	/**
+	 * Filter in mapped file, existing file is remapped with its content
+	 * @param maxSetSize
+	 * @param falsePositiveProb
+	 * @param file
+	 * @throws IOException
+	 */
+	public OffHeapBloomFilter(int maxSetSize, double falsePositiveProb, File file) throws IOException {
+		setSize(maxSetSize, falsePositiveProb);
+		initialize(new MappedStorage(file, getStorageSize(bitVectorSize)));
+	}
+
+	/**
+	 * Maps filter in an existing file, size is taken from the file. Multiple processes can 
+	 * share a read only filter
+	 * @param file
+	 * @param readOnly
+	 * @throws IOException
+	 */
+	public OffHeapBloomFilter(File file, boolean readOnly) throws IOException {
+		storage = new MappedStorage(file, readOnly);
+		buffer = storage.getBuffer();
+		BinaryFormat.readHeader(buffer.duplicate(), BinaryFormat.BLOOM_FILTER);
+		bitVectorSize = buffer.getInt(SIZE_OFFSET);
+		hashFamilySize = buffer.getInt(HASH_SIZE_OFFSET);
+		if (storage.getSize() != getStorageSize(bitVectorSize)) {
+			throw new IllegalArgumentException("file size does not match filter size");
+		}
+		hashFamily = new Hashing.MultiHashFamily(hashFamilySize, bitVectorSize).withSeed(buffer.getLong(SEED_OFFSET));
+	}
+	
+	/**
+	 * @param maxSetSize
+	 * @param falsePositiveProb
+	 */
+	private void setSize(int maxSetSize, double falsePositiveProb) {
+		double c = Math.log(2);
+		bitVectorSize = (int)Math.round((-maxSetSize * Math.log(falsePositiveProb) / (c * c)));
+		hashFamilySize = (int)Math.round(c *  bitVectorSize / maxSetSize) ;
+	}
+	
+	/**
+	 * @param storage
+	 */
+	private void initialize(MappedStorage storage) {
+		this.storage = storage;
+		buffer = storage.getBuffer();
+		hashFamily = new Hashing.MultiHashFamily(hashFamilySize, bitVectorSize);
+		if (storage.isExisting()) {
+			BinaryFormat.readHeader(buffer.duplicate(), BinaryFormat.BLOOM_FILTER);
+			if (buffer.getInt(SIZE_OFFSET) != bitVectorSize || buffer.getInt(HASH_SIZE_OFFSET) != hashFamilySize) {
+				throw new IllegalArgumentException("existing filter has different size");
+			}
+			hashFamily.withSeed(buffer.getLong(SEED_OFFSET));
+		} else {
+			BinaryFormat.writeHeader(buffer.duplicate(), BinaryFormat.BLOOM_FILTER);
+			buffer.putInt(SIZE_OFFSET, bitVectorSize);
+			buffer.putInt(HASH_SIZE_OFFSET, hashFamilySize);
+			buffer.putLong(SEED_OFFSET, hashFamily.getSeed());
+		}
+	}
+	
+	/**
+	 * @param bitVectorSize
+	 * @return storage size in bytes
+	 */
+	public static int getStorageSize(int bitVectorSize) {
+		return DATA_OFFSET + 8 * ((bitVectorSize + Long.SIZE - 1) / Long.SIZE);
+	}
+
+	/**
+	 * @param seed hash seed, only for a new filter since it is stored with the bits
+	 * @return
+	 */
+	public OffHeapBloomFilter withSeed(long seed) {
+		checkWritable();
+		hashFamily.withSeed(seed);
+		buffer.putLong(SEED_OFFSET, seed);
+		return this;
+	}
+	
+	/**
+	 * Adds new object
+	 * @param value
+	 */
+	public void add(Object value) {
+		checkWritable();
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			int bucket = hashFamily.index(hash,  h);
+			int pos = DATA_OFFSET + 8 * (bucket >>> 6);
+			buffer.putLong(pos, buffer.getLong(pos) | (1L << bucket));
+		}
+	}
+	
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean exists(Object value) {
+		long hash = hashFamily.hash64(value);
+		for (int h = 0; h < hashFamilySize; ++h) {
+			int bucket = hashFamily.index(hash,  h);
+			if ((buffer.getLong(DATA_OFFSET + 8 * (bucket >>> 6)) & (1L << bucket)) == 0) {
+				return false;
+			}
+		}		
+		return true;
+	}
+	
+	/**
+	 * clears all bits, seed is retained
+	 */
+	public void clear() {
+		checkWritable();
+		for (int pos = DATA_OFFSET; pos < buffer.capacity(); pos += 8) {
+			buffer.putLong(pos, 0);
+		}
+	}
+	
+	/**
+	 * Union with another filter of same size and hash family
+	 * @param other
+	 */
+	@Override
+	public void merge(OffHeapBloomFilter other) {
+		checkWritable();
+		if (bitVectorSize != other.bitVectorSize || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge filters with different size or hash family");
+		}
+		for (int pos = DATA_OFFSET; pos < buffer.capacity(); pos += 8) {
+			buffer.putLong(pos, buffer.getLong(pos) | other.buffer.getLong(pos));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return storage.getSize();
+	}
+
+	/**
+	 * Copies the storage as is, which is the serialized form of BloomFilter
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		ByteBuffer source = this.buffer.duplicate();
+		source.clear();
+		buffer.put(source);
+	}
+
+	/**
+	 * Serialized filter has to be of same size
+	 * @param buffer
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		checkWritable();
+		ByteBuffer source = buffer.duplicate();
+		BinaryFormat.readHeader(source, BinaryFormat.BLOOM_FILTER);
+		if (source.getInt() != bitVectorSize || source.getInt() != hashFamilySize) {
+			throw new IllegalArgumentException("serialized filter has different size");
+		}
+		source.limit(buffer.position() + storage.getSize());
+		source.position(buffer.position());
+		ByteBuffer target = this.buffer.duplicate();
+		target.clear();
+		target.put(source);
+		buffer.position(source.position());
+		hashFamily.withSeed(this.buffer.getLong(SEED_OFFSET));
+	}
+	
+	/**
+	 * Writes changes to disk for mapped file
+	 */
+	public void force() {
+		storage.force();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		storage.close();
+	}
+	
+	/**
+	 * 
+	 */
+	private void checkWritable() {
+		if (storage.isReadOnly()) {
+			throw new IllegalStateException("filter is mapped read only");
+		}
+	}
+}
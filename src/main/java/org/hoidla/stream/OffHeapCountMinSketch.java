@@ -0,0 +1,315 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+import org.hoidla.util.MappedStorage;
+
+/**
+ * Count min sketch with counters outside the heap, in a direct buffer or memory mapped file.
+ * Storage layout is same as the serialized form of FlatCountMinSketch, so a mapped file can 
+ * also be read into an on heap sketch 
+ * @author pranab
+ *
+ */
+public class OffHeapCountMinSketch implements FrequentItems.FrequencyDistribution, 
+	Mergeable<OffHeapCountMinSketch>, BinarySerializable, Closeable {
+	private int width;
+	private int depth;
+	private MappedStorage storage;
+	private ByteBuffer buffer;
+	private Hashing.MultiHashFamily hashFamily;
+	
+	private static final int WIDTH_OFFSET = BinaryFormat.HEADER_SIZE;
+	private static final int DEPTH_OFFSET = WIDTH_OFFSET + 4;
+	private static final int SEED_OFFSET = DEPTH_OFFSET + 4;
+	private static final int COUNT_OFFSET = SEED_OFFSET + 8;
+	private static final int DATA_OFFSET = COUNT_OFFSET + 8;
+	
+	private static final Logger LOG = LoggerFactory.getLogger(OffHeapCountMinSketch.class);
+	
+	/**
+	 * Sketch in direct buffer
+	 * @param width
+	 * @param depth
+	 */
+	public OffHeapCountMinSketch(int width, int depth) {
+		initialize(width, depth, new MappedStorage(getStorageSize(width, depth)));
+	}
+	
+	/**
+	 * Sketch in mapped file, existing file is remapped with its counts
+	 * @param width
+	 * @param depth
+	 * @param file
+	 * @throws IOException
+	 */
+	public OffHeapCountMinSketch(int width, int depth, File file) throws IOException {
+		initialize(width, depth, new MappedStorage(file, getStorageSize(width, depth)));
+	}
+
+	/**
+	 * Sketch in mapped file, based on error bounds
+	 * @param errorLimit
+	 * @param errorProbLimit
+	 * @param file
+	 * @throws IOException
+	 */
+	public OffHeapCountMinSketch(double errorLimit, double errorProbLimit, File file) throws IOException {
+		this((int)Math.round(Math.E / errorLimit), (int)Math.round(Math.log(1.0 / errorProbLimit)), file);
+	}
+	
+	/**
+	 * Maps sketch in an existing file, dimensions are taken from the file. Multiple processes can 
+	 * share a read only sketch
+	 * @param file
+	 * @param readOnly
+	 * @throws IOException
+	 */
+	public OffHeapCountMinSketch(File file, boolean readOnly) throws IOException {
+		storage = new MappedStorage(file, readOnly);
+		buffer = storage.getBuffer();
+		BinaryFormat.readHeader(buffer.duplicate(), BinaryFormat.FLAT_COUNT_MIN_SKETCH);
+		width = buffer.getInt(WIDTH_OFFSET);
+		depth = buffer.getInt(DEPTH_OFFSET);
+		if (storage.getSize() != getStorageSize(width, depth)) {
+			throw new IllegalArgumentException("file size does not match sketch dimensions");
+		}
+		hashFamily = new Hashing.MultiHashFamily(depth, width).withSeed(buffer.getLong(SEED_OFFSET));
+	}
+	
+	/**
+	 * @param width
+	 * @param depth
+	 * @param storage
+	 */
+	private void initialize(int width, int depth, MappedStorage storage) {
+		LOG.info("width: " + width + " depth:" + depth + " mapped:" + storage.isMapped());
+		this.width = width;
+		this.depth = depth;
+		this.storage = storage;
+		buffer = storage.getBuffer();
+		hashFamily = new Hashing.MultiHashFamily(depth, width);
+		if (storage.isExisting()) {
+			BinaryFormat.readHeader(buffer.duplicate(), BinaryFormat.FLAT_COUNT_MIN_SKETCH);
+			if (buffer.getInt(WIDTH_OFFSET) != width || buffer.getInt(DEPTH_OFFSET) != depth) {
+				throw new IllegalArgumentException("existing sketch has different dimensions");
+			}
+			hashFamily.withSeed(buffer.getLong(SEED_OFFSET));
+		} else {
+			BinaryFormat.writeHeader(buffer.duplicate(), BinaryFormat.FLAT_COUNT_MIN_SKETCH);
+			buffer.putInt(WIDTH_OFFSET, width);
+			buffer.putInt(DEPTH_OFFSET, depth);
+			buffer.putLong(SEED_OFFSET, hashFamily.getSeed());
+		}
+	}
+
+	/**
+	 * @param width
+	 * @param depth
+	 * @return storage size in bytes
+	 */
+	public static int getStorageSize(int width, int depth) {
+		long size = DATA_OFFSET + 4L * width * depth;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("sketch too large for single buffer");
+		}
+		return (int)size;
+	}
+	
+	/**
+	 * @param seed hash seed, only for a new sketch since it is stored with the counters
+	 * @return
+	 */
+	public OffHeapCountMinSketch withSeed(long seed) {
+		checkWritable();
+		hashFamily.withSeed(seed);
+		buffer.putLong(SEED_OFFSET, seed);
+		return this;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#add(java.lang.Object)
+	 */
+	@Override
+	public void add(Object value) {
+		checkWritable();
+		long hash = hashFamily.hash64(value);
+		for (int d = 0; d < depth; ++d) {
+			int pos = DATA_OFFSET + 4 * (d * width + hashFamily.index(hash,  d));
+			buffer.putInt(pos, buffer.getInt(pos) + 1);
+		}
+		buffer.putLong(COUNT_OFFSET, buffer.getLong(COUNT_OFFSET) + 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#add(java.lang.Object, long)
+	 */
+	@Override
+	public void add(Object value, long sequence) {
+		throw new UnsupportedOperationException("expiry not supported for off heap count min sketch");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#getDistr(java.lang.Object)
+	 */
+	@Override
+	public int getDistr(Object value) {
+		int count = Integer.MAX_VALUE;
+		long hash = hashFamily.hash64(value);
+		for (int d = 0; d < depth; ++d) {
+			int thisCount = buffer.getInt(DATA_OFFSET + 4 * (d * width + hashFamily.index(hash,  d)));
+			if (thisCount < count) {
+				count = thisCount;
+			}
+		}
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#expire()
+	 */
+	@Override
+	public void expire() {
+		throw new UnsupportedOperationException("expiry not supported for off heap count min sketch");
+	}
+
+	/**
+	 * Zeroes all counters, seed is retained
+	 */
+	@Override
+	public void initialize() {
+		checkWritable();
+		for (int pos = DATA_OFFSET; pos < buffer.capacity(); pos += 4) {
+			buffer.putInt(pos, 0);
+		}
+		buffer.putLong(COUNT_OFFSET, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequencyDistribution#getCount()
+	 */
+	@Override
+	public int getCount() {
+		return (int)buffer.getLong(COUNT_OFFSET);
+	}
+
+	/**
+	 * adds counters of another sketch with same dimensions and hash family
+	 * @param other
+	 */
+	@Override
+	public void merge(OffHeapCountMinSketch other) {
+		checkWritable();
+		if (width != other.width || depth != other.depth || !hashFamily.isCompatible(other.hashFamily)) {
+			throw new IllegalArgumentException("can not merge sketches with different size or hash family");
+		}
+		for (int pos = DATA_OFFSET; pos < buffer.capacity(); pos += 4) {
+			buffer.putInt(pos, buffer.getInt(pos) + other.buffer.getInt(pos));
+		}
+		buffer.putLong(COUNT_OFFSET, buffer.getLong(COUNT_OFFSET) + other.buffer.getLong(COUNT_OFFSET));
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return storage.getSize();
+	}
+
+	/**
+	 * Copies the storage as is, which is the serialized form of FlatCountMinSketch
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		ByteBuffer source = this.buffer.duplicate();
+		source.clear();
+		buffer.put(source);
+	}
+
+	/**
+	 * Serialized sketch has to be of same dimension
+	 * @param buffer
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		checkWritable();
+		ByteBuffer source = buffer.duplicate();
+		BinaryFormat.readHeader(source, BinaryFormat.FLAT_COUNT_MIN_SKETCH);
+		if (source.getInt() != width || source.getInt() != depth) {
+			throw new IllegalArgumentException("serialized sketch has different dimensions");
+		}
+		source.limit(buffer.position() + storage.getSize());
+		source.position(buffer.position());
+		ByteBuffer target = this.buffer.duplicate();
+		target.clear();
+		target.put(source);
+		buffer.position(source.position());
+		hashFamily.withSeed(this.buffer.getLong(SEED_OFFSET));
+	}
+	
+	/**
+	 * Writes changes to disk for mapped file
+	 */
+	public void force() {
+		storage.force();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		storage.close();
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getDepth() {
+		return depth;
+	}
+	
+	/**
+	 * 
+	 */
+	private void checkWritable() {
+		if (storage.isReadOnly()) {
+			throw new IllegalStateException("sketch is mapped read only");
+		}
+	}
+}
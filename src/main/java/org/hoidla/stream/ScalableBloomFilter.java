@@ -0,0 +1,246 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.Hashing;
+
+/**
+ * Scalable bloom filter as per Almeida et al. When the current filter reaches its capacity, a new 
+ * filter with geometrically larger capacity and tighter false positive probability is added, so 
+ * that overall false positive probability stays within the target for any set size
+ * @author pranab
+ *
+ */
+public class ScalableBloomFilter implements BinarySerializable {
+	private int initialCapacity;
+	private double falsePositiveProb;
+	private int growthFactor = 2;
+	private double tighteningRatio = 0.85;
+	private List<BloomFilter> filters = new ArrayList<BloomFilter>();
+	private int currentCapacity;
+	private int currentCount;
+	private long count;
+	private Hashing.MultiHashFamily hashFamily;
+	
+	/**
+	 * @param initialCapacity capacity of first filter
+	 * @param falsePositiveProb target overall false positive probability
+	 */
+	public ScalableBloomFilter(int initialCapacity, double falsePositiveProb) {
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveProb = falsePositiveProb;
+		hashFamily = new Hashing.MultiHashFamily(1);
+		addFilter();
+	}
+	
+	/**
+	 * @param growthFactor capacity multiplier for each new filter
+	 * @return
+	 */
+	public ScalableBloomFilter withGrowthFactor(int growthFactor) {
+		checkEmpty();
+		this.growthFactor = growthFactor;
+		return this;
+	}
+
+	/**
+	 * @param tighteningRatio false positive probability multiplier for each new filter
+	 * @return
+	 */
+	public ScalableBloomFilter withTighteningRatio(double tighteningRatio) {
+		checkEmpty();
+		this.tighteningRatio = tighteningRatio;
+		filters.clear();
+		addFilter();
+		return this;
+	}
+	
+	/**
+	 * @param seed hash seed
+	 * @return
+	 */
+	public ScalableBloomFilter withSeed(long seed) {
+		checkEmpty();
+		hashFamily.withSeed(seed);
+		filters.get(0).withSeed(seed);
+		return this;
+	}
+
+	/**
+	 * Adds object if not already present. Only new objects use up capacity
+	 * @param value
+	 * @return true if the object was not present
+	 */
+	public boolean add(Object value) {
+		long hash = hashFamily.hash64(value);
+		if (existsHash(hash)) {
+			return false;
+		}
+		if (currentCount >= currentCapacity) {
+			addFilter();
+		}
+		filters.get(filters.size() - 1).addHash(hash);
+		++currentCount;
+		++count;
+		return true;
+	}
+	
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean exists(Object value) {
+		return existsHash(hashFamily.hash64(value));
+	}
+	
+	/**
+	 * @return number of distinct objects added
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getNumFilters() {
+		return filters.size();
+	}
+
+	/**
+	 * @return upper bound of false positive probability over all filters in use
+	 */
+	public double getFalsePositiveProb() {
+		double noFalsePositive = 1.0;
+		for (int i = 0; i < filters.size(); ++i) {
+			noFalsePositive *= 1.0 - getFilterFalsePositiveProb(i);
+		}
+		return 1.0 - noFalsePositive;
+	}
+	
+	/**
+	 * 
+	 */
+	public void clear() {
+		filters.clear();
+		count = 0;
+		addFilter();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		int size = BinaryFormat.HEADER_SIZE + 48;
+		for (BloomFilter filter : filters) {
+			size += filter.getSerializedSize();
+		}
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#writeTo(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.SCALABLE_BLOOM_FILTER);
+		buffer.putInt(initialCapacity);
+		buffer.putDouble(falsePositiveProb);
+		buffer.putInt(growthFactor);
+		buffer.putDouble(tighteningRatio);
+		buffer.putLong(hashFamily.getSeed());
+		buffer.putLong(count);
+		buffer.putInt(currentCount);
+		buffer.putInt(filters.size());
+		for (BloomFilter filter : filters) {
+			filter.writeTo(buffer);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.SCALABLE_BLOOM_FILTER);
+		initialCapacity = buffer.getInt();
+		falsePositiveProb = buffer.getDouble();
+		growthFactor = buffer.getInt();
+		tighteningRatio = buffer.getDouble();
+		hashFamily.withSeed(buffer.getLong());
+		long count = buffer.getLong();
+		int currentCount = buffer.getInt();
+		int numFilters = buffer.getInt();
+		filters.clear();
+		for (int i = 0; i < numFilters; ++i) {
+			addFilter();
+			filters.get(i).readFrom(buffer);
+		}
+		this.count = count;
+		this.currentCount = currentCount;
+	}
+	
+	/**
+	 * adds filter with capacity and false positive probability for its position
+	 */
+	private void addFilter() {
+		int index = filters.size();
+		currentCapacity = (int)Math.min(Integer.MAX_VALUE, initialCapacity * Math.pow(growthFactor, index));
+		BloomFilter filter = new BloomFilter(currentCapacity, getFilterFalsePositiveProb(index));
+		filter.withSeed(hashFamily.getSeed());
+		filters.add(filter);
+		currentCount = 0;
+	}
+	
+	/**
+	 * @param index
+	 * @return false positive probability of filter, geometric series summing to the target
+	 */
+	private double getFilterFalsePositiveProb(int index) {
+		return falsePositiveProb * (1.0 - tighteningRatio) * Math.pow(tighteningRatio, index);
+	}
+	
+	/**
+	 * @param hash
+	 * @return
+	 */
+	private boolean existsHash(long hash) {
+		for (int i = filters.size() - 1; i >= 0; --i) {
+			if (filters.get(i).existsHash(hash)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 
+	 */
+	private void checkEmpty() {
+		if (count > 0) {
+			throw new IllegalStateException("filter configuration can not be changed after adding");
+		}
+	}
+}
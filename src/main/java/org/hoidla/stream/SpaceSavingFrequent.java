@@ -0,0 +1,436 @@
+/*
+ * hoidla: various streaming algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.BoundedSortedObjects;
+import org.hoidla.util.Expirer;
+
+/**
+ * Space saving heavy hitters with stream summary. Counters with same count hang off a bucket
+ * and buckets form a list ordered by count, so increment and eviction of the minimum are O(1).
+ * With k counters over a stream of size n, over estimate of any count is at most n / k
+ * @author pranab
+ *
+ */
+public class SpaceSavingFrequent extends FrequentItems.FrequentItemsFinder implements Mergeable<SpaceSavingFrequent>, 
+	BinarySerializable {
+	private int maxCounters;
+	private int mostFrequentCount;
+	private Map<Object, Counter> counters;
+	private Bucket minBucket;
+	private Bucket maxBucket;
+	
+	/**
+	 * counter for an item
+	 * @author pranab
+	 *
+	 */
+	private static class Counter {
+		private Object item;
+		private long error;
+		private Bucket bucket;
+		private Counter prev;
+		private Counter next;
+	}
+	
+	/**
+	 * all counters with same count
+	 * @author pranab
+	 *
+	 */
+	private static class Bucket {
+		private long count;
+		private Counter head;
+		private Bucket prev;
+		private Bucket next;
+		
+		private Bucket(long count) {
+			this.count = count;
+		}
+	}
+	
+	/**
+	 * @param maxCounters
+	 */
+	public SpaceSavingFrequent(int maxCounters) {
+		this(maxCounters, maxCounters);
+	}
+	
+	/**
+	 * @param maxCounters
+	 * @param mostFrequentCount
+	 */
+	public SpaceSavingFrequent(int maxCounters, int mostFrequentCount) {
+		if (maxCounters < 1) {
+			throw new IllegalArgumentException("number of counters should be positive");
+		}
+		this.maxCounters = maxCounters;
+		this.mostFrequentCount = mostFrequentCount > 0 ? mostFrequentCount : maxCounters;
+		counters = new HashMap<Object, Counter>(2 * maxCounters);
+	}
+	
+	/**
+	 * Constructor based on error bound
+	 * @param errorLimit
+	 * @param mostFrequentCount
+	 */
+	public SpaceSavingFrequent(double errorLimit, int mostFrequentCount) {
+		this((int)Math.ceil(1.0 / errorLimit), mostFrequentCount);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#setExpirer(org.hoidla.util.Expirer)
+	 */
+	@Override
+	public void setExpirer(Expirer expirer) {
+		throw new UnsupportedOperationException("expiry not supported for space saving");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#add(java.lang.Object)
+	 */
+	@Override
+	public void add(Object value) {
+		++count;
+		Counter counter = counters.get(value);
+		if (null == counter) {
+			if (counters.size() < maxCounters) {
+				counter = new Counter();
+				counter.item = value;
+				counters.put(value, counter);
+				attach(counter, 1);
+				return;
+			} 
+			
+			//replace an item with minimum count
+			counter = minBucket.head;
+			counters.remove(counter.item);
+			counter.item = value;
+			counter.error = minBucket.count;
+			counters.put(value, counter);
+		}
+		increment(counter);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#add(java.lang.Object, long)
+	 */
+	@Override
+	public void add(Object value, long timestamp) {
+		throw new UnsupportedOperationException("expiry not supported for space saving");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#get()
+	 */
+	@Override
+	public List<BoundedSortedObjects.SortableObject> get() {
+		List<BoundedSortedObjects.SortableObject> topItems = 
+			new ArrayList<BoundedSortedObjects.SortableObject>(mostFrequentCount);
+		for (Bucket bucket = maxBucket; null != bucket && topItems.size() < mostFrequentCount; 
+				bucket = bucket.prev) {
+			for (Counter counter = bucket.head; null != counter && topItems.size() < mostFrequentCount; 
+					counter = counter.next) {
+				topItems.add(new BoundedSortedObjects.SortableObject((int)bucket.count, counter.item));
+			}
+		}
+		return topItems;
+	}
+
+	/**
+	 * Items guaranteed to have frequency above the given fraction of stream size
+	 * @param support
+	 * @return
+	 */
+	public List<BoundedSortedObjects.SortableObject> getGuaranteed(double support) {
+		List<BoundedSortedObjects.SortableObject> topItems = new ArrayList<BoundedSortedObjects.SortableObject>();
+		double threshold = support * count;
+		for (Bucket bucket = maxBucket; null != bucket && bucket.count > threshold; bucket = bucket.prev) {
+			for (Counter counter = bucket.head; null != counter; counter = counter.next) {
+				if (bucket.count - counter.error > threshold) {
+					topItems.add(new BoundedSortedObjects.SortableObject((int)bucket.count, counter.item));
+				}
+			}
+		}
+		return topItems;
+	}
+	
+	/**
+	 * @param value
+	 * @return estimated count, 0 if not tracked
+	 */
+	public long getCount(Object value) {
+		Counter counter = counters.get(value);
+		return null != counter ? counter.bucket.count : 0;
+	}
+	
+	/**
+	 * @param value
+	 * @return maximum over estimation of count, 0 if not tracked
+	 */
+	public long getError(Object value) {
+		Counter counter = counters.get(value);
+		return null != counter ? counter.error : 0;
+	}
+
+	/**
+	 * Merges as per Agarwal et al. An item missing on one side is taken to have the minimum
+	 * count of that side, and the top counters of the combined counts are retained
+	 * @param other
+	 */
+	@Override
+	public void merge(SpaceSavingFrequent other) {
+		long thisMin = counters.size() < maxCounters ? 0 : minBucket.count;
+		long thatMin = other.counters.size() < other.maxCounters ? 0 : other.minBucket.count;
+		
+		//combined count and error
+		Map<Object, long[]> merged = new HashMap<Object, long[]>(2 * (counters.size() + other.counters.size()));
+		for (Counter counter : counters.values()) {
+			Counter thatCounter = other.counters.get(counter.item);
+			long[] countWithError = new long[2];
+			countWithError[0] = counter.bucket.count + (null != thatCounter ? thatCounter.bucket.count : thatMin);
+			countWithError[1] = counter.error + (null != thatCounter ? thatCounter.error : thatMin);
+			merged.put(counter.item, countWithError);
+		}
+		for (Counter counter : other.counters.values()) {
+			if (!merged.containsKey(counter.item)) {
+				long[] countWithError = new long[2];
+				countWithError[0] = counter.bucket.count + thisMin;
+				countWithError[1] = counter.error + thisMin;
+				merged.put(counter.item, countWithError);
+			}
+		}
+		
+		//retain top counts, buckets being built in ascending count order
+		List<Map.Entry<Object, long[]>> entries = new ArrayList<Map.Entry<Object, long[]>>(merged.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Object, long[]>>() {
+			@Override
+			public int compare(Map.Entry<Object, long[]> first, Map.Entry<Object, long[]> second) {
+				return Long.compare(second.getValue()[0], first.getValue()[0]);
+			}
+		});
+		long totalCount = count + other.count;
+		initialize();
+		count = totalCount;
+		for (int i = Math.min(maxCounters, entries.size()) - 1; i >= 0; --i) {
+			Map.Entry<Object, long[]> entry = entries.get(i);
+			append(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		int size = BinaryFormat.HEADER_SIZE + 20;
+		for (Counter counter : counters.values()) {
+			size += BinaryFormat.getItemSize(counter.item) + 16;
+		}
+		return size;
+	}
+
+	/**
+	 * Counters are written in ascending count order
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.SPACE_SAVING);
+		buffer.putInt(maxCounters);
+		buffer.putLong(count);
+		buffer.putInt(counters.size());
+		buffer.putInt(mostFrequentCount);
+		for (Bucket bucket = minBucket; null != bucket; bucket = bucket.next) {
+			for (Counter counter = bucket.head; null != counter; counter = counter.next) {
+				BinaryFormat.writeItem(buffer, counter.item);
+				buffer.putLong(bucket.count);
+				buffer.putLong(counter.error);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.SPACE_SAVING);
+		maxCounters = buffer.getInt();
+		long totalCount = buffer.getLong();
+		int numCounters = buffer.getInt();
+		mostFrequentCount = buffer.getInt();
+		initialize();
+		count = totalCount;
+		for (int i = 0; i < numCounters; ++i) {
+			Object item = BinaryFormat.readItem(buffer);
+			long itemCount = buffer.getLong();
+			append(item, itemCount, buffer.getLong());
+		}
+	}
+	
+	/**
+	 * adds a counter with count not less than any existing one
+	 * @param item
+	 * @param itemCount
+	 * @param error
+	 */
+	private void append(Object item, long itemCount, long error) {
+		Counter counter = new Counter();
+		counter.item = item;
+		counter.error = error;
+		counters.put(item, counter);
+		if (null != maxBucket && maxBucket.count == itemCount) {
+			push(maxBucket, counter);
+		} else {
+			insertAfter(maxBucket, null, itemCount, counter);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.stream.FrequentItems.FrequentItemsFinder#expire()
+	 */
+	@Override
+	public void expire() {
+		throw new UnsupportedOperationException("expiry not supported for space saving");
+	}
+	
+	/**
+	 * 
+	 */
+	public void initialize() {
+		counters.clear();
+		minBucket = maxBucket = null;
+		count = 0;
+	}
+	
+	/**
+	 * moves counter to the bucket with next higher count
+	 * @param counter
+	 */
+	private void increment(Counter counter) {
+		Bucket bucket = counter.bucket;
+		long newCount = bucket.count + 1;
+		Bucket next = bucket.next;
+		detach(counter);
+		if (null != next && next.count == newCount) {
+			push(next, counter);
+		} else {
+			//bucket may have been unlinked when it became empty
+			Bucket prev = null != bucket.head ? bucket : bucket.prev;
+			insertAfter(prev, next, newCount, counter);
+		}
+	}
+	
+	/**
+	 * attach a new counter to the bucket with given count, which is minimum
+	 * @param counter
+	 * @param count
+	 */
+	private void attach(Counter counter, long count) {
+		if (null != minBucket && minBucket.count == count) {
+			push(minBucket, counter);
+		} else {
+			insertAfter(null, minBucket, count, counter);
+		}
+	}
+	
+	/**
+	 * @param prev
+	 * @param next
+	 * @param count
+	 * @param counter
+	 */
+	private void insertAfter(Bucket prev, Bucket next, long count, Counter counter) {
+		Bucket bucket = new Bucket(count);
+		bucket.prev = prev;
+		bucket.next = next;
+		if (null != prev) {
+			prev.next = bucket;
+		} else {
+			minBucket = bucket;
+		}
+		if (null != next) {
+			next.prev = bucket;
+		} else {
+			maxBucket = bucket;
+		}
+		push(bucket, counter);
+	}
+	
+	/**
+	 * @param bucket
+	 * @param counter
+	 */
+	private void push(Bucket bucket, Counter counter) {
+		counter.bucket = bucket;
+		counter.prev = null;
+		counter.next = bucket.head;
+		if (null != bucket.head) {
+			bucket.head.prev = counter;
+		}
+		bucket.head = counter;
+	}
+	
+	/**
+	 * removes counter from its bucket, unlinking the bucket if it becomes empty
+	 * @param counter
+	 */
+	private void detach(Counter counter) {
+		Bucket bucket = counter.bucket;
+		if (null != counter.prev) {
+			counter.prev.next = counter.next;
+		} else {
+			bucket.head = counter.next;
+		}
+		if (null != counter.next) {
+			counter.next.prev = counter.prev;
+		}
+		counter.prev = counter.next = null;
+		
+		if (null == bucket.head) {
+			if (null != bucket.prev) {
+				bucket.prev.next = bucket.next;
+			} else {
+				minBucket = bucket.next;
+			}
+			if (null != bucket.next) {
+				bucket.next.prev = bucket.prev;
+			} else {
+				maxBucket = bucket.prev;
+			}
+		}
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getMaxCounters() {
+		return maxCounters;
+	}
+}
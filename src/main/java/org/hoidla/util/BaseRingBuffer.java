@@ -0,0 +1,190 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+
+/**
+ * Circular buffer based list. Appending, removing from the front and random access are 
+ * all constant time. Storage is allocated once for the capacity and only grows if the 
+ * caller adds more than capacity items.
+ * @author pranab
+ *
+ * @param <T>
+ */
+public abstract class BaseRingBuffer<T> extends AbstractList<T> implements Serializable {
+	protected int capacity;
+	protected int head;
+	protected int size;
+	
+	/**
+	 * @param capacity
+	 */
+	public BaseRingBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("ring buffer capacity should be positive");
+		}
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * physical slot for a logical index
+	 * @param index
+	 * @return
+	 */
+	protected int slot(int index) {
+		int slot = head + index;
+		return slot >= capacity ? slot - capacity : slot;
+	}
+	
+	/**
+	 * reserves slot at the end
+	 * @return
+	 */
+	protected int nextSlot() {
+		if (size == capacity) {
+			grow();
+		}
+		int slot = slot(size);
+		++size;
+		++modCount;
+		return slot;
+	}
+	
+	/**
+	 * @param index
+	 */
+	protected void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " size " + size);
+		}
+	}
+
+	/**
+	 * Removes oldest items
+	 * @param num
+	 */
+	public void removeFirst(int num) {
+		if (num > size) {
+			num = size;
+		}
+		for (int i = 0; i < num; ++i) {
+			clearSlot(slot(i));
+		}
+		head = slot(num);
+		size -= num;
+		++modCount;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#remove(int)
+	 */
+	@Override
+	public T remove(int index) {
+		T removed = get(index);
+		if (index == 0) {
+			removeFirst(1);
+		} else {
+			for (int i = index; i < size - 1; ++i) {
+				moveSlot(slot(i + 1), slot(i));
+			}
+			clearSlot(slot(size - 1));
+			--size;
+			++modCount;
+		}
+		return removed;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#add(int, java.lang.Object)
+	 */
+	@Override
+	public void add(int index, T obj) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("index " + index + " size " + size);
+		}
+		nextSlot();
+		for (int i = size - 1; i > index; --i) {
+			moveSlot(slot(i - 1), slot(i));
+		}
+		set(index, obj);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#clear()
+	 */
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; ++i) {
+			clearSlot(slot(i));
+		}
+		head = 0;
+		size = 0;
+		++modCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return
+	 */
+	public boolean isFull() {
+		return size == capacity;
+	}
+
+	/**
+	 * doubles capacity, retaining order
+	 */
+	private void grow() {
+		int newCapacity = capacity * 2;
+		resize(newCapacity);
+		head = 0;
+		capacity = newCapacity;
+	}
+	
+	/**
+	 * @param from
+	 * @param to
+	 */
+	protected abstract void moveSlot(int from, int to);
+	
+	/**
+	 * @param slot
+	 */
+	protected abstract void clearSlot(int slot);
+	
+	/**
+	 * reallocates storage with items in logical order starting at 0
+	 * @param newCapacity
+	 */
+	protected abstract void resize(int newCapacity);
+}
@@ -0,0 +1,237 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Header, item and bulk array encoding for the binary form of sketches and windows. Every
+ * object starts with magic, type and format version. Primitive arrays are copied in bulk
+ * through buffer views
+ * @author pranab
+ *
+ */
+public class BinaryFormat {
+	public static final int MAGIC = 0x48444c41;
+	public static final byte VERSION = 1;
+	public static final int HEADER_SIZE = 6;
+	
+	//object types
+	public static final byte COUNT_MIN_SKETCH = 1;
+	public static final byte COUNT_SKETCH = 2;
+	public static final byte FLAT_COUNT_MIN_SKETCH = 3;
+	public static final byte FLAT_COUNT_SKETCH = 4;
+	public static final byte EPOCH_COUNT_MIN_SKETCH = 5;
+	public static final byte BLOOM_FILTER = 6;
+	public static final byte HYPER_LOG_LOG = 7;
+	public static final byte HYPER_LOG_LOG_PLUS = 8;
+	public static final byte FLAJOLET_MARTIN = 9;
+	public static final byte MISRA_GRIES = 10;
+	public static final byte LAZY_MISRA_GRIES = 11;
+	public static final byte SPACE_SAVING = 12;
+	public static final byte LOSSY_COUNTING = 13;
+	public static final byte FLOAT_STATS_WINDOW = 14;
+	public static final byte INT_STATS_WINDOW = 15;
+	public static final byte COUNT_MIN_SKETCHES_FREQUENT = 16;
+	public static final byte BLOCKED_BLOOM_FILTER = 17;
+	public static final byte COUNTING_BLOOM_FILTER = 18;
+	public static final byte SCALABLE_BLOOM_FILTER = 19;
+	public static final byte CUCKOO_FILTER = 20;
+	
+	//item types
+	private static final byte ITEM_STRING = 1;
+	private static final byte ITEM_INT = 2;
+	private static final byte ITEM_LONG = 3;
+	private static final byte ITEM_DOUBLE = 4;
+	private static final byte ITEM_BYTES = 5;
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	/**
+	 * @param buffer
+	 * @param type
+	 */
+	public static void writeHeader(ByteBuffer buffer, byte type) {
+		buffer.putInt(MAGIC);
+		buffer.put(type);
+		buffer.put(VERSION);
+	}
+	
+	/**
+	 * @param buffer
+	 * @param type expected type
+	 * @return version
+	 */
+	public static int readHeader(ByteBuffer buffer, byte type) {
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("not a serialized sketch or window");
+		}
+		byte foundType = buffer.get();
+		if (foundType != type) {
+			throw new IllegalArgumentException("expected type " + type + " found " + foundType);
+		}
+		byte version = buffer.get();
+		if (version > VERSION) {
+			throw new IllegalArgumentException("unsupported format version " + version);
+		}
+		return version;
+	}
+	
+	/**
+	 * @param item
+	 * @return
+	 */
+	public static int getItemSize(Object item) {
+		int size = 1;
+		if (item instanceof String) {
+			size += 4 + ((String)item).getBytes(UTF8).length;
+		} else if (item instanceof Integer) {
+			size += 4;
+		} else if (item instanceof Long || item instanceof Double) {
+			size += 8;
+		} else if (item instanceof byte[]) {
+			size += 4 + ((byte[])item).length;
+		} else {
+			throw new IllegalArgumentException("unsupported item type " + item.getClass().getName());
+		}
+		return size;
+	}
+	
+	/**
+	 * @param buffer
+	 * @param item
+	 */
+	public static void writeItem(ByteBuffer buffer, Object item) {
+		if (item instanceof String) {
+			byte[] bytes = ((String)item).getBytes(UTF8);
+			buffer.put(ITEM_STRING);
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		} else if (item instanceof Integer) {
+			buffer.put(ITEM_INT);
+			buffer.putInt((Integer)item);
+		} else if (item instanceof Long) {
+			buffer.put(ITEM_LONG);
+			buffer.putLong((Long)item);
+		} else if (item instanceof Double) {
+			buffer.put(ITEM_DOUBLE);
+			buffer.putDouble((Double)item);
+		} else if (item instanceof byte[]) {
+			byte[] bytes = (byte[])item;
+			buffer.put(ITEM_BYTES);
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		} else {
+			throw new IllegalArgumentException("unsupported item type " + item.getClass().getName());
+		}
+	}
+	
+	/**
+	 * @param buffer
+	 * @return
+	 */
+	public static Object readItem(ByteBuffer buffer) {
+		Object item = null;
+		byte itemType = buffer.get();
+		if (itemType == ITEM_STRING) {
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			item = new String(bytes, UTF8);
+		} else if (itemType == ITEM_INT) {
+			item = buffer.getInt();
+		} else if (itemType == ITEM_LONG) {
+			item = buffer.getLong();
+		} else if (itemType == ITEM_DOUBLE) {
+			item = buffer.getDouble();
+		} else if (itemType == ITEM_BYTES) {
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			item = bytes;
+		} else {
+			throw new IllegalArgumentException("invalid item type " + itemType);
+		}
+		return item;
+	}
+	
+	/**
+	 * @param buffer
+	 * @param values
+	 * @param offset
+	 * @param length
+	 */
+	public static void writeInts(ByteBuffer buffer, int[] values, int offset, int length) {
+		buffer.asIntBuffer().put(values, offset, length);
+		buffer.position(buffer.position() + 4 * length);
+	}
+	
+	/**
+	 * @param buffer
+	 * @param values
+	 * @param offset
+	 * @param length
+	 */
+	public static void readInts(ByteBuffer buffer, int[] values, int offset, int length) {
+		buffer.asIntBuffer().get(values, offset, length);
+		buffer.position(buffer.position() + 4 * length);
+	}
+
+	/**
+	 * @param buffer
+	 * @param values
+	 * @param offset
+	 * @param length
+	 */
+	public static void writeLongs(ByteBuffer buffer, long[] values, int offset, int length) {
+		buffer.asLongBuffer().put(values, offset, length);
+		buffer.position(buffer.position() + 8 * length);
+	}
+	
+	/**
+	 * @param buffer
+	 * @param values
+	 * @param offset
+	 * @param length
+	 */
+	public static void readLongs(ByteBuffer buffer, long[] values, int offset, int length) {
+		buffer.asLongBuffer().get(values, offset, length);
+		buffer.position(buffer.position() + 8 * length);
+	}
+	
+	/**
+	 * @param buffer
+	 * @param values
+	 * @param offset
+	 * @param length
+	 */
+	public static void writeDoubles(ByteBuffer buffer, double[] values, int offset, int length) {
+		buffer.asDoubleBuffer().put(values, offset, length);
+		buffer.position(buffer.position() + 8 * length);
+	}
+	
+	/**
+	 * @param buffer
+	 * @param values
+	 * @param offset
+	 * @param length
+	 */
+	public static void readDoubles(ByteBuffer buffer, double[] values, int offset, int length) {
+		buffer.asDoubleBuffer().get(values, offset, length);
+		buffer.position(buffer.position() + 8 * length);
+	}
+}
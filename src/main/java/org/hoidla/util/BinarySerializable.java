@@ -0,0 +1,46 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * State that can be written to and read back from a compact versioned binary form, for 
+ * checkpointing without java serialization
+ * @author pranab
+ *
+ */
+public interface BinarySerializable {
+	
+	/**
+	 * @return number of bytes writeTo will write
+	 */
+	public int getSerializedSize();
+	
+	/**
+	 * writes state at current position of the buffer
+	 * @param buffer
+	 */
+	public void writeTo(ByteBuffer buffer);
+	
+	/**
+	 * replaces state with what was written at current position of the buffer
+	 * @param buffer
+	 */
+	public void readFrom(ByteBuffer buffer);
+}
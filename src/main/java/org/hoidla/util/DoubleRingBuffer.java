@@ -0,0 +1,111 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+/**
+ * Circular buffer of primitive double with no per item allocation
+ * @author pranab
+ *
+ */
+public class DoubleRingBuffer extends BaseRingBuffer<Double> {
+	private double[] data;
+	
+	/**
+	 * @param capacity
+	 */
+	public DoubleRingBuffer(int capacity) {
+		super(capacity);
+		data = new double[capacity];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#add(java.lang.Object)
+	 */
+	@Override
+	public boolean add(Double value) {
+		return add(value.doubleValue());
+	}
+	
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean add(double value) {
+		int slot = nextSlot();
+		data[slot] = value;
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public Double get(int index) {
+		return getDouble(index);
+	}
+	
+	/**
+	 * @param index
+	 * @return
+	 */
+	public double getDouble(int index) {
+		checkIndex(index);
+		return data[slot(index)];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	@Override
+	public Double set(int index, Double value) {
+		checkIndex(index);
+		int slot = slot(index);
+		double old = data[slot];
+		data[slot] = value;
+		return old;
+	}
+	
+	/**
+	 * @return values in order
+	 */
+	public double[] toDoubleArray() {
+		double[] values = new double[size];
+		for (int i = 0; i < size; ++i) {
+			values[i] = data[slot(i)];
+		}
+		return values;
+	}
+
+	@Override
+	protected void moveSlot(int from, int to) {
+		data[to] = data[from];
+	}
+
+	@Override
+	protected void clearSlot(int slot) {
+	}
+
+	@Override
+	protected void resize(int newCapacity) {
+		double[] newData = new double[newCapacity];
+		for (int i = 0; i < size; ++i) {
+			newData[i] = data[slot(i)];
+		}
+		data = newData;
+	}
+}
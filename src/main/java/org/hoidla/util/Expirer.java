@@ -30,6 +30,8 @@ import java.util.ListIterator;
 public class Expirer {
 	private long window;
 	private int maxEpochs;
+	private int numEpochs = DEFAULT_NUM_EPOCHS;
+	public static final int DEFAULT_NUM_EPOCHS = 10;
 	
 	protected enum ExpiryPolicy {
 		Sequence,
@@ -56,10 +58,44 @@ public class Expirer {
 		expiryPolicy = ExpiryPolicy.Sequence;
 	}
 	
+	/**
+	 * @param window
+	 * @param numEpochs number of epochs the window is split into for epoch ring expiry
+	 */
+	public Expirer(long window, int numEpochs) {
+		this(window);
+		if (numEpochs < 1) {
+			throw new IllegalArgumentException("number of epochs should be positive");
+		}
+		this.numEpochs = numEpochs;
+	}
+	
 	public boolean isSequenceExpirer() {
 		return expiryPolicy == ExpiryPolicy.Sequence;
 	}
 	
+	/**
+	 * @return number of epochs retained
+	 */
+	public int getNumEpochs() {
+		return expiryPolicy == ExpiryPolicy.Sequence ? numEpochs : maxEpochs;
+	}
+	
+	/**
+	 * @return sequence span of one epoch, only for sequence expirer
+	 */
+	public long getEpochSpan() {
+		long span = window / numEpochs;
+		return span > 0 ? span : 1;
+	}
+	
+	/**
+	 * @return
+	 */
+	public long getWindow() {
+		return window;
+	}
+	
 	/**
 	 * @param values
 	 * @param current
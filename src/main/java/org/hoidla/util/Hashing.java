@@ -18,6 +18,7 @@
 package org.hoidla.util;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Random;
 
 /**
  * Different hashing algorithms
@@ -112,7 +113,156 @@ public class Hashing {
 	}
 	
 	/**
-	 * Family of xor based hash function with bounded hash values
+	 * Pluggable 64 bit hash for item types
+	 * @author pranab
+	 *
+	 */
+	public static interface Hasher {
+		
+		/**
+		 * @param data
+		 * @param seed
+		 * @return
+		 */
+		public long hash(Object data, long seed);
+	}
+	
+	/**
+	 * 64 bit Murmur hash (MurmurHash64A). Strings are hashed over chars without encoding
+	 * @author pranab
+	 *
+	 */
+	public static class MurmurHash64 implements Hasher {
+		private static final long M = 0xc6a4a7935bd1e995L;
+		private static final int R = 47;
+		
+		/* (non-Javadoc)
+		 * @see org.hoidla.util.Hashing.Hasher#hash(java.lang.Object, long)
+		 */
+		@Override
+		public long hash(Object data, long seed) {
+			long hash = 0;
+			if (data instanceof CharSequence) {
+				hash = hash((CharSequence)data, seed);
+			} else if (data instanceof Integer) {
+				hash = hash(((Integer)data).longValue(), seed);
+			} else if (data instanceof Long) {
+				hash = hash(((Long)data).longValue(), seed);
+			} else if (data instanceof byte[]) {
+				hash = hash((byte[])data, seed);
+			} else {
+				hash = hash((long)data.hashCode(), seed);
+			}
+			return hash;
+		}
+		
+		/**
+		 * @param data
+		 * @param seed
+		 * @return
+		 */
+		public static long hash(CharSequence data, long seed) {
+			int len = data.length();
+			long h = seed ^ (len * 2L * M);
+			int i = 0;
+			for (; i + 4 <= len; i += 4) {
+				long k = data.charAt(i) | ((long)data.charAt(i + 1) << 16) | 
+					((long)data.charAt(i + 2) << 32) | ((long)data.charAt(i + 3) << 48);
+				h = mixBlock(h, k);
+			}
+			if (i < len) {
+				long k = 0;
+				for (int shift = 0; i < len; ++i, shift += 16) {
+					k |= (long)data.charAt(i) << shift;
+				}
+				h ^= k;
+				h *= M;
+			}
+			return finalize(h);
+		}
+		
+		/**
+		 * @param data
+		 * @param seed
+		 * @return
+		 */
+		public static long hash(byte[] data, long seed) {
+			int len = data.length;
+			long h = seed ^ (len * M);
+			int i = 0;
+			for (; i + 8 <= len; i += 8) {
+				long k = 0;
+				for (int j = 7; j >= 0; --j) {
+					k = (k << 8) | (data[i + j] & 0xff);
+				}
+				h = mixBlock(h, k);
+			}
+			if (i < len) {
+				long k = 0;
+				for (int shift = 0; i < len; ++i, shift += 8) {
+					k |= (long)(data[i] & 0xff) << shift;
+				}
+				h ^= k;
+				h *= M;
+			}
+			return finalize(h);
+		}
+		
+		/**
+		 * @param data
+		 * @param seed
+		 * @return
+		 */
+		public static long hash(long data, long seed) {
+			long h = seed ^ (8 * M);
+			h = mixBlock(h, data);
+			return finalize(h);
+		}
+		
+		/**
+		 * @param h
+		 * @param k
+		 * @return
+		 */
+		private static long mixBlock(long h, long k) {
+			k *= M;
+			k ^= k >>> R;
+			k *= M;
+			h ^= k;
+			h *= M;
+			return h;
+		}
+		
+		/**
+		 * @param h
+		 * @return
+		 */
+		private static long finalize(long h) {
+			h ^= h >>> R;
+			h *= M;
+			h ^= h >>> R;
+			return h;
+		}
+	}
+	
+	/**
+	 * Murmur3 64 bit finalizer, a bijective bit mixer
+	 * @param h
+	 * @return
+	 */
+	public static long fmix64(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * Family of xor based hash function with bounded hash values. Alternatively one 64 bit 
+	 * hash can be computed per item with hash64() and all hash functions derived from it by 
+	 * double hashing (Kirsch and Mitzenmacher) with index()
 	 * @author pranab
 	 *
 	 */
@@ -122,6 +272,9 @@ public class Hashing {
 		private int[] a;
 		private int[] b;
 		private final  int prime = 1000099;
+		private long seed;
+		private Hasher hasher = new MurmurHash64();
+		public static final long DEFAULT_SEED = 0x2545f4914f6cdd1dL;
 
 		/**
 		 * @param numHash
@@ -139,11 +292,82 @@ public class Hashing {
 			this.numHash = numHash;
 			a = new int[numHash];
 			b = new int[numHash];
-			
+			withSeed(DEFAULT_SEED);
+		}
+		
+		/**
+		 * Coefficients and 64 bit hash seed are derived deterministically from the seed, so 
+		 * families with same seed and size hash identically, which sketch merging requires
+		 * @param seed
+		 * @return
+		 */
+		public MultiHashFamily withSeed(long seed) {
+			this.seed = seed;
+			Random random = new Random(seed);
 			for (int i = 0; i < numHash; ++i) {
-				a[i] = (int)(Math.random() * prime);
-				b[i] = (int)(Math.random() * prime);
+				a[i] = random.nextInt(prime);
+				b[i] = random.nextInt(prime);
+			}
+			return this;
+		}
+		
+		/**
+		 * @return
+		 */
+		public long getSeed() {
+			return seed;
+		}
+		
+		/**
+		 * @param other
+		 * @return true if both families produce same hash values
+		 */
+		public boolean isCompatible(MultiHashFamily other) {
+			return numHash == other.numHash && hashValueMax == other.hashValueMax && seed == other.seed &&
+				hasher.getClass() == other.hasher.getClass();
+		}
+		
+		/**
+		 * @param hasher hash for item types not handled by default
+		 * @return
+		 */
+		public MultiHashFamily withHasher(Hasher hasher) {
+			this.hasher = hasher;
+			return this;
+		}
+		
+		/**
+		 * One 64 bit hash per item, from which all hash functions are derived
+		 * @param data
+		 * @return
+		 */
+		public long hash64(Object data) {
+			return hasher.hash(data, seed);
+		}
+		
+		/**
+		 * Bounded hash value by double hashing from 64 bit hash
+		 * @param hash64
+		 * @param hashFun
+		 * @return
+		 */
+		public int index(long hash64, int hashFun) {
+			int combined = (int)hash64 + (hashFun + 1) * (int)(hash64 >>> 32);
+			if (combined < 0) {
+				combined = ~combined;
 			}
+			return hashValueMax > 0 ? combined % hashValueMax : combined;
+		}
+		
+		/**
+		 * Independent 64 bits per hash function from 64 bit hash, for uses needing more
+		 * than an index, e.g. bit patterns
+		 * @param hash64
+		 * @param hashFun
+		 * @return
+		 */
+		public long mix(long hash64, int hashFun) {
+			return fmix64(hash64 + (hashFun + 1) * 0x9e3779b97f4a7c15L);
 		}
 
 		/**
@@ -163,6 +387,8 @@ public class Hashing {
 			} else if (data instanceof Integer) {
 				int intData = (Integer)data;
 				hashCode = hash(intData, hashFun);
+			} else {
+				hashCode = index(hash64(data), hashFun);
 			}
 			
 			return hashCode;
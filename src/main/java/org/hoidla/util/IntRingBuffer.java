@@ -0,0 +1,111 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+/**
+ * Circular buffer of primitive int with no per item allocation
+ * @author pranab
+ *
+ */
+public class IntRingBuffer extends BaseRingBuffer<Integer> {
+	private int[] data;
+	
+	/**
+	 * @param capacity
+	 */
+	public IntRingBuffer(int capacity) {
+		super(capacity);
+		data = new int[capacity];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#add(java.lang.Object)
+	 */
+	@Override
+	public boolean add(Integer value) {
+		return add(value.intValue());
+	}
+	
+	/**
+	 * @param value
+	 * @return
+	 */
+	public boolean add(int value) {
+		int slot = nextSlot();
+		data[slot] = value;
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public Integer get(int index) {
+		return getInt(index);
+	}
+	
+	/**
+	 * @param index
+	 * @return
+	 */
+	public int getInt(int index) {
+		checkIndex(index);
+		return data[slot(index)];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	@Override
+	public Integer set(int index, Integer value) {
+		checkIndex(index);
+		int slot = slot(index);
+		int old = data[slot];
+		data[slot] = value;
+		return old;
+	}
+	
+	/**
+	 * @return values in order
+	 */
+	public int[] toIntArray() {
+		int[] values = new int[size];
+		for (int i = 0; i < size; ++i) {
+			values[i] = data[slot(i)];
+		}
+		return values;
+	}
+
+	@Override
+	protected void moveSlot(int from, int to) {
+		data[to] = data[from];
+	}
+
+	@Override
+	protected void clearSlot(int slot) {
+	}
+
+	@Override
+	protected void resize(int newCapacity) {
+		int[] newData = new int[newCapacity];
+		for (int i = 0; i < size; ++i) {
+			newData[i] = data[slot(i)];
+		}
+		data = newData;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Off heap storage for large sketches, either a direct buffer or a memory mapped file. A mapped
+ * file survives process restart and can be mapped read only by other processes on the same host
+ * @author pranab
+ *
+ */
+public class MappedStorage implements Closeable {
+	private ByteBuffer buffer;
+	private RandomAccessFile file;
+	private boolean existing;
+	
+	/**
+	 * Direct buffer, not persisted
+	 * @param size
+	 */
+	public MappedStorage(int size) {
+		buffer = ByteBuffer.allocateDirect(size);
+	}
+	
+	/**
+	 * Maps file read write, creating it if it does not exist. An existing file is remapped
+	 * with its content and has to be of same size
+	 * @param path
+	 * @param size
+	 * @throws IOException
+	 */
+	public MappedStorage(File path, int size) throws IOException {
+		existing = path.exists() && path.length() > 0;
+		if (existing && path.length() != size) {
+			throw new IllegalArgumentException("existing file " + path + " has size " + path.length() + 
+					" expected " + size);
+		}
+		file = new RandomAccessFile(path, "rw");
+		buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+	
+	/**
+	 * Maps an existing file
+	 * @param path
+	 * @param readOnly
+	 * @throws IOException
+	 */
+	public MappedStorage(File path, boolean readOnly) throws IOException {
+		if (!path.exists()) {
+			throw new IllegalArgumentException("file " + path + " does not exist");
+		}
+		if (path.length() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("file " + path + " too large to map");
+		}
+		existing = true;
+		file = new RandomAccessFile(path, readOnly ? "r" : "rw");
+		buffer = file.getChannel().map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 
+				0, path.length());
+	}
+	
+	/**
+	 * @return storage buffer, absolute get and put should be used
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+	
+	/**
+	 * @return size in bytes
+	 */
+	public int getSize() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * @return true if content was mapped from an existing file
+	 */
+	public boolean isExisting() {
+		return existing;
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isReadOnly() {
+		return buffer.isReadOnly();
+	}
+	
+	/**
+	 * @return true if backed by file
+	 */
+	public boolean isMapped() {
+		return null != file;
+	}
+	
+	/**
+	 * zeroes the whole storage
+	 */
+	public void clear() {
+		int size = buffer.capacity();
+		int i = 0;
+		for ( ; i + 8 <= size; i += 8) {
+			buffer.putLong(i, 0);
+		}
+		for ( ; i < size; ++i) {
+			buffer.put(i, (byte)0);
+		}
+	}
+	
+	/**
+	 * Writes changes of a mapped file to disk
+	 */
+	public void force() {
+		if (null != file && !buffer.isReadOnly()) {
+			((MappedByteBuffer)buffer).force();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (null != file) {
+			force();
+			file.close();
+			file = null;
+		}
+	}
+}
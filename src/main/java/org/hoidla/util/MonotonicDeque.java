@@ -0,0 +1,107 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.io.Serializable;
+
+/**
+ * Min or max of a FIFO window of values in amortized constant time. Values are added 
+ * at the end and removed from the front in the same order.
+ * @author pranab
+ *
+ */
+public class MonotonicDeque implements Serializable {
+	private double[] values;
+	private long[] sequences;
+	private int capacity;
+	private int head;
+	private int size;
+	private long nextSequence;
+	private long oldestSequence;
+	private boolean forMax;
+	
+	/**
+	 * @param capacity max number of values in the window
+	 * @param forMax true for max and false for min
+	 */
+	public MonotonicDeque(int capacity, boolean forMax) {
+		this.capacity = capacity;
+		this.forMax = forMax;
+		values = new double[capacity];
+		sequences = new long[capacity];
+	}
+	
+	/**
+	 * adds newest value
+	 * @param value
+	 */
+	public void add(double value) {
+		//drop values that can never be the extremum again
+		while (size > 0) {
+			double last = values[slot(size - 1)];
+			if (forMax ? last <= value : last >= value) {
+				--size;
+			} else {
+				break;
+			}
+		}
+		int slot = slot(size);
+		values[slot] = value;
+		sequences[slot] = nextSequence++;
+		++size;
+	}
+	
+	/**
+	 * removes oldest value
+	 */
+	public void removeOldest() {
+		if (size > 0 && sequences[head] == oldestSequence) {
+			head = slot(1);
+			--size;
+		}
+		++oldestSequence;
+	}
+	
+	/**
+	 * @return min or max
+	 */
+	public double get() {
+		if (size == 0) {
+			throw new IllegalStateException("empty window");
+		}
+		return values[head];
+	}
+	
+	/**
+	 * 
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+		oldestSequence = nextSequence;
+	}
+	
+	/**
+	 * @param index
+	 * @return
+	 */
+	private int slot(int index) {
+		int slot = head + index;
+		return slot >= capacity ? slot - capacity : slot;
+	}
+}
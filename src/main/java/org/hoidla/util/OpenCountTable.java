@@ -0,0 +1,260 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing item count table with linear probing. Count and a per item delta are kept
+ * in primitive arrays. Removal is only in bulk through prune, which deletes in place
+ * @author pranab
+ *
+ */
+public class OpenCountTable {
+	private Object[] keys;
+	private long[] counts;
+	private long[] deltas;
+	private int size;
+	private int mask;
+	private int resizeThreshold;
+	private static final float LOAD_FACTOR = 0.6f;
+	
+	/**
+	 * @param expectedSize
+	 */
+	public OpenCountTable(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int)(expectedSize / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+	
+	/**
+	 * Increments count of an item, inserting with the given delta if absent
+	 * @param key
+	 * @param delta
+	 * @return new count
+	 */
+	public long increment(Object key, long delta) {
+		return increment(key, 1, delta);
+	}
+	
+	/**
+	 * Adds to count of an item, inserting with the given delta if absent, otherwise adding
+	 * to existing delta
+	 * @param key
+	 * @param amount
+	 * @param delta
+	 * @return new count
+	 */
+	public long add(Object key, long amount, long delta) {
+		int slot = find(key);
+		if (null != keys[slot]) {
+			deltas[slot] += delta;
+		}
+		return increment(key, amount, delta);
+	}
+	
+	/**
+	 * @param key
+	 * @param amount
+	 * @param delta
+	 * @return
+	 */
+	private long increment(Object key, long amount, long delta) {
+		int slot = find(key);
+		if (null == keys[slot]) {
+			if (size >= resizeThreshold) {
+				rehash(keys.length << 1);
+				slot = find(key);
+			}
+			keys[slot] = key;
+			counts[slot] = 0;
+			deltas[slot] = delta;
+			++size;
+		}
+		counts[slot] += amount;
+		return counts[slot];
+	}
+	
+	/**
+	 * @param key
+	 * @return count, 0 if absent
+	 */
+	public long getCount(Object key) {
+		int slot = find(key);
+		return null != keys[slot] ? counts[slot] : 0;
+	}
+	
+	/**
+	 * @param key
+	 * @return delta, 0 if absent
+	 */
+	public long getDelta(Object key) {
+		int slot = find(key);
+		return null != keys[slot] ? deltas[slot] : 0;
+	}
+	
+	/**
+	 * removes all items with count plus delta at or below threshold, in place by backward 
+	 * shift deletion without any allocation
+	 * @param threshold
+	 * @return number of items removed
+	 */
+	public int prune(long threshold) {
+		//scan starts at an empty slot, so that items are only shifted into the slot being 
+		//scanned from slots not scanned yet
+		int start = 0;
+		while (null != keys[start]) {
+			++start;
+		}
+		int removed = 0;
+		for (int n = 0; n < keys.length; ) {
+			int slot = (start + n) & mask;
+			if (null != keys[slot] && counts[slot] + deltas[slot] <= threshold) {
+				//slot is checked again since it may now hold a shifted item
+				removeAt(slot);
+				++removed;
+			} else {
+				++n;
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * @return slot capacity, for iterating with getKeyAt
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+	
+	/**
+	 * @param slot
+	 * @return key or null if slot empty
+	 */
+	public Object getKeyAt(int slot) {
+		return keys[slot];
+	}
+	
+	/**
+	 * @param slot
+	 * @return
+	 */
+	public long getCountAt(int slot) {
+		return counts[slot];
+	}
+	
+	/**
+	 * @param slot
+	 * @return
+	 */
+	public long getDeltaAt(int slot) {
+		return deltas[slot];
+	}
+	
+	/**
+	 * @param slot
+	 * @param delta
+	 */
+	public void addDeltaAt(int slot, long delta) {
+		deltas[slot] += delta;
+	}
+	
+	/**
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * 
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		size = 0;
+	}
+	
+	/**
+	 * @param key
+	 * @return slot holding the key or empty slot where it belongs
+	 */
+	private int find(Object key) {
+		int slot = home(key);
+		while (null != keys[slot] && !keys[slot].equals(key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	/**
+	 * @param key
+	 * @return slot where probing for the key starts
+	 */
+	private int home(Object key) {
+		return (int)Hashing.fmix64(key.hashCode()) & mask;
+	}
+	
+	/**
+	 * Empties a slot and moves back items later in the probe run that can not be found 
+	 * otherwise
+	 * @param slot
+	 */
+	private void removeAt(int slot) {
+		int hole = slot;
+		for (int next = (slot + 1) & mask; null != keys[next]; next = (next + 1) & mask) {
+			//move back if the hole is between home slot and current slot of the item
+			if (((next - home(keys[next])) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				counts[hole] = counts[next];
+				deltas[hole] = deltas[next];
+				hole = next;
+			}
+		}
+		keys[hole] = null;
+		--size;
+	}
+	
+	/**
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		counts = new long[capacity];
+		deltas = new long[capacity];
+		mask = capacity - 1;
+		resizeThreshold = (int)(capacity * LOAD_FACTOR);
+	}
+	
+	/**
+	 * @param capacity
+	 */
+	private void rehash(int capacity) {
+		Object[] oldKeys = keys;
+		long[] oldCounts = counts;
+		long[] oldDeltas = deltas;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; ++i) {
+			if (null != oldKeys[i]) {
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+				deltas[slot] = oldDeltas[i];
+			}
+		}
+	}
+}
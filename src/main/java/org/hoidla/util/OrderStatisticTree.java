@@ -0,0 +1,319 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Multi set of values supporting insert, delete and k th smallest in log time. Implemented
+ * as a size augmented treap over parallel arrays, so nodes are recycled and there is no 
+ * allocation per value once capacity is reached.
+ * @author pranab
+ *
+ */
+public class OrderStatisticTree implements Serializable {
+	private double[] keys;
+	private int[] left;
+	private int[] right;
+	private int[] size;
+	private int[] priority;
+	private int root;
+	private int freeList;
+	private int nextNode = 1;
+	private int seed = 0x2545f491;
+	private int splitLeft;
+	private int splitRight;
+	private boolean removed;
+	
+	//node 0 is the null node
+	private static final int NIL = 0;
+	
+	/**
+	 * @param capacity expected max number of values
+	 */
+	public OrderStatisticTree(int capacity) {
+		allocate(capacity + 1);
+	}
+	
+	/**
+	 * @param value
+	 */
+	public void add(double value) {
+		int node = newNode(value);
+		root = insert(root, node);
+	}
+	
+	/**
+	 * removes one occurrence of value
+	 * @param value
+	 * @return true if found
+	 */
+	public boolean remove(double value) {
+		removed = false;
+		root = remove(root, value);
+		return removed;
+	}
+	
+	/**
+	 * @param k zero based rank
+	 * @return k th smallest value
+	 */
+	public double kth(int k) {
+		if (k < 0 || k >= size[root]) {
+			throw new IndexOutOfBoundsException("rank " + k + " size " + size[root]);
+		}
+		int node = root;
+		while (true) {
+			int leftSize = size[left[node]];
+			if (k < leftSize) {
+				node = left[node];
+			} else if (k == leftSize) {
+				return keys[node];
+			} else {
+				k -= leftSize + 1;
+				node = right[node];
+			}
+		}
+	}
+	
+	/**
+	 * @param value
+	 * @return number of values strictly less than value
+	 */
+	public int countLess(double value) {
+		int count = 0;
+		int node = root;
+		while (node != NIL) {
+			if (keys[node] < value) {
+				count += size[left[node]] + 1;
+				node = right[node];
+			} else {
+				node = left[node];
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * @return
+	 */
+	public double getMedian() {
+		return getPercentile(50);
+	}
+	
+	/**
+	 * Percentile with the same interpolation as commons math default estimation
+	 * @param percentile between 0 and 100
+	 * @return
+	 */
+	public double getPercentile(double percentile) {
+		int count = size[root];
+		if (count == 0) {
+			throw new IllegalStateException("no values");
+		}
+		double pos = percentile * (count + 1) / 100;
+		double floorPos = Math.floor(pos);
+		int intPos = (int)floorPos;
+		if (pos < 1) {
+			return kth(0);
+		}
+		if (pos >= count) {
+			return kth(count - 1);
+		}
+		double lower = kth(intPos - 1);
+		double upper = kth(intPos);
+		return lower + (pos - floorPos) * (upper - lower);
+	}
+	
+	/**
+	 * @return
+	 */
+	public double getMin() {
+		return kth(0);
+	}
+	
+	/**
+	 * @return
+	 */
+	public double getMax() {
+		return kth(size[root] - 1);
+	}
+	
+	/**
+	 * @return
+	 */
+	public int size() {
+		return size[root];
+	}
+	
+	/**
+	 * 
+	 */
+	public void clear() {
+		root = NIL;
+		freeList = NIL;
+		nextNode = 1;
+	}
+	
+	/**
+	 * @param tree
+	 * @param node
+	 * @return
+	 */
+	private int insert(int tree, int node) {
+		if (tree == NIL) {
+			return node;
+		}
+		if (priority[node] > priority[tree]) {
+			split(tree, keys[node]);
+			left[node] = splitLeft;
+			right[node] = splitRight;
+			update(node);
+			return node;
+		}
+		if (keys[node] < keys[tree]) {
+			left[tree] = insert(left[tree], node);
+		} else {
+			right[tree] = insert(right[tree], node);
+		}
+		update(tree);
+		return tree;
+	}
+	
+	/**
+	 * @param tree
+	 * @param value
+	 * @return
+	 */
+	private int remove(int tree, double value) {
+		if (tree == NIL) {
+			return NIL;
+		}
+		if (keys[tree] == value) {
+			removed = true;
+			int merged = merge(left[tree], right[tree]);
+			freeNode(tree);
+			return merged;
+		}
+		if (value < keys[tree]) {
+			left[tree] = remove(left[tree], value);
+		} else {
+			right[tree] = remove(right[tree], value);
+		}
+		update(tree);
+		return tree;
+	}
+	
+	/**
+	 * splits into values less than key and the rest
+	 * @param tree
+	 * @param key
+	 */
+	private void split(int tree, double key) {
+		if (tree == NIL) {
+			splitLeft = splitRight = NIL;
+		} else if (keys[tree] < key) {
+			split(right[tree], key);
+			right[tree] = splitLeft;
+			update(tree);
+			splitLeft = tree;
+		} else {
+			split(left[tree], key);
+			left[tree] = splitRight;
+			update(tree);
+			splitRight = tree;
+		}
+	}
+	
+	/**
+	 * @param first all values less than the second
+	 * @param second
+	 * @return
+	 */
+	private int merge(int first, int second) {
+		if (first == NIL) {
+			return second;
+		}
+		if (second == NIL) {
+			return first;
+		}
+		if (priority[first] > priority[second]) {
+			right[first] = merge(right[first], second);
+			update(first);
+			return first;
+		} else {
+			left[second] = merge(first, left[second]);
+			update(second);
+			return second;
+		}
+	}
+	
+	/**
+	 * @param node
+	 */
+	private void update(int node) {
+		size[node] = 1 + size[left[node]] + size[right[node]];
+	}
+	
+	/**
+	 * @param value
+	 * @return
+	 */
+	private int newNode(double value) {
+		int node;
+		if (freeList != NIL) {
+			node = freeList;
+			freeList = left[node];
+		} else {
+			if (nextNode == keys.length) {
+				allocate(2 * keys.length);
+			}
+			node = nextNode++;
+		}
+		keys[node] = value;
+		left[node] = right[node] = NIL;
+		size[node] = 1;
+		
+		//xor shift
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		priority[node] = seed;
+		return node;
+	}
+	
+	/**
+	 * @param node
+	 */
+	private void freeNode(int node) {
+		left[node] = freeList;
+		freeList = node;
+	}
+	
+	/**
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		keys = null == keys ? new double[capacity] : Arrays.copyOf(keys, capacity);
+		left = null == left ? new int[capacity] : Arrays.copyOf(left, capacity);
+		right = null == right ? new int[capacity] : Arrays.copyOf(right, capacity);
+		size = null == size ? new int[capacity] : Arrays.copyOf(size, capacity);
+		priority = null == priority ? new int[capacity] : Arrays.copyOf(priority, capacity);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+/**
+ * Generic circular buffer
+ * @author pranab
+ *
+ * @param <T>
+ */
+public class RingBuffer<T> extends BaseRingBuffer<T> {
+	private Object[] data;
+	
+	/**
+	 * @param capacity
+	 */
+	public RingBuffer(int capacity) {
+		super(capacity);
+		data = new Object[capacity];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#add(java.lang.Object)
+	 */
+	@Override
+	public boolean add(T obj) {
+		int slot = nextSlot();
+		data[slot] = obj;
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public T get(int index) {
+		checkIndex(index);
+		return (T)data[slot(index)];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public T set(int index, T obj) {
+		checkIndex(index);
+		int slot = slot(index);
+		T old = (T)data[slot];
+		data[slot] = obj;
+		return old;
+	}
+
+	@Override
+	protected void moveSlot(int from, int to) {
+		data[to] = data[from];
+	}
+
+	@Override
+	protected void clearSlot(int slot) {
+		data[slot] = null;
+	}
+
+	@Override
+	protected void resize(int newCapacity) {
+		Object[] newData = new Object[newCapacity];
+		for (int i = 0; i < size; ++i) {
+			newData[i] = data[slot(i)];
+		}
+		data = newData;
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.io.Serializable;
+
+/**
+ * Median of a FIFO window of values with a max heap for the lower half and a min heap
+ * for the upper half. Heaps hold slot indexes and each slot knows its heap position, 
+ * so the oldest value can be removed in log time without any allocation.
+ * @author pranab
+ *
+ */
+public class SlidingMedian implements Serializable {
+	private double[] values;
+	private int[] heapPos;
+	private boolean[] inLower;
+	private int capacity;
+	private int head;
+	private int size;
+	private Heap lower;
+	private Heap upper;
+	
+	/**
+	 * @param capacity max number of values in the window
+	 */
+	public SlidingMedian(int capacity) {
+		this.capacity = capacity;
+		values = new double[capacity];
+		heapPos = new int[capacity];
+		inLower = new boolean[capacity];
+		lower = new Heap(capacity, true);
+		upper = new Heap(capacity, false);
+	}
+	
+	/**
+	 * adds newest value
+	 * @param value
+	 */
+	public void add(double value) {
+		if (size == capacity) {
+			throw new IllegalStateException("window capacity exceeded");
+		}
+		int slot = head + size;
+		if (slot >= capacity) {
+			slot -= capacity;
+		}
+		++size;
+		values[slot] = value;
+		if (lower.size == 0 || value <= values[lower.items[0]]) {
+			lower.push(slot);
+		} else {
+			upper.push(slot);
+		}
+		rebalance();
+	}
+	
+	/**
+	 * removes oldest value
+	 */
+	public void removeOldest() {
+		if (size == 0) {
+			throw new IllegalStateException("empty window");
+		}
+		int slot = head;
+		head = head + 1 == capacity ? 0 : head + 1;
+		--size;
+		if (inLower[slot]) {
+			lower.remove(heapPos[slot]);
+		} else {
+			upper.remove(heapPos[slot]);
+		}
+		rebalance();
+	}
+	
+	/**
+	 * @return
+	 */
+	public double getMedian() {
+		if (size == 0) {
+			throw new IllegalStateException("empty window");
+		}
+		return size % 2 == 1 ? values[lower.items[0]] : 
+			(values[lower.items[0]] + values[upper.items[0]]) / 2;
+	}
+	
+	/**
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * 
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+		lower.size = 0;
+		upper.size = 0;
+	}
+	
+	/**
+	 * lower heap holds the extra item when size is odd
+	 */
+	private void rebalance() {
+		if (lower.size > upper.size + 1) {
+			upper.push(lower.pop());
+		} else if (upper.size > lower.size) {
+			lower.push(upper.pop());
+		}
+	}
+	
+	/**
+	 * Binary heap of slot indexes
+	 * @author pranab
+	 *
+	 */
+	private class Heap implements Serializable {
+		private int[] items;
+		private int size;
+		private boolean maxHeap;
+		
+		public Heap(int capacity, boolean maxHeap) {
+			items = new int[capacity];
+			this.maxHeap = maxHeap;
+		}
+		
+		public void push(int slot) {
+			inLower[slot] = maxHeap;
+			place(slot, size++);
+			siftUp(size - 1);
+		}
+		
+		public int pop() {
+			int top = items[0];
+			remove(0);
+			return top;
+		}
+		
+		public void remove(int pos) {
+			--size;
+			if (pos < size) {
+				int moved = items[size];
+				place(moved, pos);
+				siftUp(pos);
+				siftDown(heapPos[moved]);
+			}
+		}
+		
+		private boolean above(int slotOne, int slotTwo) {
+			return maxHeap ? values[slotOne] > values[slotTwo] : values[slotOne] < values[slotTwo];
+		}
+		
+		private void place(int slot, int pos) {
+			items[pos] = slot;
+			heapPos[slot] = pos;
+		}
+		
+		private void siftUp(int pos) {
+			int slot = items[pos];
+			while (pos > 0) {
+				int parent = (pos - 1) >> 1;
+				if (!above(slot, items[parent])) {
+					break;
+				}
+				place(items[parent], pos);
+				pos = parent;
+			}
+			place(slot, pos);
+		}
+		
+		private void siftDown(int pos) {
+			int slot = items[pos];
+			int half = size >> 1;
+			while (pos < half) {
+				int child = 2 * pos + 1;
+				if (child + 1 < size && above(items[child + 1], items[child])) {
+					++child;
+				}
+				if (!above(items[child], slot)) {
+					break;
+				}
+				place(items[child], pos);
+				pos = child;
+			}
+			place(slot, pos);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+/**
+ * Circular buffer of time stamped items with time stamps and numeric values held in 
+ * primitive arrays. Items are expected in time stamp order, so the earliest and latest 
+ * time stamps are at the two ends and expiry only advances the head.
+ * @author pranab
+ *
+ */
+public class TimeStampedRingBuffer extends BaseRingBuffer<TimeStamped> {
+	private Object[] items;
+	private long[] timeStamps;
+	private double[] values;
+	
+	/**
+	 * @param capacity
+	 */
+	public TimeStampedRingBuffer(int capacity) {
+		super(capacity);
+		items = new Object[capacity];
+		timeStamps = new long[capacity];
+		values = new double[capacity];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#add(java.lang.Object)
+	 */
+	@Override
+	public boolean add(TimeStamped obj) {
+		int slot = nextSlot();
+		store(slot, obj);
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public TimeStamped get(int index) {
+		checkIndex(index);
+		return (TimeStamped)items[slot(index)];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	@Override
+	public TimeStamped set(int index, TimeStamped obj) {
+		checkIndex(index);
+		int slot = slot(index);
+		TimeStamped old = (TimeStamped)items[slot];
+		store(slot, obj);
+		return old;
+	}
+	
+	/**
+	 * @param index
+	 * @return
+	 */
+	public long getTimeStamp(int index) {
+		checkIndex(index);
+		return timeStamps[slot(index)];
+	}
+	
+	/**
+	 * @param index
+	 * @return numeric value of item, NaN if not numeric
+	 */
+	public double getValue(int index) {
+		checkIndex(index);
+		return values[slot(index)];
+	}
+	
+	/**
+	 * @return
+	 */
+	public long getEarliestTimeStamp() {
+		return getTimeStamp(0);
+	}
+	
+	/**
+	 * @return
+	 */
+	public long getLatestTimeStamp() {
+		return getTimeStamp(size - 1);
+	}
+	
+	/**
+	 * @param timeStamp
+	 * @return number of items with time stamp less than given time stamp
+	 */
+	public int countBefore(long timeStamp) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timeStamps[slot(mid)] < timeStamp) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * @param obj
+	 * @return numeric value if there is one, NaN otherwise
+	 */
+	public static double getNumericValue(TimeStamped obj) {
+		Object value = null;
+		if (obj instanceof TimeStampedData) {
+			value = ((TimeStampedData<?>)obj).getValue();
+		} else if (obj instanceof ExplicitlyTimeStamped) {
+			value = ((ExplicitlyTimeStamped)obj).getValue();
+		} else if (obj instanceof ImplicitlyTimeStamped) {
+			value = ((ImplicitlyTimeStamped)obj).getValue();
+		} else if (obj instanceof ExplicitlyTimetStampedValue) {
+			value = ((ExplicitlyTimetStampedValue<?>)obj).getValue();
+		} else if (obj instanceof ImplicitlyTimetStampedValue) {
+			value = ((ImplicitlyTimetStampedValue<?>)obj).getValue();
+		}
+		return value instanceof Number ? ((Number)value).doubleValue() : Double.NaN;
+	}
+	
+	/**
+	 * @param slot
+	 * @param obj
+	 */
+	private void store(int slot, TimeStamped obj) {
+		items[slot] = obj;
+		timeStamps[slot] = obj.getTimeStamp();
+		values[slot] = getNumericValue(obj);
+	}
+
+	@Override
+	protected void moveSlot(int from, int to) {
+		items[to] = items[from];
+		timeStamps[to] = timeStamps[from];
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void clearSlot(int slot) {
+		items[slot] = null;
+	}
+
+	@Override
+	protected void resize(int newCapacity) {
+		Object[] newItems = new Object[newCapacity];
+		long[] newTimeStamps = new long[newCapacity];
+		double[] newValues = new double[newCapacity];
+		for (int i = 0; i < size; ++i) {
+			int slot = slot(i);
+			newItems[i] = items[slot];
+			newTimeStamps[i] = timeStamps[slot];
+			newValues[i] = values[slot];
+		}
+		items = newItems;
+		timeStamps = newTimeStamps;
+		values = newValues;
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top K items by rank. Hash index over an indexed min heap, so that insert, rank update and
+ * eviction of the lowest ranked item are all O(log K)
+ * @author pranab
+ *
+ */
+public class TopItemsHeap {
+	private int maxSize;
+	private Object[] items;
+	private int[] ranks;
+	private int size;
+	private Map<Object, Integer> positions;
+	private long totalRank;
+	
+	/**
+	 * @param maxSize
+	 */
+	public TopItemsHeap(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("max size should be positive");
+		}
+		this.maxSize = maxSize;
+		items = new Object[maxSize];
+		ranks = new int[maxSize];
+		positions = new HashMap<Object, Integer>(2 * maxSize);
+	}
+	
+	/**
+	 * Inserts or updates an item. When full, a new item replaces the lowest ranked item only 
+	 * if it has higher rank
+	 * @param item
+	 * @param rank
+	 * @return true if the item is tracked after the call
+	 */
+	public boolean add(Object item, int rank) {
+		Integer pos = positions.get(item);
+		if (null != pos) {
+			changeRank(pos, rank);
+			return true;
+		}
+		
+		if (size < maxSize) {
+			items[size] = item;
+			ranks[size] = rank;
+			positions.put(item, size);
+			totalRank += rank;
+			siftUp(size++);
+			return true;
+		}
+		
+		if (rank > ranks[0]) {
+			positions.remove(items[0]);
+			totalRank += rank - ranks[0];
+			items[0] = item;
+			ranks[0] = rank;
+			positions.put(item, 0);
+			siftDown(0);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Updates rank only if the item is already tracked
+	 * @param item
+	 * @param rank
+	 * @return true if tracked
+	 */
+	public boolean update(Object item, int rank) {
+		Integer pos = positions.get(item);
+		if (null != pos) {
+			changeRank(pos, rank);
+		}
+		return null != pos;
+	}
+	
+	/**
+	 * @param item
+	 * @return true if removed
+	 */
+	public boolean remove(Object item) {
+		Integer pos = positions.remove(item);
+		if (null == pos) {
+			return false;
+		}
+		totalRank -= ranks[pos];
+		--size;
+		if (pos < size) {
+			items[pos] = items[size];
+			ranks[pos] = ranks[size];
+			positions.put(items[pos], pos);
+			siftUp(pos);
+			siftDown(positions.get(items[pos]));
+		}
+		items[size] = null;
+		return true;
+	}
+	
+	/**
+	 * @param item
+	 * @return
+	 */
+	public boolean contains(Object item) {
+		return positions.containsKey(item);
+	}
+	
+	/**
+	 * @param item
+	 * @return rank or 0 if not tracked
+	 */
+	public int getRank(Object item) {
+		Integer pos = positions.get(item);
+		return null != pos ? ranks[pos] : 0;
+	}
+	
+	/**
+	 * @return lowest rank among tracked items
+	 */
+	public int getMinRank() {
+		if (size == 0) {
+			throw new IllegalStateException("no items");
+		}
+		return ranks[0];
+	}
+	
+	/**
+	 * @return sum of ranks of tracked items
+	 */
+	public long getTotalRank() {
+		return totalRank;
+	}
+	
+	/**
+	 * @return items ordered by descending rank
+	 */
+	public List<BoundedSortedObjects.SortableObject> get() {
+		List<BoundedSortedObjects.SortableObject> sortedItems = 
+			new ArrayList<BoundedSortedObjects.SortableObject>(size);
+		for (int i = 0; i < size; ++i) {
+			sortedItems.add(new BoundedSortedObjects.SortableObject(ranks[i], items[i]));
+		}
+		Collections.sort(sortedItems);
+		return sortedItems;
+	}
+	
+	/**
+	 * @return tracked items in heap order
+	 */
+	public List<Object> getItems() {
+		List<Object> trackedItems = new ArrayList<Object>(size);
+		for (int i = 0; i < size; ++i) {
+			trackedItems.add(items[i]);
+		}
+		return trackedItems;
+	}
+	
+	/**
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * 
+	 */
+	public void clear() {
+		for (int i = 0; i < size; ++i) {
+			items[i] = null;
+		}
+		positions.clear();
+		size = 0;
+		totalRank = 0;
+	}
+	
+	/**
+	 * @param pos
+	 * @param rank
+	 */
+	private void changeRank(int pos, int rank) {
+		int oldRank = ranks[pos];
+		ranks[pos] = rank;
+		totalRank += rank - oldRank;
+		if (rank < oldRank) {
+			siftUp(pos);
+		} else if (rank > oldRank) {
+			siftDown(pos);
+		}
+	}
+	
+	/**
+	 * @param pos
+	 */
+	private void siftUp(int pos) {
+		Object item = items[pos];
+		int rank = ranks[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (ranks[parent] <= rank) {
+				break;
+			}
+			move(parent, pos);
+			pos = parent;
+		}
+		items[pos] = item;
+		ranks[pos] = rank;
+		positions.put(item, pos);
+	}
+	
+	/**
+	 * @param pos
+	 */
+	private void siftDown(int pos) {
+		Object item = items[pos];
+		int rank = ranks[pos];
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			if (child + 1 < size && ranks[child + 1] < ranks[child]) {
+				++child;
+			}
+			if (rank <= ranks[child]) {
+				break;
+			}
+			move(child, pos);
+			pos = child;
+		}
+		items[pos] = item;
+		ranks[pos] = rank;
+		positions.put(item, pos);
+	}
+	
+	/**
+	 * @param from
+	 * @param to
+	 */
+	private void move(int from, int to) {
+		items[to] = items[from];
+		ranks[to] = ranks[from];
+		positions.put(items[to], to);
+	}
+}
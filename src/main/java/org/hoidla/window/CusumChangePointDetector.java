@@ -0,0 +1,263 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.window;
+
+import java.util.Arrays;
+
+import org.hoidla.analyze.ChangePoint;
+import org.hoidla.analyze.SegmentCost;
+import org.hoidla.analyze.VarianceShiftCost;
+import org.hoidla.util.DoubleRingBuffer;
+
+/**
+ * Streaming change point detection. Two sided CUSUM of standardized values and their squares, 
+ * against the baseline of the current segment, raises an alarm for shift in mean or variance. 
+ * Change point is then located and confirmed by the best split of the window as per a segment 
+ * cost. Window holds samples since the last change point, bounded by the max size
+ * @author pranab
+ *
+ */
+public class CusumChangePointDetector extends SizeBoundWindow<Double> {
+	private int minSegmentLength;
+	private double drift = 0.5;
+	private double threshold = 5.0;
+	private SegmentCost cost = new VarianceShiftCost();
+	private double penalty = -1;
+	private int numBaseline;
+	private double mean;
+	private double sumSqDiff;
+	private double stdDev;
+	private double[] sums = new double[NUM_SUMS];
+	private long[] onsets = new long[NUM_SUMS];
+	private long alarmOnset = -1;
+	private int numDeferred;
+	private ChangePoint newChangePoint;
+	
+	private static final int NUM_SUMS = 4;
+	private static final double SQRT_TWO = Math.sqrt(2);
+	private static final double MIN_STD_DEV_FRACTION = 1.0e-6;
+	private static final int MIN_TAIL_LENGTH = 2;
+	
+	/**
+	 * @param maxSize
+	 * @param minSegmentLength samples for baseline of a segment and min samples on either 
+	 * side of a change point
+	 */
+	public CusumChangePointDetector(int maxSize, int minSegmentLength) {
+		super(maxSize, new DoubleRingBuffer(maxSize + 1));
+		if (minSegmentLength < 2 || 2 * minSegmentLength > maxSize) {
+			throw new IllegalArgumentException("min segment length should be at least 2 and at most half the window size");
+		}
+		this.minSegmentLength = minSegmentLength;
+	}
+	
+	/**
+	 * @param drift allowance in std dev units, typically half the shift to be detected
+	 * @return
+	 */
+	public CusumChangePointDetector withDrift(double drift) {
+		this.drift = drift;
+		return this;
+	}
+	
+	/**
+	 * @param threshold alarm threshold for CUSUM in std dev units
+	 * @return
+	 */
+	public CusumChangePointDetector withThreshold(double threshold) {
+		this.threshold = threshold;
+		return this;
+	}
+	
+	/**
+	 * @param cost segment cost for locating change point
+	 * @return
+	 */
+	public CusumChangePointDetector withCost(SegmentCost cost) {
+		this.cost = cost;
+		return this;
+	}
+	
+	/**
+	 * @param penalty min cost reduction for change point, default from segment cost
+	 * @return
+	 */
+	public CusumChangePointDetector withPenalty(double penalty) {
+		this.penalty = penalty;
+		return this;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.SizeBoundWindow#onAdd(java.lang.Object)
+	 */
+	@Override
+	protected void onAdd(Double obj) {
+		newChangePoint = null;
+		double value = obj;
+		if (numBaseline < minSegmentLength) {
+			updateBaseline(value);
+			return;
+		}
+		
+		//mean up and down, variance up and down
+		double z = (value - mean) / stdDev;
+		double zSq = (z * z - 1) / SQRT_TWO;
+		updateSum(0, z);
+		updateSum(1, -z);
+		updateSum(2, zSq);
+		updateSum(3, -zSq);
+		
+		//locate when there are enough samples after the onset of alarm, otherwise false alarm
+		if (alarmOnset >= 0 && count - alarmOnset >= minSegmentLength) {
+			locate();
+		}
+	}
+	
+	/**
+	 * Updates CUSUM, tracking where it last left zero as the onset of a possible change
+	 * @param i
+	 * @param score
+	 */
+	private void updateSum(int i, double score) {
+		sums[i] = Math.max(0, sums[i] + score - drift);
+		if (sums[i] == 0) {
+			onsets[i] = count;
+		} else if (sums[i] > threshold && alarmOnset < 0) {
+			alarmOnset = onsets[i];
+		}
+	}
+	
+	/**
+	 * Welford update of baseline mean and std dev
+	 * @param value
+	 */
+	private void updateBaseline(double value) {
+		++numBaseline;
+		double diff = value - mean;
+		mean += diff / numBaseline;
+		sumSqDiff += diff * (value - mean);
+		if (numBaseline == minSegmentLength) {
+			stdDev = Math.sqrt(sumSqDiff / (numBaseline - 1));
+			if (stdDev == 0) {
+				stdDev = Math.max(Math.abs(mean), 1.0) * MIN_STD_DEV_FRACTION;
+			}
+			
+			//monitoring starts after baseline
+			resetSums();
+		}
+	}
+	
+	/**
+	 * Best split of window by cost. If the cost reduction exceeds penalty, samples before the 
+	 * change point are dropped and baseline is rebuilt from the rest. Alarm onset may precede 
+	 * the change, so splits with shorter tail are also considered, but a split is confirmed only 
+	 * after min segment length samples follow it
+	 */
+	private void locate() {
+		DoubleRingBuffer values = (DoubleRingBuffer)dataWindow;
+		double[] data = values.toDoubleArray();
+		int size = data.length;
+		cost.initialize(data);
+		double allCost = cost.getCost(0, size);
+		double maxDisc = penalty < 0 ? cost.getPenalty() : penalty;
+		int split = -1;
+		for (int sp = minSegmentLength; sp <= size - MIN_TAIL_LENGTH; ++sp) {
+			double disc = allCost - (cost.getCost(0, sp) + cost.getCost(sp, size));
+			if (disc > maxDisc) {
+				maxDisc = disc;
+				split = sp;
+			}
+		}
+		if (split > size - minSegmentLength) {
+			//wait for more samples after the change, unless the split keeps moving with new samples
+			if (++numDeferred <= minSegmentLength) {
+				return;
+			}
+			split = -1;
+		}
+		if (split < 0) {
+			resetSums();
+			return;
+		}
+		
+		newChangePoint = new ChangePoint((int)(count - size + split), maxDisc);
+		if (null != orderStats) {
+			for (int i = 0; i < split; ++i) {
+				orderStats.remove(data[i]);
+			}
+		}
+		values.removeFirst(split);
+		resetBaseline();
+		for (int i = split; i < size && numBaseline < minSegmentLength; ++i) {
+			updateBaseline(data[i]);
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	private void resetBaseline() {
+		numBaseline = 0;
+		mean = 0;
+		sumSqDiff = 0;
+		stdDev = 0;
+		resetSums();
+	}
+	
+	/**
+	 * 
+	 */
+	private void resetSums() {
+		Arrays.fill(sums, 0);
+		Arrays.fill(onsets, count);
+		alarmOnset = -1;
+		numDeferred = 0;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.SizeBoundWindow#clear()
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		resetBaseline();
+		newChangePoint = null;
+	}
+
+	/**
+	 * @return change point detected by the latest sample, with index as position in the stream,
+	 * null if none
+	 */
+	public ChangePoint getNewChangePoint() {
+		return newChangePoint;
+	}
+
+	/**
+	 * @return baseline mean of current segment
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return baseline std dev of current segment
+	 */
+	public double getStdDev() {
+		return stdDev;
+	}
+}
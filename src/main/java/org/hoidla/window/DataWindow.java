@@ -48,6 +48,13 @@ public abstract class DataWindow<T> {
 		dataWindow = withSequentialAccess ? new LinkedList<T>() : new ArrayList<T>();
 	}
 	
+	/**
+	 * @param dataWindow backing store
+	 */
+	public DataWindow(AbstractList<T> dataWindow) {
+		this.dataWindow = dataWindow;
+	}
+	
 	/**
 	 * @param addFirst
 	 * @return
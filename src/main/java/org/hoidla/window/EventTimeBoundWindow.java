@@ -18,26 +18,28 @@
 package org.hoidla.window;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.ListIterator;
 
 import org.hoidla.util.EventTimeStamped;
-import org.hoidla.util.TimeStamped;
+import org.hoidla.util.RingBuffer;
 
 /**
+ * Event time window. Arriving events are held in a buffer sorted by event time until 
+ * they fall behind the water mark, which trails the latest event time by the observed 
+ * out of order lag. Released events form a window bounded by event time span. Each 
+ * event costs log time and memory is bounded by the lag and the time span.
  * @author pranab
  *
  */
 public class EventTimeBoundWindow extends DataWindow<EventTimeStamped>  implements Serializable {
-	private List<EventTimeStamped> extendedWindow = new ArrayList<EventTimeStamped>();
+	private RingBuffer<EventTimeStamped> pendingEvents = new RingBuffer<EventTimeStamped>(64);
+	private RingBuffer<EventTimeStamped> eventTimeDataWindow;
 	private SizeBoundIntStatsWindow statsWindow;
 	private double lagStdDevMult;
-	private long waterMark;
+	private long waterMark = Long.MIN_VALUE;
 	private int waterMarkLag;
-	private List<EventTimeStamped> eventTimeDataWindow = new ArrayList<EventTimeStamped>();
+	private long latestEventTime = Long.MIN_VALUE;
+	private long lastReleasedTime = Long.MIN_VALUE;
+	private long numLateEvents;
 	private long timeSpan;
 	private long timeStep = 0;
 	private long processingTimeStep = -1;
@@ -47,6 +49,8 @@ public class EventTimeBoundWindow extends DataWindow<EventTimeStamped>  implemen
 
 	public EventTimeBoundWindow(long timeSpan, long timeStep, long processingTimeStep, int maxStatWindowSize, 
 			double lagStdDevMult, int waterMarkLag) {
+		super(new RingBuffer<EventTimeStamped>(64));
+		eventTimeDataWindow = (RingBuffer<EventTimeStamped>)dataWindow;
 		createStatsWindow(maxStatWindowSize);
 		this.lagStdDevMult = lagStdDevMult;
 		this.waterMarkLag = waterMarkLag;
@@ -56,89 +60,142 @@ public class EventTimeBoundWindow extends DataWindow<EventTimeStamped>  implemen
 	}
 	
 	public void createStatsWindow(int maxStatWindowSize) {
-		statsWindow = new SizeBoundIntStatsWindow(maxStatWindowSize);
+		statsWindow = new SizeBoundIntStatsWindow(maxStatWindowSize).withIncremental(true);
 	}
 	
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#add(java.lang.Object)
 	 */
 	public void add(EventTimeStamped obj) {
-		extendedWindow.add(obj);
-		super.add(obj);
+		++count;
+		long eventTime = obj.getEventTimeStamp();
+		if (eventTime < lastReleasedTime) {
+			//behind water mark and window already moved past it
+			++numLateEvents;
+			trackLag(obj, eventTimeDataWindow, upperBound(eventTimeDataWindow, eventTime));
+			return;
+		}
 		
-		//sort by event time
-		eventTimeDataWindow.clear();
-		eventTimeDataWindow.addAll(extendedWindow);
-		Collections.sort(eventTimeDataWindow, new Comparator<EventTimeStamped>() {
-		       public int compare(EventTimeStamped o1, EventTimeStamped o2) {
-		           return o1.getEventTimeStamp() < o2.getEventTimeStamp() ? -1 : (o1.getEventTimeStamp() > o2.getEventTimeStamp() ?  1 : 0);
-		        }
-		  });	
+		//sorted insertion, usually close to the end
+		int index = upperBound(pendingEvents, eventTime);
+		pendingEvents.add(index, obj);
 		
-		//find out of order skew skew
-		int count = 0;
-		for (int i = 0; i < eventTimeDataWindow.size() -1; ++i) {
-			int lag = (int)(eventTimeDataWindow.get(i).getTimeStamp() - eventTimeDataWindow.get(i+1).getTimeStamp());
-			if (lag > 0) {
-				statsWindow.add(lag);
-			}
-		}
+		//out of order skew only with respect to the event time successor
+		trackLag(obj, pendingEvents, index + 1);
 		
 		//find water mark wrt event time
-		long latest = eventTimeDataWindow.get(eventTimeDataWindow.size() - 1).getEventTimeStamp();
+		if (eventTime > latestEventTime) {
+			latestEventTime = eventTime;
+		}
 		if (statsWindow.getCount() >= 3) {
 			statsWindow.forcedProcess();
-			waterMark =  latest  -  (long)(statsWindow.getMean() + lagStdDevMult * statsWindow.getStdDev());
+			waterMark =  latestEventTime  -  (long)(statsWindow.getMean() + lagStdDevMult * statsWindow.getStdDev());
 		} else {
-			waterMark =  latest -  waterMarkLag;
+			waterMark =  latestEventTime -  waterMarkLag;
 		}
 		
-		long timespandEnd = eventTimeDataWindow.get(0).getEventTimeStamp() + timeSpan;
-		if ( timespandEnd < waterMark) {
-			//only events above water mark and enough data for processing
-			dataWindow.clear();
-			for (EventTimeStamped event : eventTimeDataWindow) {
-				if (event.getEventTimeStamp() < timespandEnd) {
-					dataWindow.add(event);
-				}
-			}
-			
+		//release events behind water mark
+		int numReleased = 0;
+		while (numReleased < pendingEvents.size() && 
+				pendingEvents.get(numReleased).getEventTimeStamp() <= waterMark) {
+			EventTimeStamped event = pendingEvents.get(numReleased);
+			eventTimeDataWindow.add(event);
+			lastReleasedTime = event.getEventTimeStamp();
+			++numReleased;
+		}
+		if (numReleased > 0) {
+			pendingEvents.removeFirst(numReleased);
 			expire();
 		}
 	}
 	
+	/**
+	 * @param obj
+	 * @param events
+	 * @param successor index of event time successor
+	 */
+	private void trackLag(EventTimeStamped obj, RingBuffer<EventTimeStamped> events, int successor) {
+		if (successor < events.size()) {
+			int lag = (int)(obj.getTimeStamp() - events.get(successor).getTimeStamp());
+			if (lag > 0) {
+				statsWindow.add(lag);
+			}
+		}
+	}
+	
+	/**
+	 * @param events sorted by event time
+	 * @param eventTime
+	 * @return index of first event with larger event time
+	 */
+	private int upperBound(RingBuffer<EventTimeStamped> events, long eventTime) {
+		int lo = 0;
+		int hi = events.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (events.get(mid).getEventTimeStamp() <= eventTime) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
 	@Override
 	public void expire() {
+		if (!isFull()) {
+			return;
+		}
+		
 		//process data
-		boolean processed = false;
-		long latest = dataWindow.get(dataWindow.size() - 1).getEventTimeStamp();
+		long latest = eventTimeDataWindow.get(eventTimeDataWindow.size() - 1).getEventTimeStamp();
 		if (processingTimeStep > 0 && lastProcessedTime > 0) {
 			if (latest - lastProcessedTime > processingTimeStep) {
 				processFullWindow();
 				lastProcessedTime = latest;
-				processed = true;
 			}
 		} else {
 			processFullWindow();
 			lastProcessedTime = latest;
-			processed = true;
 		}
 		
-		//expire data 
+		//expire data, which is in event time order
 		long earliestRetained = latest - timeSpan + timeStep;
-		ListIterator<EventTimeStamped> iter =  dataWindow.listIterator();
-		while (iter.hasNext()) {
-			if (iter.next().getEventTimeStamp() < earliestRetained) {
-				iter.remove();
-			}
+		int numExpired = 0;
+		while (numExpired < eventTimeDataWindow.size() && 
+				eventTimeDataWindow.get(numExpired).getEventTimeStamp() < earliestRetained) {
+			++numExpired;
 		}
-		
+		eventTimeDataWindow.removeFirst(numExpired);
 	}
 
 	@Override
 	public boolean isFull() {
-		// TODO Auto-generated method stub
-		return false;
+		int size = eventTimeDataWindow.size();
+		return size > 0 && (eventTimeDataWindow.get(size - 1).getEventTimeStamp() - 
+				eventTimeDataWindow.get(0).getEventTimeStamp()) > timeSpan;
+	}
+	
+	/**
+	 * @return current water mark
+	 */
+	public long getWaterMark() {
+		return waterMark;
+	}
+	
+	/**
+	 * @return number of events arriving after the window moved past their event time
+	 */
+	public long getNumLateEvents() {
+		return numLateEvents;
+	}
+	
+	/**
+	 * @return number of events waiting for water mark
+	 */
+	public int getNumPendingEvents() {
+		return pendingEvents.size();
 	}
 
 }
@@ -18,50 +18,273 @@
 
 package org.hoidla.window;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+
 import org.chombo.math.Complex;
 import org.hoidla.analyze.FastFourierTransform;
+import org.hoidla.util.DoubleRingBuffer;
 
 
 /**
+ * Tumbling window with spectrum by real valued FFT. Data and spectrum are kept in primitive 
+ * arrays allocated once. In sliding mode the spectrum, or a selected set of bins, is updated 
+ * with every sample with the sliding DFT recurrence
  * @author pranab
  *
  */
 public class FastFourierTransformWindow extends SizeBoundWindow<Double> {
-	private Complex[] fftOutput;
+	private double[] data;
+	private double[] re;
+	private double[] im;
 	private double amp[];
 	private double[] phase;
+	private Complex[] fftOutput;
+	private boolean transformed;
+	private boolean sliding;
+	private int[] bins;
+	private double[] rotCos;
+	private double[] rotSin;
+	private int sinceResync;
+	private boolean polarStale;
 	
 	/**
-	 * @param maxSize
+	 * @param maxSize power of 2
 	 */
 	public FastFourierTransformWindow(int maxSize) {
-		super(maxSize, maxSize, maxSize);
+		super(maxSize, new DoubleRingBuffer(maxSize + 1));
+		setStepSize(maxSize);
+		setProcessStepSize(maxSize);
+		if (maxSize < 2 || Integer.bitCount(maxSize) != 1) {
+			throw new IllegalArgumentException("window size should be a power of 2");
+		}
+		data = new double[maxSize];
+		re = new double[maxSize];
+		im = new double[maxSize];
+		amp = new double[maxSize];
+		phase = new double[maxSize];
+	}
+	
+	/**
+	 * Samples are read directly off the primitive buffer, other stores are not supported
+	 * @param dataWindow
+	 */
+	@Override
+	public void setDataWindow(AbstractList<Double> dataWindow) {
+		if (!(dataWindow instanceof DoubleRingBuffer)) {
+			throw new IllegalArgumentException("data window should be a DoubleRingBuffer");
+		}
+		super.setDataWindow(dataWindow);
+	}
+	
+	/**
+	 * Sliding window with all bins updated for each sample in linear time. Should be set 
+	 * before any item is added
+	 * @return
+	 */
+	public FastFourierTransformWindow withSliding() {
+		int[] bins = new int[maxSize / 2 + 1];
+		for (int k = 0; k < bins.length; ++k) {
+			bins[k] = k;
+		}
+		return withSlidingBins(bins);
+	}
+	
+	/**
+	 * Sliding window with selected bins updated for each sample, in time linear in number
+	 * of bins. Should be set before any item is added
+	 * @param bins frequency bins between 0 and half the window size
+	 * @return
+	 */
+	public FastFourierTransformWindow withSlidingBins(int... bins) {
+		for (int k : bins) {
+			if (k < 0 || k > maxSize / 2) {
+				throw new IllegalArgumentException("bin should be between 0 and half the window size");
+			}
+		}
+		sliding = true;
+		setStepSize(1);
+		setProcessStepSize(1);
+		this.bins = bins;
+		rotCos = new double[bins.length];
+		rotSin = new double[bins.length];
+		for (int i = 0; i < bins.length; ++i) {
+			double kth = 2 * Math.PI * bins[i] / maxSize;
+			rotCos[i] = Math.cos(kth);
+			rotSin[i] = Math.sin(kth);
+		}
+		return this;
+	}
+	
+	/**
+	 * Sliding DFT update, drops the oldest sample and rotates each bin by its frequency
+	 * @param obj
+	 */
+	@Override
+	protected void onAdd(Double obj) {
+		if (sliding) {
+			double out = dataWindow.size() > maxSize ? ((DoubleRingBuffer)dataWindow).getDouble(0) : 0;
+			double delta = obj - out;
+			for (int i = 0; i < bins.length; ++i) {
+				int k = bins[i];
+				double binRe = re[k] + delta;
+				double binIm = im[k];
+				re[k] = binRe * rotCos[i] - binIm * rotSin[i];
+				im[k] = binRe * rotSin[i] + binIm * rotCos[i];
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.SizeBoundWindow#clear()
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		if (sliding) {
+			Arrays.fill(re, 0);
+			Arrays.fill(im, 0);
+			sinceResync = 0;
+		}
 	}
 	
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#processFullWindow()
 	 */
 	public  void processFullWindow() {
-		Complex[] fftInput = new Complex[maxSize];
+		if (sliding) {
+			processSliding();
+			return;
+		}
+		DoubleRingBuffer values = (DoubleRingBuffer)dataWindow;
 		for (int i = 0; i < maxSize; ++i) {
-			fftInput[i] = new Complex(dataWindow.get(i), 0);
+			data[i] = values.getDouble(i);
 		}
-		fftOutput = FastFourierTransform.fft(fftInput);
-		amp = FastFourierTransform.findAmp(fftOutput);
-		phase = FastFourierTransform.findPhase(fftOutput);
+		FastFourierTransform.realFft(data, re, im);
+		
+		//upper half of spectrum is conjugate of lower half 
+		int half = maxSize / 2;
+		for (int k = 1; k < half; ++k) {
+			re[maxSize - k] = re[k];
+			im[maxSize - k] = -im[k];
+		}
+		for (int k = 0; k < maxSize; ++k) {
+			amp[k] = Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+			phase[k] = Math.atan2(im[k], re[k]);
+		}
+		fftOutput = null;
+		transformed = true;
 	}
 
 	/**
-	 * @return
+	 * Bins are recomputed once per window length so that rounding errors of the recurrence
+	 * do not accumulate. Amplitude and phase are computed on demand
+	 */
+	private void processSliding() {
+		DoubleRingBuffer values = (DoubleRingBuffer)dataWindow;
+		if (++sinceResync >= maxSize) {
+			if (bins.length > maxSize / 2) {
+				for (int i = 0; i < maxSize; ++i) {
+					data[i] = values.getDouble(i);
+				}
+				FastFourierTransform.realFft(data, re, im);
+			} else {
+				for (int i = 0; i < bins.length; ++i) {
+					goertzel(values, i);
+				}
+			}
+			sinceResync = 0;
+		}
+		fftOutput = null;
+		transformed = true;
+		polarStale = true;
+	}
+	
+	/**
+	 * Amplitude, phase and upper half of spectrum for tracked bins
+	 */
+	private void updatePolar() {
+		if (!polarStale) {
+			return;
+		}
+		for (int k : bins) {
+			amp[k] = Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+			phase[k] = Math.atan2(im[k], re[k]);
+			if (k > 0 && k < maxSize / 2) {
+				re[maxSize - k] = re[k];
+				im[maxSize - k] = -im[k];
+				amp[maxSize - k] = amp[k];
+				phase[maxSize - k] = -phase[k];
+			}
+		}
+		polarStale = false;
+	}
+	
+	/**
+	 * DFT of one bin by Goertzel recurrence
+	 * @param values
+	 * @param i index into tracked bins
+	 */
+	private void goertzel(DoubleRingBuffer values, int i) {
+		double coeff = 2 * rotCos[i];
+		double s1 = 0;
+		double s2 = 0;
+		for (int n = 0; n < maxSize; ++n) {
+			double s0 = values.getDouble(n) + coeff * s1 - s2;
+			s2 = s1;
+			s1 = s0;
+		}
+		int k = bins[i];
+		re[k] = rotCos[i] * s1 - s2;
+		im[k] = rotSin[i] * s1;
+	}
+	
+	/**
+	 * @return bin between 1 and half the window size with max amplitude
+	 */
+	public int getDominantBin() {
+		updatePolar();
+		int dominant = 1;
+		for (int k = 2; k <= maxSize / 2; ++k) {
+			if (amp[k] > amp[dominant]) {
+				dominant = k;
+			}
+		}
+		return dominant;
+	}
+	
+	/**
+	 * @return spectrum as complex numbers, created on demand
 	 */
 	public Complex[] getFft() {
+		updatePolar();
+		if (null == fftOutput && transformed) {
+			fftOutput = FastFourierTransform.createComplex(re, im);
+		}
 		return fftOutput;
 	}
+	
+	/**
+	 * @return real part of spectrum
+	 */
+	public double[] getReal() {
+		updatePolar();
+		return re;
+	}
+
+	/**
+	 * @return imaginary part of spectrum
+	 */
+	public double[] getImaginary() {
+		updatePolar();
+		return im;
+	}
 
 	/**
 	 * @return
 	 */
 	public double[] getAmp() {
+		updatePolar();
 		return amp;
 	}
 
@@ -69,6 +292,7 @@ public class FastFourierTransformWindow extends SizeBoundWindow<Double> {
 	 * @return
 	 */
 	public double[] getPhase() {
+		updatePolar();
 		return phase;
 	}
 
@@ -17,11 +17,19 @@
 
 package org.hoidla.window;
 
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class SizeBoundFloatStatsWindow extends SizeBoundWindow<Double> {
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.DoubleRingBuffer;
+import org.hoidla.util.MonotonicDeque;
+import org.hoidla.util.SlidingMedian;
+
+public class SizeBoundFloatStatsWindow extends SizeBoundWindow<Double> implements BinarySerializable {
 	private double mean;
 	private double stdDev;
 	private double sum;
@@ -32,12 +40,19 @@ public class SizeBoundFloatStatsWindow extends SizeBoundWindow<Double> {
 	private int count;
 	private boolean processed;
 	private boolean fullStat = true;
+	private boolean incremental;
+	private int numValues;
+	private double incrMean;
+	private double sumSqDiff;
+	private MonotonicDeque minFinder;
+	private MonotonicDeque maxFinder;
+	private SlidingMedian medianFinder;
 	
 	/**
 	 * @param maxSize
 	 */
 	public SizeBoundFloatStatsWindow(int maxSize) {
-		super(maxSize);
+		super(maxSize, new DoubleRingBuffer(maxSize + 1));
 	}
 	
 	/**
@@ -45,31 +60,132 @@ public class SizeBoundFloatStatsWindow extends SizeBoundWindow<Double> {
 	 * @param fullStat
 	 */
 	public SizeBoundFloatStatsWindow(int maxSize, boolean fullStat) {
-		super(maxSize);
+		super(maxSize, new DoubleRingBuffer(maxSize + 1));
 		this.fullStat = fullStat;
 	}
 	
+	/**
+	 * Stats are computed directly off the primitive buffer, other stores are not supported
+	 * @param dataWindow
+	 */
+	@Override
+	public void setDataWindow(AbstractList<Double> dataWindow) {
+		if (!(dataWindow instanceof DoubleRingBuffer)) {
+			throw new IllegalArgumentException("data window should be a DoubleRingBuffer");
+		}
+		super.setDataWindow(dataWindow);
+	}
+	
+	
+	/**
+	 * Stats are updated as items enter and leave the window, instead of a full scan when 
+	 * processing. Should be set before any item is added
+	 * @param incremental
+	 * @return
+	 */
+	public SizeBoundFloatStatsWindow withIncremental(boolean incremental) {
+		this.incremental = incremental;
+		if (incremental && fullStat) {
+			minFinder = new MonotonicDeque(maxSize + 1, false);
+			maxFinder = new MonotonicDeque(maxSize + 1, true);
+			medianFinder = new SlidingMedian(maxSize + 1);
+		}
+		return this;
+	}
 	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.SizeBoundWindow#onAdd(java.lang.Object)
+	 */
+	@Override
+	protected void onAdd(Double obj) {
+		if (incremental) {
+			//Welford update
+			double val = obj;
+			++numValues;
+			double diff = val - incrMean;
+			incrMean += diff / numValues;
+			sumSqDiff += diff * (val - incrMean);
+			if (fullStat) {
+				minFinder.add(val);
+				maxFinder.add(val);
+				medianFinder.add(val);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.SizeBoundWindow#onRemove(int)
+	 */
+	@Override
+	protected void onRemove(int numRemoved) {
+		if (incremental) {
+			DoubleRingBuffer values = (DoubleRingBuffer)dataWindow;
+			for (int i = 0; i < numRemoved; ++i) {
+				//reverse Welford update
+				double val = values.getDouble(i);
+				if (numValues == 1) {
+					numValues = 0;
+					incrMean = 0;
+					sumSqDiff = 0;
+				} else {
+					--numValues;
+					double diff = val - incrMean;
+					incrMean -= diff / numValues;
+					sumSqDiff -= diff * (val - incrMean);
+				}
+				if (fullStat) {
+					minFinder.removeOldest();
+					maxFinder.removeOldest();
+					medianFinder.removeOldest();
+				}
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.DataWindow#clear()
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		if (incremental) {
+			numValues = 0;
+			incrMean = 0;
+			sumSqDiff = 0;
+			if (fullStat) {
+				minFinder.clear();
+				maxFinder.clear();
+				medianFinder.clear();
+			}
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#processFullWindow()
 	 */
 	public  void processFullWindow() {
+		if (incremental) {
+			processIncrementally();
+			return;
+		}
 		sum = 0;
 		count = 0;
+		DoubleRingBuffer values = (DoubleRingBuffer)dataWindow;
 		if (fullStat) {
 			//everything
 			sumSq = 0;
 			min = Double.MAX_VALUE;
 			max = Double.MIN_VALUE;
-			List<Double> values = new ArrayList<Double>();
-			for (Double val : dataWindow) {
+			List<Double> sortedValues = new ArrayList<Double>();
+			for (int i = 0; i < values.size(); ++i) {
+				double val = values.getDouble(i);
 				sum += val;
 				sumSq += val * val;
 				if (val < min)
 					min = val;
 				if (val > max)
 					max = val;
-				values.add(val);
+				sortedValues.add(val);
 				++count;
 			}
 			
@@ -78,24 +194,41 @@ public class SizeBoundFloatStatsWindow extends SizeBoundWindow<Double> {
 			var = (var * (count -1)) / count;
 			stdDev = Math.sqrt(var);
 			
-			Collections.sort(values);
+			Collections.sort(sortedValues);
 			int size = size();
 			int mid = size / 2;
 			if (size % 2 == 1) {
-				median = values.get(mid);
+				median = sortedValues.get(mid);
 			} else {
-				median = (values.get(mid -1) + values.get(mid)) / 2;
+				median = (sortedValues.get(mid -1) + sortedValues.get(mid)) / 2;
 			}
 		} else {
 			//mean only
-			for (Double val : dataWindow) {
-				sum += val;
+			for (int i = 0; i < values.size(); ++i) {
+				sum += values.getDouble(i);
 				++count;
 			}
 			mean = sum / count;
 		}
 	}
 
+	/**
+	 * gets stats from incrementally maintained state
+	 */
+	private void processIncrementally() {
+		count = numValues;
+		mean = incrMean;
+		sum = mean * count;
+		if (fullStat) {
+			double var = sumSqDiff / count;
+			var = var > 0 ? (var * (count -1)) / count : 0;
+			stdDev = Math.sqrt(var);
+			min = minFinder.get();
+			max = maxFinder.get();
+			median = medianFinder.getMedian();
+		}
+	}
+
 	/**
 	 * @return
 	 */
@@ -142,4 +275,53 @@ public class SizeBoundFloatStatsWindow extends SizeBoundWindow<Double> {
 		}
 	}
 
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 24 + 8 * dataWindow.size();
+	}
+
+	/**
+	 * Window configuration, count and values. Stats are recomputed when read back
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.FLOAT_STATS_WINDOW);
+		buffer.putInt(maxSize);
+		buffer.putInt(getStepSize());
+		buffer.putInt(getProcessStepSize());
+		buffer.putLong(getCount());
+		double[] values = ((DoubleRingBuffer)dataWindow).toDoubleArray();
+		buffer.putInt(values.length);
+		BinaryFormat.writeDoubles(buffer, values, 0, values.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.FLOAT_STATS_WINDOW);
+		if (buffer.getInt() != maxSize) {
+			throw new IllegalArgumentException("serialized window has different size");
+		}
+		setStepSize(buffer.getInt());
+		setProcessStepSize(buffer.getInt());
+		long windowCount = buffer.getLong();
+		double[] values = new double[buffer.getInt()];
+		BinaryFormat.readDoubles(buffer, values, 0, values.length);
+		clear();
+		for (double value : values) {
+			restore(value);
+		}
+		setCount(windowCount);
+		processed = false;
+		if (isFull()) {
+			forcedProcess();
+		}
+	}
 }
@@ -17,32 +17,123 @@
 
 package org.hoidla.window;
 
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+
+import org.hoidla.util.BinaryFormat;
+import org.hoidla.util.BinarySerializable;
+import org.hoidla.util.IntRingBuffer;
+
 /**
  * @author pranab
  *
  */
-public class SizeBoundIntStatsWindow  extends SizeBoundWindow<Integer> {
+public class SizeBoundIntStatsWindow  extends SizeBoundWindow<Integer> implements BinarySerializable {
 	private double mean;
 	private double stdDev;
 	private double sum;
 	private double sumSq;
 	private int count;
+	private boolean incremental;
+	private int numValues;
+	private double incrMean;
+	private double sumSqDiff;
 	
 	/**
 	 * @param maxSize
 	 */
 	public SizeBoundIntStatsWindow(int maxSize) {
-		super(maxSize);
+		super(maxSize, new IntRingBuffer(maxSize + 1));
 	}
 	
+	/**
+	 * Stats are computed directly off the primitive buffer, other stores are not supported
+	 * @param dataWindow
+	 */
+	@Override
+	public void setDataWindow(AbstractList<Integer> dataWindow) {
+		if (!(dataWindow instanceof IntRingBuffer)) {
+			throw new IllegalArgumentException("data window should be an IntRingBuffer");
+		}
+		super.setDataWindow(dataWindow);
+	}
+	
+	
+	/**
+	 * Stats are updated as items enter and leave the window, instead of a full scan when 
+	 * processing. Should be set before any item is added
+	 * @param incremental
+	 * @return
+	 */
+	public SizeBoundIntStatsWindow withIncremental(boolean incremental) {
+		this.incremental = incremental;
+		return this;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.SizeBoundWindow#onAdd(java.lang.Object)
+	 */
+	@Override
+	protected void onAdd(Integer obj) {
+		if (incremental) {
+			int val = obj;
+			++numValues;
+			double diff = val - incrMean;
+			incrMean += diff / numValues;
+			sumSqDiff += diff * (val - incrMean);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.SizeBoundWindow#onRemove(int)
+	 */
+	@Override
+	protected void onRemove(int numRemoved) {
+		if (incremental) {
+			IntRingBuffer values = (IntRingBuffer)dataWindow;
+			for (int i = 0; i < numRemoved; ++i) {
+				int val = values.getInt(i);
+				if (numValues == 1) {
+					numValues = 0;
+					incrMean = 0;
+					sumSqDiff = 0;
+				} else {
+					--numValues;
+					double diff = val - incrMean;
+					incrMean -= diff / numValues;
+					sumSqDiff -= diff * (val - incrMean);
+				}
+			}
+		}
+	}
 	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.DataWindow#clear()
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		numValues = 0;
+		incrMean = 0;
+		sumSqDiff = 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#processFullWindow()
 	 */
 	public  void processFullWindow() {
+		if (incremental) {
+			count = numValues;
+			mean = incrMean;
+			sum = mean * count;
+			stdDev = sumSqDiff > 0 ? Math.sqrt(sumSqDiff / count) : 0;
+			return;
+		}
 		sum = sumSq = 0;
 		count = 0;
-		for (Integer val : dataWindow) {
+		IntRingBuffer values = (IntRingBuffer)dataWindow;
+		for (int i = 0; i < values.size(); ++i) {
+			int val = values.getInt(i);
 			sum += val;
 			sumSq += val * val;
 			++count;
@@ -75,4 +166,53 @@ public class SizeBoundIntStatsWindow  extends SizeBoundWindow<Integer> {
 			 processed = true;
 		}
 	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return BinaryFormat.HEADER_SIZE + 24 + 4 * dataWindow.size();
+	}
+
+	/**
+	 * Window configuration, count and values. Stats are recomputed when read back
+	 * @param buffer
+	 */
+	@Override
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.writeHeader(buffer, BinaryFormat.INT_STATS_WINDOW);
+		buffer.putInt(maxSize);
+		buffer.putInt(getStepSize());
+		buffer.putInt(getProcessStepSize());
+		buffer.putLong(getCount());
+		int[] values = ((IntRingBuffer)dataWindow).toIntArray();
+		buffer.putInt(values.length);
+		BinaryFormat.writeInts(buffer, values, 0, values.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.hoidla.util.BinarySerializable#readFrom(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void readFrom(ByteBuffer buffer) {
+		BinaryFormat.readHeader(buffer, BinaryFormat.INT_STATS_WINDOW);
+		if (buffer.getInt() != maxSize) {
+			throw new IllegalArgumentException("serialized window has different size");
+		}
+		setStepSize(buffer.getInt());
+		setProcessStepSize(buffer.getInt());
+		long windowCount = buffer.getLong();
+		int[] values = new int[buffer.getInt()];
+		BinaryFormat.readInts(buffer, values, 0, values.length);
+		clear();
+		for (int value : values) {
+			restore(value);
+		}
+		setCount(windowCount);
+		processed = false;
+		if (isFull()) {
+			forcedProcess();
+		}
+	}
 }
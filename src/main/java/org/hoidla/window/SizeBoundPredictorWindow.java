@@ -17,9 +17,6 @@
 
 package org.hoidla.window;
 
-import java.util.AbstractList;
-import java.util.Collections;
-
 import org.chombo.util.BasicUtils;
 import org.hoidla.forecast.ExponentialSmoothing;
 import org.hoidla.forecast.Forecaster;
@@ -55,6 +52,9 @@ public class SizeBoundPredictorWindow extends SizeBoundWindow<Double> {
 	public SizeBoundPredictorWindow(int maxSize, String predictor) {
 		super(maxSize);
 		this.predictor = predictor;
+		if (predictor.equals(PRED_MEDIAN)) {
+			withOrderStatistics();
+		}
 	}
 	
 	/**
@@ -167,14 +167,7 @@ public class SizeBoundPredictorWindow extends SizeBoundWindow<Double> {
 	 * 
 	 */
 	private void findMedian() {
-		AbstractList<Double> cloned = cloneWindow();
-		Collections.sort(cloned);
-		int half = cloned.size() / 2;
-		if (cloned.size() % 2 == 1) {
-			median = cloned.get(half);
-		} else {
-			median = (cloned.get(half - 1) + cloned.get(half)) / 2;
-		}
+		median = orderStats.getMedian();
 	}
 	
 	/**
@@ -18,8 +18,13 @@
 package org.hoidla.window;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 
+import org.hoidla.util.BaseRingBuffer;
+import org.hoidla.util.OrderStatisticTree;
+import org.hoidla.util.RingBuffer;
+
 
 /**
  * Sliding window bounded my a max size
@@ -31,6 +36,7 @@ public class SizeBoundWindow<T> extends DataWindow<T> implements Serializable {
 	private int stepSize = 1;
 	private int processStepSize = 1;
 	protected boolean processed;
+	protected OrderStatisticTree orderStats;
 
 	
 	public SizeBoundWindow() {
@@ -40,7 +46,16 @@ public class SizeBoundWindow<T> extends DataWindow<T> implements Serializable {
 	 * @param maxSize
 	 */
 	public SizeBoundWindow(int maxSize) {
-		super(true);
+		super(new RingBuffer<T>(maxSize + 1));
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * @param maxSize
+	 * @param dataWindow backing store, typically a primitive ring buffer
+	 */
+	public SizeBoundWindow(int maxSize, AbstractList<T> dataWindow) {
+		super(dataWindow);
 		this.maxSize = maxSize;
 	}
 	
@@ -62,6 +77,16 @@ public class SizeBoundWindow<T> extends DataWindow<T> implements Serializable {
 		this.processStepSize = processStepSize;
 	}
 	
+	/**
+	 * Tracks order statistics for numeric items, so that median and percentiles are 
+	 * available in log time. Should be set before any item is added
+	 * @return
+	 */
+	public SizeBoundWindow<T> withOrderStatistics() {
+		orderStats = new OrderStatisticTree(maxSize + 1);
+		return this;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#add(java.lang.Object)
 	 */
@@ -74,6 +99,10 @@ public class SizeBoundWindow<T> extends DataWindow<T> implements Serializable {
 		if (addFirst) {
 			dataWindow.add(obj);
 			++count;
+			if (null != orderStats) {
+				orderStats.add(((Number)obj).doubleValue());
+			}
+			onAdd(obj);
 			//System.out.println("added to window count " + count);
 			slide();
 			process();
@@ -82,6 +111,10 @@ public class SizeBoundWindow<T> extends DataWindow<T> implements Serializable {
 			process();
 			dataWindow.add(obj);
 			++count;
+			if (null != orderStats) {
+				orderStats.add(((Number)obj).doubleValue());
+			}
+			onAdd(obj);
 		}
 	}
 	
@@ -116,9 +149,23 @@ public class SizeBoundWindow<T> extends DataWindow<T> implements Serializable {
 		//slide window
 		if (dataWindow.size() > maxSize) {
 			//manage window
+			int numRemoved = stepSize == maxSize ? dataWindow.size() : Math.min(stepSize, dataWindow.size());
+			onRemove(numRemoved);
+			if (null != orderStats) {
+				if (numRemoved == dataWindow.size()) {
+					orderStats.clear();
+				} else {
+					for (int i = 0; i < numRemoved; ++i) {
+						orderStats.remove(((Number)dataWindow.get(i)).doubleValue());
+					}
+				}
+			}
 			if (stepSize == maxSize) {
 				//tumble
 				dataWindow.clear();
+			} else if (dataWindow instanceof BaseRingBuffer) {
+				//slide by stepSize in constant time
+				((BaseRingBuffer<T>)dataWindow).removeFirst(stepSize);
 			} else {
 				//slide by stepSize
 				for (int i = 0; i < stepSize; ++i) {
@@ -131,6 +178,61 @@ public class SizeBoundWindow<T> extends DataWindow<T> implements Serializable {
 		}
 	}
 	
+	/**
+	 * Called after an item is added. Override for incremental processing 
+	 * @param obj
+	 */
+	protected void onAdd(T obj) {
+	}
+	
+	/**
+	 * Called before the oldest items are removed while sliding. Override for incremental processing 
+	 * @param numRemoved
+	 */
+	protected void onRemove(int numRemoved) {
+	}
+	
+	/**
+	 * Adds an item when restoring from serialized state, without sliding or processing
+	 * @param obj
+	 */
+	protected void restore(T obj) {
+		dataWindow.add(obj);
+		if (null != orderStats) {
+			orderStats.add(((Number)obj).doubleValue());
+		}
+		onAdd(obj);
+	}
+	
+	/**
+	 * @return true if order statistics are tracked
+	 */
+	public boolean hasOrderStatistics() {
+		return null != orderStats;
+	}
+	
+	/**
+	 * @param percentile between 0 and 100
+	 * @return
+	 */
+	public double getPercentile(double percentile) {
+		if (null == orderStats) {
+			throw new IllegalStateException("order statistics not tracked for this window");
+		}
+		return orderStats.getPercentile(percentile);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.DataWindow#clear()
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		if (null != orderStats) {
+			orderStats.clear();
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#isFull()
 	 */
@@ -17,7 +17,7 @@
 
 package org.hoidla.window;
 
-import org.chombo.stats.SimpleStat;
+import org.hoidla.util.OrderStatisticTree;
 import org.hoidla.util.TimeStamped;
 import org.hoidla.util.TimeStampedData;
 
@@ -32,7 +32,10 @@ public class TimeBoundStatsWindow extends TimeBoundWindow {
 	private double min;
 	private double max;
 	private double median;
-	private SimpleStat stats = new SimpleStat();
+	private OrderStatisticTree orderStats = new OrderStatisticTree(64);
+	private int numValues;
+	private double runningMean;
+	private double sumSqDiff;
 
 	public TimeBoundStatsWindow(long timeSpan, long timeStep, long processingTimeStep) {
 		super(timeSpan, timeStep, processingTimeStep);
@@ -46,21 +49,78 @@ public class TimeBoundStatsWindow extends TimeBoundWindow {
 		super(timeSpan);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.DataWindow#add(java.lang.Object)
+	 */
+	@Override
+	public void add(TimeStamped obj) {
+		//update stats before super class expires and processes
+		double value = toValue(obj);
+		orderStats.add(value);
+		++numValues;
+		double diff = value - runningMean;
+		runningMean += diff / numValues;
+		sumSqDiff += diff * (value - runningMean);
+		super.add(obj);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.TimeBoundWindow#onRemove(org.hoidla.util.TimeStamped)
+	 */
+	@Override
+	protected void onRemove(TimeStamped obj) {
+		double value = toValue(obj);
+		orderStats.remove(value);
+		if (numValues == 1) {
+			numValues = 0;
+			runningMean = 0;
+			sumSqDiff = 0;
+		} else {
+			--numValues;
+			double diff = value - runningMean;
+			runningMean -= diff / numValues;
+			sumSqDiff -= diff * (value - runningMean);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.hoidla.window.DataWindow#clear()
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		orderStats.clear();
+		numValues = 0;
+		runningMean = 0;
+		sumSqDiff = 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#processFullWindow()
 	 */
 	public void processFullWindow() {
-		for (TimeStamped val : dataWindow) {
-			TimeStampedData<Double> tsData = (TimeStampedData<Double>)val;
-			double dValue = tsData.getValue();
-			stats.add(dValue);
-		}
-		mean = stats.getMean();
-		stdDev = stats.getStdDev();
-		min = stats.getMin();
-		max = stats.getMax();
-		median = stats.getMedian();
-		stats.initialize();
+		mean = runningMean;
+		stdDev = sumSqDiff > 0 ? Math.sqrt(sumSqDiff / numValues) : 0;
+		min = orderStats.getMin();
+		max = orderStats.getMax();
+		median = orderStats.getMedian();
+	}
+	
+	/**
+	 * @param percentile between 0 and 100
+	 * @return percentile of current window content
+	 */
+	public double getPercentile(double percentile) {
+		return orderStats.getPercentile(percentile);
+	}
+	
+	/**
+	 * @param obj
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private double toValue(TimeStamped obj) {
+		return ((TimeStampedData<Double>)obj).getValue();
 	}
 	
 	/**
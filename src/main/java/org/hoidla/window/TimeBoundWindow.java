@@ -18,9 +18,9 @@
 package org.hoidla.window;
 
 import java.io.Serializable;
-import java.util.ListIterator;
 
 import org.hoidla.util.TimeStamped;
+import org.hoidla.util.TimeStampedRingBuffer;
 
 /**
  * Time bound window
@@ -32,12 +32,14 @@ public class TimeBoundWindow extends DataWindow<TimeStamped> implements Serializ
 	protected long timeStep = 0;
 	protected long processingTimeStep = -1;
 	protected long lastProcessedTime = -1;
+	protected TimeStampedRingBuffer timeStampedWindow;
 	
 	/**
 	 * @param timeSpan
 	 */
 	public TimeBoundWindow(long timeSpan) {
-		super(true);
+		super(new TimeStampedRingBuffer(64));
+		timeStampedWindow = (TimeStampedRingBuffer)dataWindow;
 		this.timeSpan = timeSpan;
 	}
 	
@@ -65,58 +67,70 @@ public class TimeBoundWindow extends DataWindow<TimeStamped> implements Serializ
 	@Override
 	public void expire() {
 		//slide by timeStep duration
-		TimeStamped earliest = getEarliest();
-		TimeStamped latest = getLatest();
-		if ((latest.getTimeStamp() - earliest.getTimeStamp()) > timeSpan) {
-			//System.out.println("in expire earliest: " + earliest.getTimeStamp() + 
-			//		" latest: " + latest.getTimeStamp() + " window size: " + size());
-			
+		long latestTime = timeStampedWindow.getLatestTimeStamp();
+		if ((latestTime - timeStampedWindow.getEarliestTimeStamp()) > timeSpan) {
 			//process window
-			processFullWindowHelper(earliest, latest);
+			processFullWindowHelper(latestTime);
 			
-			//manage window
-			long earliestRetained = latest.getTimeStamp() - timeSpan + timeStep;
-			ListIterator<TimeStamped> iter =  dataWindow.listIterator();
-			int numRemoved = 0;
-			while (iter.hasNext()) {
-				if (iter.next().getTimeStamp() < earliestRetained) {
-					iter.remove();
-					++numRemoved;
-				}
+			//manage window, items being in time order only the head needs to advance
+			long earliestRetained = latestTime - timeSpan + timeStep;
+			int numRemoved = timeStampedWindow.countBefore(earliestRetained);
+			for (int i = 0; i < numRemoved; ++i) {
+				onRemove(timeStampedWindow.get(i));
 			}
-			//System.out.println("in expire num of items removed: " + numRemoved + " window size: " + size());
+			timeStampedWindow.removeFirst(numRemoved);
 		}
 	}
 	
 	/**
-	 * @param earliest
-	 * @param latest
+	 * @param latestTime
 	 * @return
 	 */
-	private boolean processFullWindowHelper(TimeStamped earliest, TimeStamped latest) {
+	private boolean processFullWindowHelper(long latestTime) {
 		boolean processed = false;
 		if (processingTimeStep > 0 && lastProcessedTime > 0) {
-			if (latest.getTimeStamp() - lastProcessedTime > processingTimeStep) {
+			if (latestTime - lastProcessedTime > processingTimeStep) {
 				processFullWindow();
-				lastProcessedTime = latest.getTimeStamp();
+				lastProcessedTime = latestTime;
 				processed = true;
 			}
 		} else {
 			//System.out.println("calling processFullWindow");
 			processFullWindow();
-			lastProcessedTime = latest.getTimeStamp();
+			lastProcessedTime = latestTime;
 			processed = true;
 		}
 		
 		return processed;
 	}
 
+	/**
+	 * Called before an expired item is removed. Override for incremental processing 
+	 * @param obj
+	 */
+	protected void onRemove(TimeStamped obj) {
+	}
+
 	/* (non-Javadoc)
 	 * @see org.hoidla.window.DataWindow#isFull()
 	 */
 	public boolean isFull() {
-		TimeStamped earliest = getEarliest();
-		TimeStamped latest = getLatest();
-		return (latest.getTimeStamp() - earliest.getTimeStamp()) > (0.95 * timeSpan);
+		return (timeStampedWindow.getLatestTimeStamp() - timeStampedWindow.getEarliestTimeStamp()) > (0.95 * timeSpan);
+	}
+	
+	/**
+	 * @param index
+	 * @return time stamp without accessing the item
+	 */
+	public long getTimeStamp(int index) {
+		return timeStampedWindow.getTimeStamp(index);
+	}
+	
+	/**
+	 * @param index
+	 * @return numeric value of item without casting, NaN if not numeric
+	 */
+	public double getValue(int index) {
+		return timeStampedWindow.getValue(index);
 	}
 }
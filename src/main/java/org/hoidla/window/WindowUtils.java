@@ -24,6 +24,7 @@ import org.apache.commons.math3.stat.Frequency;
 import org.apache.commons.math3.stat.StatUtils;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.chombo.util.BasicUtils;
+import org.hoidla.util.DoubleRingBuffer;
 import org.hoidla.util.ExplicitlyTimeStamped;
 import org.hoidla.util.ImplicitlyTimeStamped;
 import org.hoidla.util.TimeStamped;
@@ -40,6 +41,9 @@ public  class WindowUtils {
 	 * @return array of doubles
 	 */
 	public static <T> double[] getDoubleArray(SizeBoundWindow<T> window) {
+		if (window.getDataWindow() instanceof DoubleRingBuffer) {
+			return ((DoubleRingBuffer)window.getDataWindow()).toDoubleArray();
+		}
 		double[] data = new double[window.size()];
 		for (int i = 0; i < window.size(); ++i) {
 			T item  = window.get(i);
@@ -82,22 +86,9 @@ public  class WindowUtils {
 	public static  double[] getDoubleArray(TimeBoundWindow window) {
 		double[] data = new double[window.size()];
 		for (int i = 0; i < window.size(); ++i) {
-			TimeStamped timeStapmed  = window.get(i);
-			Object value = null;
-			if (timeStapmed instanceof ExplicitlyTimeStamped) {
-				value = ((ExplicitlyTimeStamped)timeStapmed).getValue();
-			} else if (timeStapmed instanceof ExplicitlyTimeStamped) {
-				value = ((ImplicitlyTimeStamped)timeStapmed).getValue();
-			} 
-			
-			//value
-			if (value instanceof Integer) {
-				data[i] = (Integer)value;
-			} else if (value instanceof Long) {
-				data[i] = (Long)value;
-			} else if (value instanceof Double) {
-				data[i] = (Double)value;
-			}
+			//values are extracted once when added to window
+			double value = window.getValue(i);
+			data[i] = Double.isNaN(value) ? 0 : value;
 		}
 		return data;
 	}
@@ -156,8 +147,21 @@ public  class WindowUtils {
 	 * @return
 	 */
 	public static <T> double getMedian(SizeBoundWindow<T> window) {
+		return getPercentile(window, 50);
+	}
+
+	/**
+	 * Percentile, from order statistics if tracked by the window
+	 * @param window
+	 * @param percentile
+	 * @return
+	 */
+	public static <T> double getPercentile(SizeBoundWindow<T> window, double percentile) {
+		if (window.hasOrderStatistics()) {
+			return window.getPercentile(percentile);
+		}
 		double[] data = getDoubleArray(window);
-		return StatUtils.percentile(data, 50);
+		return StatUtils.percentile(data, percentile);
 	}
 
 	/**
@@ -309,8 +313,21 @@ public  class WindowUtils {
 	 * @return
 	 */
 	public static double getMedian(TimeBoundWindow window) {
+		return getPercentile(window, 50);
+	}
+
+	/**
+	 * Percentile, from order statistics if tracked by the window
+	 * @param window
+	 * @param percentile
+	 * @return
+	 */
+	public static double getPercentile(TimeBoundWindow window, double percentile) {
+		if (window instanceof TimeBoundStatsWindow) {
+			return ((TimeBoundStatsWindow)window).getPercentile(percentile);
+		}
 		double[] data = getDoubleArray(window);
-		return StatUtils.percentile(data, 50);
+		return StatUtils.percentile(data, percentile);
 	}
 
 	/**
@@ -0,0 +1,117 @@
+/*
+ * hoidla: various algorithms for sequence data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.analyze;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * FFT checked against direct DFT
+ * @author pranab
+ *
+ */
+public class FastFourierTransformTest {
+	private static final double TOLERANCE = 1e-9;
+	
+	/**
+	 * @param re
+	 * @param im
+	 * @return direct DFT with real and imaginary parts as rows
+	 */
+	static double[][] dft(double[] re, double[] im) {
+		int n = re.length;
+		double[][] out = new double[2][n];
+		for (int k = 0; k < n; ++k) {
+			for (int t = 0; t < n; ++t) {
+				double angle = -2 * Math.PI * k * t / n;
+				double cos = Math.cos(angle);
+				double sin = Math.sin(angle);
+				out[0][k] += re[t] * cos - im[t] * sin;
+				out[1][k] += re[t] * sin + im[t] * cos;
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * @param n
+	 * @param random
+	 * @return
+	 */
+	static double[] randomData(int n, Random random) {
+		double[] data = new double[n];
+		for (int i = 0; i < n; ++i) {
+			data[i] = random.nextGaussian();
+		}
+		return data;
+	}
+	
+	@Test
+	public void testComplexFft() {
+		Random random = new Random(23);
+		for (int n = 1; n <= 256; n *= 2) {
+			double[] re = randomData(n, random);
+			double[] im = randomData(n, random);
+			double[][] expected = dft(re, im);
+			FastFourierTransform.fft(re, im);
+			for (int k = 0; k < n; ++k) {
+				assertEquals(re[k], expected[0][k], TOLERANCE * n);
+				assertEquals(im[k], expected[1][k], TOLERANCE * n);
+			}
+		}
+	}
+	
+	@Test
+	public void testInverse() {
+		Random random = new Random(29);
+		double[] re = randomData(64, random);
+		double[] im = randomData(64, random);
+		double[] origRe = re.clone();
+		double[] origIm = im.clone();
+		FastFourierTransform.fft(re, im);
+		FastFourierTransform.ifft(re, im);
+		for (int k = 0; k < re.length; ++k) {
+			assertEquals(re[k], origRe[k], TOLERANCE);
+			assertEquals(im[k], origIm[k], TOLERANCE);
+		}
+	}
+	
+	@Test
+	public void testRealFft() {
+		Random random = new Random(31);
+		for (int n = 2; n <= 256; n *= 2) {
+			double[] data = randomData(n, random);
+			double[][] expected = dft(data, new double[n]);
+			double[] re = new double[n / 2 + 1];
+			double[] im = new double[n / 2 + 1];
+			FastFourierTransform.realFft(data, re, im);
+			for (int k = 0; k <= n / 2; ++k) {
+				assertEquals(re[k], expected[0][k], TOLERANCE * n);
+				assertEquals(im[k], expected[1][k], TOLERANCE * n);
+			}
+		}
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testLengthMismatch() {
+		FastFourierTransform.fft(new double[8], new double[4]);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * hoidla: various algorithms for sequence data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.analyze;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class PeltChangePointDetectionTest {
+	
+	/**
+	 * @param bounds segment boundaries
+	 * @param means
+	 * @param stdDevs
+	 * @param seed
+	 * @return
+	 */
+	private double[] createSeries(int[] bounds, double[] means, double[] stdDevs, long seed) {
+		Random random = new Random(seed);
+		double[] data = new double[bounds[bounds.length - 1]];
+		int seg = 0;
+		for (int i = 0; i < data.length; ++i) {
+			if (i == bounds[seg]) {
+				++seg;
+			}
+			data[i] = means[seg] + stdDevs[seg] * random.nextGaussian();
+		}
+		return data;
+	}
+	
+	/**
+	 * @param changePoints
+	 * @param expected
+	 * @param tolerance
+	 */
+	private void assertChangePoints(ChangePoint[] changePoints, int[] expected, int tolerance) {
+		assertEquals(changePoints.length, expected.length);
+		for (int i = 0; i < expected.length; ++i) {
+			int index = changePoints[i].getIndex();
+			assertTrue(Math.abs(index - expected[i]) <= tolerance, "expected " + expected[i] + " found " + index);
+			assertTrue(changePoints[i].getDiscrepancy() > 0);
+		}
+	}
+	
+	@Test
+	public void testMeanShift() {
+		double[] data = createSeries(new int[]{300, 700, 1000}, new double[]{0, 3, 1}, new double[]{1, 1, 1}, 3);
+		ChangePoint[] changePoints = new PeltChangePointDetection(data, new MeanShiftCost()).
+			withMinSegmentLength(10).detect();
+		assertChangePoints(changePoints, new int[]{300, 700}, 3);
+	}
+	
+	@Test
+	public void testVarianceShift() {
+		double[] data = createSeries(new int[]{500, 1000}, new double[]{2, 2}, new double[]{1, 4}, 5);
+		ChangePoint[] changePoints = new PeltChangePointDetection(data, new VarianceShiftCost()).
+			withMinSegmentLength(10).detect();
+		assertChangePoints(changePoints, new int[]{500}, 10);
+	}
+	
+	@Test
+	public void testDistributionShift() {
+		double[] data = createSeries(new int[]{400, 800}, new double[]{0, 2}, new double[]{1, 1}, 7);
+		ChangePoint[] changePoints = new PeltChangePointDetection(data).withMinSegmentLength(10).detect();
+		assertChangePoints(changePoints, new int[]{400}, 5);
+	}
+	
+	@Test
+	public void testNoShift() {
+		double[] data = createSeries(new int[]{1000}, new double[]{1}, new double[]{1}, 9);
+		assertEquals(new PeltChangePointDetection(data, new MeanShiftCost()).detect().length, 0);
+		assertEquals(new PeltChangePointDetection(data, new VarianceShiftCost()).detect().length, 0);
+	}
+	
+	@Test
+	public void testMatchesBinarySearch() {
+		double[] data = createSeries(new int[]{250, 600, 900}, new double[]{0, -2, 2}, new double[]{1, 1, 1}, 13);
+		ChangePoint[] pelt = new PeltChangePointDetection(data, new MeanShiftCost()).
+			withMinSegmentLength(10).detect();
+		ChangePoint[] binSeg = new ChangePointDetection(data, new MeanShiftCost()).detectByBinarySearch(2, 10);
+		assertEquals(pelt.length, 2);
+		assertEquals(binSeg.length, 2);
+		
+		//binary search change points are in order of discrepancy
+		int[] binSegIndexes = new int[]{binSeg[0].getIndex(), binSeg[1].getIndex()};
+		Arrays.sort(binSegIndexes);
+		for (int i = 0; i < 2; ++i) {
+			assertTrue(Math.abs(pelt[i].getIndex() - binSegIndexes[i]) <= 2);
+		}
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testMinSegmentLength() {
+		new PeltChangePointDetection(new double[10]).withMinSegmentLength(0);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.hoidla.stream.SketchSerializationTest.item;
+import static org.hoidla.stream.SketchSerializationTest.roundTrip;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * No false negative, false positive rate, merge and serialization of the blocked bloom filter
+ * @author pranab
+ *
+ */
+public class BlockedBloomFilterTest {
+	private static final int NUM_ITEMS = 10000;
+	private static final double FALSE_POS_PROB = 0.01;
+	
+	/**
+	 * @param filter
+	 * @return fraction of items never added that are reported as existing
+	 */
+	private double falsePositiveRate(BlockedBloomFilter filter) {
+		int falsePos = 0;
+		for (int i = NUM_ITEMS; i < 11 * NUM_ITEMS; ++i) {
+			if (filter.exists(item(i))) {
+				++falsePos;
+			}
+		}
+		return (double)falsePos / (10 * NUM_ITEMS);
+	}
+	
+	@Test
+	public void testNoFalseNegative() {
+		BlockedBloomFilter filter = new BlockedBloomFilter(NUM_ITEMS, FALSE_POS_PROB);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			filter.add(item(i));
+		}
+		BlockedBloomFilter copy = new BlockedBloomFilter(NUM_ITEMS, FALSE_POS_PROB);
+		roundTrip(filter, copy);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			assertTrue(filter.exists(item(i)));
+			assertTrue(copy.exists(item(i)));
+		}
+		assertTrue(falsePositiveRate(filter) < 2 * FALSE_POS_PROB);
+		
+		filter.clear();
+		assertFalse(filter.exists(item(0)));
+	}
+	
+	@Test
+	public void testMerge() {
+		BlockedBloomFilter first = new BlockedBloomFilter(NUM_ITEMS, FALSE_POS_PROB);
+		BlockedBloomFilter second = new BlockedBloomFilter(NUM_ITEMS, FALSE_POS_PROB);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			(i % 2 == 0 ? first : second).add(item(i));
+		}
+		first.merge(second);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			assertTrue(first.exists(item(i)));
+		}
+	}
+}
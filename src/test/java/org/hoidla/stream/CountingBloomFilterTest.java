@@ -0,0 +1,70 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.hoidla.stream.SketchSerializationTest.item;
+import static org.hoidla.stream.SketchSerializationTest.roundTrip;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * Counts, removal and serialization of the counting bloom filter
+ * @author pranab
+ *
+ */
+public class CountingBloomFilterTest {
+	private static final int NUM_ITEMS = 10000;
+	private static final double FALSE_POS_PROB = 0.01;
+	
+	@Test
+	public void testRemove() {
+		CountingBloomFilter filter = new CountingBloomFilter(NUM_ITEMS, FALSE_POS_PROB);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			filter.add(item(i));
+		}
+		filter.add(item(0));
+		assertTrue(filter.getCount(item(0)) >= 2);
+		
+		//removed items are gone, rest still there
+		for (int i = 0; i < NUM_ITEMS; i += 2) {
+			assertTrue(filter.remove(item(i)));
+		}
+		for (int i = 1; i < NUM_ITEMS; i += 2) {
+			assertTrue(filter.exists(item(i)));
+		}
+		int falsePos = 0;
+		for (int i = 2; i < NUM_ITEMS; i += 2) {
+			if (filter.exists(item(i))) {
+				++falsePos;
+			}
+		}
+		assertTrue(falsePos < NUM_ITEMS * FALSE_POS_PROB);
+		
+		//added twice so still there after one removal
+		assertTrue(filter.exists(item(0)));
+		
+		CountingBloomFilter copy = new CountingBloomFilter(NUM_ITEMS, FALSE_POS_PROB);
+		roundTrip(filter, copy);
+		for (int i = 1; i < NUM_ITEMS; i += 2) {
+			assertTrue(copy.exists(item(i)));
+			assertEquals(copy.getCount(item(i)), filter.getCount(item(i)));
+		}
+	}
+}
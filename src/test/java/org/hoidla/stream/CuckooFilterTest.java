@@ -0,0 +1,105 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.hoidla.stream.SketchSerializationTest.item;
+import static org.hoidla.stream.SketchSerializationTest.roundTrip;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class CuckooFilterTest {
+	private static final int NUM_ITEMS = 10000;
+	private static final double FALSE_POS_PROB = 0.01;
+	
+	@Test
+	public void testNoFalseNegative() {
+		CuckooFilter filter = new CuckooFilter(NUM_ITEMS, FALSE_POS_PROB);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			assertTrue(filter.add(item(i)));
+		}
+		assertEquals(filter.getCount(), NUM_ITEMS);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			assertTrue(filter.exists(item(i)));
+		}
+		int falsePos = 0;
+		for (int i = NUM_ITEMS; i < 11 * NUM_ITEMS; ++i) {
+			if (filter.exists(item(i))) {
+				++falsePos;
+			}
+		}
+		assertTrue(falsePos < 20 * NUM_ITEMS * FALSE_POS_PROB);
+	}
+	
+	@Test
+	public void testRemove() {
+		CuckooFilter filter = new CuckooFilter(NUM_ITEMS, FALSE_POS_PROB);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			filter.add(item(i));
+		}
+		for (int i = 0; i < NUM_ITEMS; i += 2) {
+			assertTrue(filter.remove(item(i)));
+		}
+		assertEquals(filter.getCount(), NUM_ITEMS / 2);
+		for (int i = 1; i < NUM_ITEMS; i += 2) {
+			assertTrue(filter.exists(item(i)));
+		}
+		int falsePos = 0;
+		for (int i = 0; i < NUM_ITEMS; i += 2) {
+			if (filter.exists(item(i))) {
+				++falsePos;
+			}
+		}
+		assertTrue(falsePos < NUM_ITEMS * FALSE_POS_PROB);
+		
+		//duplicates are removed one at a time
+		filter.add("dup");
+		filter.add("dup");
+		assertTrue(filter.remove("dup"));
+		assertTrue(filter.exists("dup"));
+		assertTrue(filter.remove("dup"));
+		
+		filter.clear();
+		assertEquals(filter.getCount(), 0);
+		assertFalse(filter.exists(item(1)));
+	}
+	
+	@Test
+	public void testSerialization() {
+		CuckooFilter filter = new CuckooFilter(NUM_ITEMS, FALSE_POS_PROB).withSeed(7);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			filter.add(item(i));
+		}
+		CuckooFilter copy = new CuckooFilter(100, 0.1);
+		roundTrip(filter, copy);
+		assertEquals(copy.getCount(), filter.getCount());
+		assertEquals(copy.getFingerprintBits(), filter.getFingerprintBits());
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			assertTrue(copy.exists(item(i)));
+		}
+		for (int i = NUM_ITEMS; i < 2 * NUM_ITEMS; ++i) {
+			assertEquals(copy.exists(item(i)), filter.exists(item(i)));
+		}
+	}
+}
@@ -0,0 +1,545 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.hoidla.util.BoundedSortedObjects;
+import org.hoidla.util.Expirer;
+import org.testng.annotations.Test;
+
+/**
+ * Merging sketches built on two parts of a stream, checked against the error bounds for the 
+ * combined stream and against a sketch built on the combined stream
+ * @author pranab
+ *
+ */
+public class MergeableTest {
+	
+	/**
+	 * @param size
+	 * @param offset shifts the heavy items, so that each part has items the other misses
+	 * @param seed
+	 * @return skewed stream
+	 */
+	private List<Integer> createStream(int size, int offset, long seed) {
+		Random random = new Random(seed);
+		List<Integer> stream = new ArrayList<Integer>(size);
+		for (int i = 0; i < size; ++i) {
+			stream.add(offset + (int)(Math.pow(random.nextDouble(), 4) * 1000));
+		}
+		return stream;
+	}
+	
+	/**
+	 * @param streams
+	 * @return true counts
+	 */
+	private Map<Integer, Long> countAll(List<Integer>... streams) {
+		Map<Integer, Long> counts = new HashMap<Integer, Long>();
+		for (List<Integer> stream : streams) {
+			for (Integer item : stream) {
+				Long count = counts.get(item);
+				counts.put(item, null == count ? 1 : count + 1);
+			}
+		}
+		return counts;
+	}
+	
+	/**
+	 * @param items
+	 * @return item counts
+	 */
+	private Map<Object, Long> toMap(List<BoundedSortedObjects.SortableObject> items) {
+		Map<Object, Long> counts = new HashMap<Object, Long>();
+		for (BoundedSortedObjects.SortableObject item : items) {
+			counts.put(item.getItem(), (long)item.getRank());
+		}
+		return counts;
+	}
+	
+	@Test
+	public void testSpaceSaving() {
+		int maxCounters = 50;
+		List<Integer> first = createStream(20000, 0, 1);
+		List<Integer> second = createStream(30000, 25, 2);
+		Map<Integer, Long> trueCounts = countAll(first, second);
+		long total = first.size() + second.size();
+		
+		SpaceSavingFrequent merged = new SpaceSavingFrequent(maxCounters);
+		SpaceSavingFrequent other = new SpaceSavingFrequent(maxCounters);
+		SpaceSavingFrequent combined = new SpaceSavingFrequent(maxCounters);
+		for (Integer item : first) {
+			merged.add(item);
+			combined.add(item);
+		}
+		for (Integer item : second) {
+			other.add(item);
+			combined.add(item);
+		}
+		merged.merge(other);
+		
+		int numTracked = 0;
+		int numMissingOnOneSide = 0;
+		for (Map.Entry<Integer, Long> entry : trueCounts.entrySet()) {
+			Integer item = entry.getKey();
+			long trueCount = entry.getValue();
+			long count = merged.getCount(item);
+			if (count > 0) {
+				//over estimate with error bounding the over estimation
+				++numTracked;
+				assertTrue(count >= trueCount, "item " + item);
+				assertTrue(count - merged.getError(item) <= trueCount, "item " + item);
+				if (combined.getCount(item) > 0) {
+					assertTrue(Math.abs(count - combined.getCount(item)) <= total / maxCounters);
+				}
+			} else {
+				assertTrue(trueCount <= total / maxCounters, "item " + item);
+			}
+			if (trueCount > total / maxCounters) {
+				assertTrue(count > 0, "item " + item);
+			}
+		}
+		assertEquals(numTracked, maxCounters);
+		
+		//items counted on one side only were padded with the min count of the other side
+		for (Integer item : countAll(first).keySet()) {
+			if (other.getCount(item) == 0 && merged.getCount(item) > 0) {
+				++numMissingOnOneSide;
+			}
+		}
+		assertTrue(numMissingOnOneSide > 0);
+		
+		List<Object> mergedGuaranteed = new ArrayList<Object>();
+		for (BoundedSortedObjects.SortableObject item : merged.getGuaranteed(0.02)) {
+			mergedGuaranteed.add(item.getItem());
+			assertTrue(trueCounts.get(item.getItem()) > 0.02 * total);
+		}
+		for (BoundedSortedObjects.SortableObject item : combined.getGuaranteed(0.04)) {
+			assertTrue(mergedGuaranteed.contains(item.getItem()));
+		}
+	}
+	
+	@Test
+	public void testSpaceSavingMinCountPadding() {
+		//a 5, c 4, e 3 with error 2 after replacing b, min count 3
+		SpaceSavingFrequent merged = new SpaceSavingFrequent(3);
+		addAll(merged, "a", 5, "c", 4, "b", 2, "e", 1);
+		
+		//b 6, d 3, a 3 with error 2 after replacing f, min count 3
+		SpaceSavingFrequent other = new SpaceSavingFrequent(3);
+		addAll(other, "b", 6, "d", 3, "f", 2, "a", 1);
+		merged.merge(other);
+		
+		//items missing on one side get the min count of that side as count and error
+		assertEquals(merged.getCount("b"), 9);
+		assertEquals(merged.getError("b"), 3);
+		assertEquals(merged.getCount("a"), 8);
+		assertEquals(merged.getError("a"), 2);
+		assertEquals(merged.getCount("c"), 7);
+		assertEquals(merged.getError("c"), 3);
+		assertEquals(merged.getCount("d"), 0);
+		assertEquals(merged.getCount("e"), 0);
+		assertEquals(merged.get().size(), 3);
+	}
+	
+	/**
+	 * @param finder
+	 * @param itemsWithCount item followed by how many times it's added
+	 */
+	private void addAll(FrequentItems.FrequentItemsFinder finder, Object... itemsWithCount) {
+		for (int i = 0; i < itemsWithCount.length; i += 2) {
+			for (int j = 0; j < (Integer)itemsWithCount[i + 1]; ++j) {
+				finder.add(itemsWithCount[i]);
+			}
+		}
+	}
+	
+	/**
+	 * @param finder
+	 * @param count
+	 * @param start
+	 */
+	private void addDistinct(FrequentItems.FrequentItemsFinder finder, int count, int start) {
+		for (int i = 0; i < count; ++i) {
+			finder.add(start + i);
+		}
+	}
+	
+	@Test
+	public void testLossyCountingMissingItemBound() {
+		//bucket size 100, stream size 10000 on each side
+		MankuMotwaniLossyCounting merged = new MankuMotwaniLossyCounting(0.01, 10).withBoundaryPruning(true);
+		MankuMotwaniLossyCounting other = new MankuMotwaniLossyCounting(0.01, 10).withBoundaryPruning(true);
+		
+		//x is pruned on the other side, y on this side, after being counted 20 times
+		addAll(merged, "x", 190, "y", 20);
+		addDistinct(merged, 9790, 100000);
+		addAll(other, "y", 190, "x", 20);
+		addDistinct(other, 9790, 200000);
+		assertEquals(toMap(merged.getFrequent(0.01)).get("y"), null);
+		assertEquals(toMap(other.getFrequent(0.01)).get("x"), null);
+		merged.merge(other);
+		
+		//210 is above error times stream size of 200, so that x and y should survive the 
+		//pruning on merge, with the other side's bucket as delta
+		Map<Object, Long> counts = toMap(merged.getFrequent(0.01));
+		assertEquals((long)counts.get("x"), 190);
+		assertEquals((long)counts.get("y"), 190);
+		assertEquals(counts.size(), 2);
+	}
+	
+	@Test
+	public void testLossyCounting() {
+		double errorLimit = 0.005;
+		List<Integer> first = createStream(20000, 0, 3);
+		List<Integer> second = createStream(30050, 25, 4);
+		Map<Integer, Long> trueCounts = countAll(first, second);
+		long total = first.size() + second.size();
+		
+		MankuMotwaniLossyCounting merged = new MankuMotwaniLossyCounting(errorLimit, 20).withBoundaryPruning(true);
+		MankuMotwaniLossyCounting other = new MankuMotwaniLossyCounting(errorLimit, 20).withBoundaryPruning(true);
+		MankuMotwaniLossyCounting combined = new MankuMotwaniLossyCounting(errorLimit, 20).withBoundaryPruning(true);
+		for (Integer item : first) {
+			merged.add(item);
+			combined.add(item);
+		}
+		for (Integer item : second) {
+			other.add(item);
+			combined.add(item);
+		}
+		merged.merge(other);
+		
+		//support equal to error gives all tracked items
+		Map<Object, Long> counts = toMap(merged.getFrequent(errorLimit));
+		Map<Object, Long> combinedCounts = toMap(combined.getFrequent(errorLimit));
+		for (Map.Entry<Integer, Long> entry : trueCounts.entrySet()) {
+			long trueCount = entry.getValue();
+			Long count = counts.get(entry.getKey());
+			if (null != count) {
+				//under estimate by at most error times stream size
+				assertTrue(count <= trueCount, "item " + entry.getKey());
+				assertTrue(trueCount - count <= errorLimit * total, "item " + entry.getKey());
+				Long combinedCount = combinedCounts.get(entry.getKey());
+				if (null != combinedCount) {
+					assertTrue(Math.abs(count - combinedCount) <= errorLimit * total);
+				}
+			} else {
+				assertTrue(trueCount <= errorLimit * total, "item " + entry.getKey());
+			}
+		}
+		
+		//no false negative for support
+		double support = 0.01;
+		Set<Object> frequent = new HashSet<Object>();
+		for (BoundedSortedObjects.SortableObject item : merged.getFrequent(support)) {
+			frequent.add(item.getItem());
+		}
+		for (Map.Entry<Integer, Long> entry : trueCounts.entrySet()) {
+			if (entry.getValue() >= support * total) {
+				assertTrue(frequent.contains(entry.getKey()), "item " + entry.getKey());
+			}
+		}
+		for (BoundedSortedObjects.SortableObject item : combined.getFrequent(support)) {
+			if (trueCounts.get(item.getItem()) >= (support + errorLimit) * total) {
+				assertTrue(frequent.contains(item.getItem()));
+			}
+		}
+	}
+	
+	@Test
+	public void testLossyCountingMergedKeepsCounting() {
+		//merged one continues with the combined bucket bound
+		double errorLimit = 0.01;
+		List<Integer> first = createStream(10000, 0, 5);
+		List<Integer> second = createStream(10000, 25, 6);
+		List<Integer> third = createStream(10000, 50, 7);
+		Map<Integer, Long> trueCounts = countAll(first, second, third);
+		long total = first.size() + second.size() + third.size();
+		
+		MankuMotwaniLossyCounting merged = new MankuMotwaniLossyCounting(errorLimit, 20).withBoundaryPruning(true);
+		MankuMotwaniLossyCounting other = new MankuMotwaniLossyCounting(errorLimit, 20).withBoundaryPruning(true);
+		for (Integer item : first) {
+			merged.add(item);
+		}
+		for (Integer item : second) {
+			other.add(item);
+		}
+		merged.merge(other);
+		for (Integer item : third) {
+			merged.add(item);
+		}
+		
+		Map<Object, Long> counts = toMap(merged.getFrequent(errorLimit));
+		for (Map.Entry<Integer, Long> entry : trueCounts.entrySet()) {
+			Long count = counts.get(entry.getKey());
+			long trueCount = entry.getValue();
+			if (null != count) {
+				assertTrue(count <= trueCount);
+				assertTrue(trueCount - count <= errorLimit * total, "item " + entry.getKey());
+			} else {
+				assertTrue(trueCount <= errorLimit * total, "item " + entry.getKey());
+			}
+		}
+	}
+	
+	@Test
+	public void testMisraGries() {
+		int maxBucket = 40;
+		List<Integer> first = createStream(20000, 0, 8);
+		List<Integer> second = createStream(30000, 25, 9);
+		Map<Integer, Long> trueCounts = countAll(first, second);
+		long total = first.size() + second.size();
+		
+		MisraGriesFrequent merged = new MisraGriesFrequent(maxBucket);
+		MisraGriesFrequent other = new MisraGriesFrequent(maxBucket);
+		LazyMisraGriesFrequent lazyMerged = new LazyMisraGriesFrequent(maxBucket);
+		LazyMisraGriesFrequent lazyOther = new LazyMisraGriesFrequent(maxBucket);
+		for (Integer item : first) {
+			merged.add(item);
+			lazyMerged.add(item);
+		}
+		for (Integer item : second) {
+			other.add(item);
+			lazyOther.add(item);
+		}
+		merged.merge(other);
+		lazyMerged.merge(lazyOther);
+		
+		Map<Object, Long> counts = toMap(merged.get());
+		assertTrue(counts.size() <= maxBucket);
+		for (Map.Entry<Integer, Long> entry : trueCounts.entrySet()) {
+			long trueCount = entry.getValue();
+			Long count = counts.get(entry.getKey());
+			long lazyCount = lazyMerged.getCount(entry.getKey());
+			
+			//under estimate by at most stream size over number of counters plus one
+			long estimate = null != count ? count : 0;
+			assertTrue(estimate <= trueCount);
+			assertTrue(trueCount - estimate <= total / (maxBucket + 1), "item " + entry.getKey());
+			assertTrue(lazyCount <= trueCount);
+			assertTrue(trueCount - lazyCount <= total / (maxBucket + 1), "item " + entry.getKey());
+		}
+		assertTrue(lazyMerged.get().size() <= maxBucket);
+	}
+	
+	@Test
+	public void testMisraGriesCutoff() {
+		MisraGriesFrequent merged = new MisraGriesFrequent(2);
+		MisraGriesFrequent other = new MisraGriesFrequent(2);
+		LazyMisraGriesFrequent lazyMerged = new LazyMisraGriesFrequent(2);
+		LazyMisraGriesFrequent lazyOther = new LazyMisraGriesFrequent(2);
+		addAll(merged, "a", 5, "b", 3);
+		addAll(lazyMerged, "a", 5, "b", 3);
+		addAll(other, "c", 4, "b", 1);
+		addAll(lazyOther, "c", 4, "b", 1);
+		merged.merge(other);
+		lazyMerged.merge(lazyOther);
+		
+		//a 5, b 4, c 4 with third largest count subtracted
+		Map<Object, Long> counts = toMap(merged.get());
+		assertEquals(counts.size(), 1);
+		assertEquals((long)counts.get("a"), 1);
+		counts = toMap(lazyMerged.get());
+		assertEquals(counts.size(), 1);
+		assertEquals((long)counts.get("a"), 1);
+		assertEquals(lazyMerged.getCount("b"), 0);
+	}
+	
+	/**
+	 * @param expirer
+	 * @param stream
+	 * @param from
+	 * @param to
+	 * @return sketch with items in the sequence range, sequence being the position in stream 
+	 */
+	private EpochCountMinSketch createEpochSketch(Expirer expirer, List<Integer> stream, int from, int to) {
+		EpochCountMinSketch sketch = new EpochCountMinSketch(200, 4, expirer);
+		for (int i = from; i < to; ++i) {
+			sketch.add(stream.get(i), i);
+		}
+		return sketch;
+	}
+	
+	@Test
+	public void testEpochCountMinSketch() {
+		//window of 4 epochs with 100 sequence span each
+		Expirer expirer = new Expirer(400, 4);
+		List<Integer> first = createStream(1000, 0, 10);
+		List<Integer> second = createStream(1000, 25, 11);
+		
+		//first ends in epoch 7 and second in epoch 9, so that first epochs 4 and 5 are 
+		//already expired in second
+		EpochCountMinSketch combined = createEpochSketch(expirer, first, 0, 750);
+		for (int i = 0; i < 1000; ++i) {
+			combined.add(second.get(i), i);
+		}
+		
+		//behind one merging with ahead one, and the other way round
+		EpochCountMinSketch behind = createEpochSketch(expirer, first, 0, 750);
+		behind.merge(createEpochSketch(expirer, second, 0, 1000));
+		EpochCountMinSketch ahead = createEpochSketch(expirer, second, 0, 1000);
+		ahead.merge(createEpochSketch(expirer, first, 0, 750));
+		
+		assertEquals(combined.getCount(), 400 + 150);
+		for (EpochCountMinSketch merged : new EpochCountMinSketch[]{behind, ahead}) {
+			assertEquals(merged.getCount(), combined.getCount());
+			for (int item = 0; item < 1025; ++item) {
+				assertEquals(merged.getDistr(item), combined.getDistr(item), "item " + item);
+			}
+		}
+		
+		//both continue alike
+		for (int i = 1000; i < 1200; ++i) {
+			behind.add(second.get(i - 1000), i);
+			ahead.add(second.get(i - 1000), i);
+			combined.add(second.get(i - 1000), i);
+		}
+		assertEquals(behind.getCount(), 400);
+		assertEquals(ahead.getCount(), 400);
+		for (int item = 0; item < 1025; ++item) {
+			assertEquals(behind.getDistr(item), combined.getDistr(item));
+			assertEquals(ahead.getDistr(item), combined.getDistr(item));
+		}
+	}
+	
+	@Test
+	public void testEpochCountMinSketchWithEpochExpirer() {
+		Expirer expirer = new Expirer(3);
+		EpochCountMinSketch merged = new EpochCountMinSketch(200, 4, expirer);
+		EpochCountMinSketch other = new EpochCountMinSketch(200, 4, expirer);
+		EpochCountMinSketch combined = new EpochCountMinSketch(200, 4, expirer);
+		List<Integer> stream = createStream(1000, 0, 12);
+		for (int epoch = 0; epoch < 5; ++epoch) {
+			for (int i = epoch * 200; i < (epoch + 1) * 200; ++i) {
+				(i % 2 == 0 ? merged : other).add(stream.get(i));
+				combined.add(stream.get(i));
+			}
+			if (epoch < 4) {
+				merged.expire();
+				other.expire();
+				combined.expire();
+			}
+		}
+		merged.merge(other);
+		assertEquals(merged.getCount(), 600);
+		assertEquals(merged.getCount(), combined.getCount());
+		for (int item = 0; item < 1000; ++item) {
+			assertEquals(merged.getDistr(item), combined.getDistr(item));
+		}
+	}
+	
+	@Test
+	public void testCountMinSketchesFrequent() {
+		List<Integer> first = createStream(20000, 0, 13);
+		List<Integer> second = createStream(20000, 25, 14);
+		Map<Integer, Long> trueCounts = countAll(first, second);
+		
+		CountMinSketchesFrequent merged = new CountMinSketchesFrequent(0.001, 0.01, 10, 5);
+		CountMinSketchesFrequent other = new CountMinSketchesFrequent(0.001, 0.01, 10, 5);
+		CountMinSketchesFrequent combined = new CountMinSketchesFrequent(0.001, 0.01, 10, 5);
+		for (Integer item : first) {
+			merged.add(item);
+			combined.add(item);
+		}
+		for (Integer item : second) {
+			other.add(item);
+			combined.add(item);
+		}
+		merged.merge(other);
+		
+		//counts are over estimates and same as those of sketch on combined stream
+		for (int item = 0; item < 1025; ++item) {
+			assertEquals(merged.minSketches.getDistr(item), combined.minSketches.getDistr(item));
+		}
+		Map<Object, Long> counts = toMap(merged.get());
+		for (Map.Entry<Object, Long> entry : counts.entrySet()) {
+			assertTrue(entry.getValue() >= trueCounts.get(entry.getKey()));
+			assertEquals((long)entry.getValue(), (long)combined.minSketches.getDistr(entry.getKey()));
+		}
+		
+		//heavy items of either part are tracked
+		assertTrue(counts.containsKey(0));
+		assertTrue(counts.containsKey(25));
+		for (BoundedSortedObjects.SortableObject item : combined.get()) {
+			if (trueCounts.get(item.getItem()) > 2000) {
+				assertTrue(counts.containsKey(item.getItem()));
+			}
+		}
+	}
+	
+	/**
+	 * @param from
+	 * @param to
+	 * @return counter with items in range
+	 */
+	private HyperLogLogPlus createHyperLogLogPlus(int from, int to) {
+		HyperLogLogPlus counter = new HyperLogLogPlus(12);
+		for (int i = from; i < to; ++i) {
+			counter.add("item-" + i);
+		}
+		return counter;
+	}
+	
+	@Test
+	public void testHyperLogLogPlus() {
+		//sparse limit is 819 for precision 12
+		int[][] ranges = new int[][] {
+			//sparse and sparse
+			{0, 300, 200, 500},
+			//sparse and sparse, union over sparse limit
+			{0, 700, 500, 1200},
+			//sparse and dense
+			{0, 300, 200, 50000},
+			//dense and sparse
+			{0, 50000, 49800, 50100},
+			//dense and dense
+			{0, 30000, 20000, 60000}
+		};
+		for (int[] range : ranges) {
+			HyperLogLogPlus merged = createHyperLogLogPlus(range[0], range[1]);
+			HyperLogLogPlus other = createHyperLogLogPlus(range[2], range[3]);
+			HyperLogLogPlus combined = createHyperLogLogPlus(range[0], range[3]);
+			boolean thisSparse = merged.isSparse();
+			boolean thatSparse = other.isSparse();
+			merged.merge(other);
+			
+			String context = "range " + range[0] + " " + range[1] + " " + range[2] + " " + range[3];
+			assertEquals(merged.isSparse(), combined.isSparse(), context);
+			assertEquals(merged.getUnqueCount(), combined.getUnqueCount(), context);
+			double trueCount = range[3] - range[0];
+			assertEquals(merged.getUnqueCount(), trueCount, 0.05 * trueCount, context);
+			if (thisSparse && thatSparse && trueCount < 500) {
+				assertTrue(merged.isSparse());
+			}
+			if (!thisSparse || !thatSparse) {
+				assertFalse(merged.isSparse());
+			}
+		}
+	}
+}
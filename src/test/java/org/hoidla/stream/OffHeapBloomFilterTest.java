@@ -0,0 +1,123 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class OffHeapBloomFilterTest {
+	private static final int NUM_ITEMS = 5000;
+	private static final double FALSE_POS_PROB = 0.01;
+	
+	/**
+	 * @return empty file
+	 * @throws IOException
+	 */
+	private File createFile() throws IOException {
+		File file = File.createTempFile("hoidla-bloom", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+	
+	@Test
+	public void testRemapExisting() throws IOException {
+		File file = createFile();
+		OffHeapBloomFilter filter = new OffHeapBloomFilter(NUM_ITEMS, FALSE_POS_PROB, file).withSeed(3);
+		for (int i = 0; i < NUM_ITEMS / 2; ++i) {
+			filter.add("item-" + i);
+		}
+		filter.close();
+		
+		filter = new OffHeapBloomFilter(NUM_ITEMS, FALSE_POS_PROB, file);
+		for (int i = NUM_ITEMS / 2; i < NUM_ITEMS; ++i) {
+			filter.add("item-" + i);
+		}
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			assertTrue(filter.exists("item-" + i));
+		}
+		filter.close();
+	}
+	
+	@Test
+	public void testReadOnly() throws IOException {
+		File file = createFile();
+		OffHeapBloomFilter filter = new OffHeapBloomFilter(NUM_ITEMS, FALSE_POS_PROB, file);
+		filter.add("item-0");
+		filter.close();
+		
+		OffHeapBloomFilter readOnly = new OffHeapBloomFilter(file, true);
+		assertTrue(readOnly.exists("item-0"));
+		int numFailed = 0;
+		try {
+			readOnly.add("item-1");
+		} catch (IllegalStateException ex) {
+			++numFailed;
+		}
+		try {
+			readOnly.clear();
+		} catch (IllegalStateException ex) {
+			++numFailed;
+		}
+		assertEquals(numFailed, 2);
+		assertFalse(readOnly.exists("item-1"));
+		readOnly.close();
+	}
+	
+	@Test
+	public void testOnHeapLayout() throws IOException {
+		File file = createFile();
+		OffHeapBloomFilter filter = new OffHeapBloomFilter(NUM_ITEMS, FALSE_POS_PROB, file).withSeed(9);
+		BloomFilter expected = new BloomFilter(NUM_ITEMS, FALSE_POS_PROB).withSeed(9);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			filter.add("item-" + i);
+			expected.add("item-" + i);
+		}
+		filter.close();
+		
+		//mapped file content as is is the serialized on heap filter
+		BloomFilter onHeap = new BloomFilter(10, 0.1);
+		onHeap.readFrom(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+		for (int i = 0; i < 2 * NUM_ITEMS; ++i) {
+			assertEquals(onHeap.exists("item-" + i), expected.exists("item-" + i));
+		}
+		ByteBuffer serialized = ByteBuffer.allocate(expected.getSerializedSize());
+		expected.writeTo(serialized);
+		assertTrue(Arrays.equals(serialized.array(), Files.readAllBytes(file.toPath())));
+		
+		//and the other way round through direct buffer
+		serialized.flip();
+		OffHeapBloomFilter direct = new OffHeapBloomFilter(NUM_ITEMS, FALSE_POS_PROB);
+		direct.readFrom(serialized);
+		for (int i = 0; i < 2 * NUM_ITEMS; ++i) {
+			assertEquals(direct.exists("item-" + i), expected.exists("item-" + i));
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class OffHeapCountMinSketchTest {
+	private static final int WIDTH = 500;
+	private static final int DEPTH = 4;
+	
+	/**
+	 * @return empty file
+	 * @throws IOException
+	 */
+	private File createFile() throws IOException {
+		File file = File.createTempFile("hoidla-cms", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+	
+	/**
+	 * @param sketch
+	 * @param from
+	 * @param to
+	 */
+	private void add(FrequentItems.FrequencyDistribution sketch, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			sketch.add("item-" + (i % 300));
+		}
+	}
+	
+	/**
+	 * @param sketch
+	 * @param expected
+	 */
+	private void assertSameCounts(FrequentItems.FrequencyDistribution sketch, FrequentItems.FrequencyDistribution expected) {
+		assertEquals(sketch.getCount(), expected.getCount());
+		for (int i = 0; i < 400; ++i) {
+			assertEquals(sketch.getDistr("item-" + i), expected.getDistr("item-" + i));
+		}
+	}
+	
+	@Test
+	public void testRemapExisting() throws IOException {
+		File file = createFile();
+		FlatCountMinSketch expected = new FlatCountMinSketch(WIDTH, DEPTH);
+		expected.withSeed(11);
+		OffHeapCountMinSketch sketch = new OffHeapCountMinSketch(WIDTH, DEPTH, file).withSeed(11);
+		add(sketch, 0, 5000);
+		add(expected, 0, 5000);
+		sketch.close();
+		assertEquals(file.length(), OffHeapCountMinSketch.getStorageSize(WIDTH, DEPTH));
+		
+		//counts and seed survive remapping
+		sketch = new OffHeapCountMinSketch(WIDTH, DEPTH, file);
+		assertSameCounts(sketch, expected);
+		add(sketch, 5000, 6000);
+		add(expected, 5000, 6000);
+		assertSameCounts(sketch, expected);
+		sketch.close();
+		
+		sketch = new OffHeapCountMinSketch(file, false);
+		assertEquals(sketch.getWidth(), WIDTH);
+		assertEquals(sketch.getDepth(), DEPTH);
+		assertSameCounts(sketch, expected);
+		sketch.close();
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRemapWithDifferentSize() throws IOException {
+		File file = createFile();
+		new OffHeapCountMinSketch(WIDTH, DEPTH, file).close();
+		new OffHeapCountMinSketch(WIDTH + 1, DEPTH, file);
+	}
+	
+	@Test
+	public void testReadOnly() throws IOException {
+		File file = createFile();
+		OffHeapCountMinSketch sketch = new OffHeapCountMinSketch(WIDTH, DEPTH, file);
+		add(sketch, 0, 3000);
+		sketch.close();
+		
+		OffHeapCountMinSketch readOnly = new OffHeapCountMinSketch(file, true);
+		assertEquals(readOnly.getCount(), 3000);
+		assertTrue(readOnly.getDistr("item-1") >= 10);
+		int numFailed = 0;
+		try {
+			readOnly.add("item-1");
+		} catch (IllegalStateException ex) {
+			++numFailed;
+		}
+		try {
+			readOnly.initialize();
+		} catch (IllegalStateException ex) {
+			++numFailed;
+		}
+		try {
+			readOnly.merge(new OffHeapCountMinSketch(WIDTH, DEPTH));
+		} catch (IllegalStateException ex) {
+			++numFailed;
+		}
+		assertEquals(numFailed, 3);
+		assertEquals(readOnly.getCount(), 3000);
+		readOnly.close();
+	}
+	
+	@Test
+	public void testOnHeapLayout() throws IOException {
+		//mapped file content as is is the serialized on heap sketch
+		File file = createFile();
+		OffHeapCountMinSketch sketch = new OffHeapCountMinSketch(WIDTH, DEPTH, file).withSeed(5);
+		add(sketch, 0, 4000);
+		sketch.close();
+		FlatCountMinSketch onHeap = new FlatCountMinSketch(10, 2);
+		onHeap.readFrom(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+		assertEquals(onHeap.getWidth(), WIDTH);
+		assertEquals(onHeap.getDepth(), DEPTH);
+		FlatCountMinSketch expected = new FlatCountMinSketch(WIDTH, DEPTH);
+		expected.withSeed(5);
+		add(expected, 0, 4000);
+		assertSameCounts(onHeap, expected);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(expected.getSerializedSize());
+		expected.writeTo(buffer);
+		assertTrue(Arrays.equals(buffer.array(), Files.readAllBytes(file.toPath())));
+		
+		//and the other way round through direct buffer
+		buffer.flip();
+		OffHeapCountMinSketch direct = new OffHeapCountMinSketch(WIDTH, DEPTH);
+		direct.readFrom(buffer);
+		assertEquals(buffer.remaining(), 0);
+		assertEquals(direct.getSerializedSize(), expected.getSerializedSize());
+		assertSameCounts(direct, expected);
+		add(direct, 0, 100);
+		add(expected, 0, 100);
+		assertSameCounts(direct, expected);
+	}
+}
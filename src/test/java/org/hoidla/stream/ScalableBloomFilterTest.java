@@ -0,0 +1,67 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.hoidla.stream.SketchSerializationTest.item;
+import static org.hoidla.stream.SketchSerializationTest.roundTrip;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * No false negative, false positive rate and serialization of the scalable bloom filter
+ * @author pranab
+ *
+ */
+public class ScalableBloomFilterTest {
+	private static final int NUM_ITEMS = 10000;
+	private static final double FALSE_POS_PROB = 0.01;
+	
+	/**
+	 * @param filter
+	 * @return fraction of items never added that are reported as existing
+	 */
+	private double falsePositiveRate(ScalableBloomFilter filter) {
+		int falsePos = 0;
+		for (int i = NUM_ITEMS; i < 11 * NUM_ITEMS; ++i) {
+			if (filter.exists(item(i))) {
+				++falsePos;
+			}
+		}
+		return (double)falsePos / (10 * NUM_ITEMS);
+	}
+	
+	@Test
+	public void testGrowth() {
+		ScalableBloomFilter filter = new ScalableBloomFilter(NUM_ITEMS / 16, FALSE_POS_PROB);
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			filter.add(item(i));
+		}
+		assertTrue(filter.getNumFilters() > 1);
+		ScalableBloomFilter copy = new ScalableBloomFilter(NUM_ITEMS / 16, FALSE_POS_PROB);
+		roundTrip(filter, copy);
+		assertEquals(copy.getNumFilters(), filter.getNumFilters());
+		assertEquals(copy.getCount(), filter.getCount());
+		for (int i = 0; i < NUM_ITEMS; ++i) {
+			assertTrue(filter.exists(item(i)));
+			assertTrue(copy.exists(item(i)));
+		}
+		assertTrue(falsePositiveRate(filter) < 2 * FALSE_POS_PROB);
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.hoidla.util.BinarySerializable;
+import org.testng.annotations.Test;
+
+/**
+ * Binary serialization round trip of sketches
+ * @author pranab
+ *
+ */
+public class SketchSerializationTest {
+	
+	/**
+	 * @param source
+	 * @param target
+	 */
+	static void roundTrip(BinarySerializable source, BinarySerializable target) {
+		ByteBuffer buffer = ByteBuffer.allocate(source.getSerializedSize());
+		source.writeTo(buffer);
+		assertEquals(buffer.remaining(), 0);
+		buffer.flip();
+		target.readFrom(buffer);
+		assertEquals(buffer.remaining(), 0);
+	}
+	
+	/**
+	 * @param i
+	 * @return
+	 */
+	static String item(int i) {
+		return "item-" + i;
+	}
+	
+	@Test
+	public void testBloomFilter() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		for (int i = 0; i < 10000; ++i) {
+			filter.add(item(i));
+		}
+		BloomFilter copy = new BloomFilter(10000, 0.01);
+		roundTrip(filter, copy);
+		for (int i = 0; i < 10000; ++i) {
+			assertTrue(copy.exists(item(i)));
+		}
+		for (int i = 10000; i < 20000; ++i) {
+			assertEquals(copy.exists(item(i)), filter.exists(item(i)));
+		}
+	}
+	
+	@Test
+	public void testFlatCountMinSketch() {
+		FlatCountMinSketch sketch = new FlatCountMinSketch(500, 4);
+		sketch.withSeed(3);
+		for (int i = 0; i < 5000; ++i) {
+			sketch.add(item(i % 300));
+		}
+		FlatCountMinSketch copy = new FlatCountMinSketch(10, 2);
+		roundTrip(sketch, copy);
+		assertEquals(copy.getWidth(), 500);
+		assertEquals(copy.getDepth(), 4);
+		assertEquals(copy.getCount(), sketch.getCount());
+		for (int i = 0; i < 300; ++i) {
+			assertEquals(copy.getDistr(item(i)), sketch.getDistr(item(i)));
+			assertTrue(copy.getDistr(item(i)) >= 5000 / 300);
+		}
+	}
+	
+	@Test
+	public void testHyperLogLogPlusSparse() {
+		HyperLogLogPlus counter = new HyperLogLogPlus(14);
+		for (int i = 0; i < 100; ++i) {
+			counter.add(item(i));
+		}
+		assertTrue(counter.isSparse());
+		HyperLogLogPlus copy = new HyperLogLogPlus(10);
+		roundTrip(counter, copy);
+		assertTrue(copy.isSparse());
+		assertEquals(copy.getPrecision(), 14);
+		assertEquals(copy.getUnqueCount(), counter.getUnqueCount());
+		assertEquals(counter.getUnqueCount(), 100, 2);
+		
+		//copy keeps counting
+		for (int i = 100; i < 200; ++i) {
+			counter.add(item(i));
+			copy.add(item(i));
+		}
+		assertEquals(copy.getUnqueCount(), counter.getUnqueCount());
+	}
+	
+	@Test
+	public void testHyperLogLogPlusDense() {
+		HyperLogLogPlus counter = new HyperLogLogPlus(12);
+		for (int i = 0; i < 100000; ++i) {
+			counter.add(item(i));
+		}
+		assertFalse(counter.isSparse());
+		HyperLogLogPlus copy = new HyperLogLogPlus(12);
+		roundTrip(counter, copy);
+		assertFalse(copy.isSparse());
+		assertEquals(copy.getUnqueCount(), counter.getUnqueCount());
+		assertEquals(counter.getUnqueCount(), 100000, 100000 * 0.05);
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testTypeMismatch() {
+		FlatCountMinSketch sketch = new FlatCountMinSketch(100, 2);
+		ByteBuffer buffer = ByteBuffer.allocate(sketch.getSerializedSize());
+		sketch.writeTo(buffer);
+		buffer.flip();
+		new HyperLogLogPlus(12).readFrom(buffer);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.hoidla.stream.CountMinSketch;
+import org.hoidla.stream.FlatCountMinSketch;
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class HashingTest {
+	
+	@Test
+	public void testBoxedKeys() {
+		Hashing.MurmurHash64 hasher = new Hashing.MurmurHash64();
+		assertEquals(hasher.hash(Integer.valueOf(42), 7L), Hashing.MurmurHash64.hash(42L, 7L));
+		assertEquals(hasher.hash(Long.valueOf(42), 7L), Hashing.MurmurHash64.hash(42L, 7L));
+		assertEquals(hasher.hash(Double.valueOf(1.5), 7L), Hashing.MurmurHash64.hash((long)Double.valueOf(1.5).hashCode(), 7L));
+		assertTrue(hasher.hash(Long.valueOf(42), 7L) != hasher.hash(Long.valueOf(43), 7L));
+		assertEquals(hasher.hash("hoidla", 7L), hasher.hash(new StringBuilder("hoidla"), 7L));
+	}
+	
+	@Test
+	public void testIndexRange() {
+		Hashing.MultiHashFamily hashFamily = new Hashing.MultiHashFamily(5, 1000);
+		for (int i = 0; i < 10000; ++i) {
+			long hash = hashFamily.hash64(i);
+			for (int h = 0; h < 5; ++h) {
+				int index = hashFamily.index(hash, h);
+				assertTrue(index >= 0 && index < 1000);
+			}
+		}
+	}
+	
+	@Test
+	public void testSketchWithIntegerAndLongKeys() {
+		FlatCountMinSketch flatSketch = new FlatCountMinSketch(2000, 5);
+		CountMinSketch sketch = new CountMinSketch(2000, 5);
+		for (int i = 0; i < 500; ++i) {
+			for (int j = 0; j <= i % 4; ++j) {
+				flatSketch.add(i);
+				flatSketch.add(Long.valueOf(1000000L + i));
+				sketch.add(i);
+			}
+		}
+		
+		//count min never under counts and rarely over counts with this width
+		int exact = 0;
+		for (int i = 0; i < 500; ++i) {
+			int count = i % 4 + 1;
+			assertTrue(flatSketch.getDistr(i) >= count);
+			assertTrue(flatSketch.getDistr(Long.valueOf(1000000L + i)) >= count);
+			assertTrue(sketch.getDistr(i) >= count);
+			if (flatSketch.getDistr(i) == count) {
+				++exact;
+			}
+		}
+		assertTrue(exact > 450);
+	}
+}
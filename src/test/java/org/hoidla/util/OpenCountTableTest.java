@@ -0,0 +1,151 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class OpenCountTableTest {
+	
+	/**
+	 * @param table
+	 * @param counts
+	 * @param deltas
+	 */
+	private void assertContent(OpenCountTable table, Map<Integer, Long> counts, Map<Integer, Long> deltas) {
+		assertEquals(table.size(), counts.size());
+		for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+			assertEquals(table.getCount(entry.getKey()), (long)entry.getValue());
+			assertEquals(table.getDelta(entry.getKey()), (long)deltas.get(entry.getKey()));
+		}
+		int numKeys = 0;
+		for (int slot = 0; slot < table.getCapacity(); ++slot) {
+			if (null != table.getKeyAt(slot)) {
+				assertTrue(counts.containsKey(table.getKeyAt(slot)));
+				++numKeys;
+			}
+		}
+		assertEquals(numKeys, counts.size());
+	}
+	
+	@Test
+	public void testPrune() {
+		Random random = new Random(43);
+		OpenCountTable table = new OpenCountTable(64);
+		Map<Integer, Long> counts = new HashMap<Integer, Long>();
+		Map<Integer, Long> deltas = new HashMap<Integer, Long>();
+		for (int bucket = 1; bucket <= 200; ++bucket) {
+			for (int i = 0; i < 100; ++i) {
+				//skewed keys so that some survive pruning
+				int key = (int)Math.abs(random.nextGaussian() * 60);
+				table.increment(key, bucket - 1);
+				Long count = counts.get(key);
+				counts.put(key, null == count ? 1 : count + 1);
+				if (null == count) {
+					deltas.put(key, (long)(bucket - 1));
+				}
+			}
+			
+			int capacity = table.getCapacity();
+			int expectedRemoved = 0;
+			for (Iterator<Map.Entry<Integer, Long>> it = counts.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<Integer, Long> entry = it.next();
+				if (entry.getValue() + deltas.get(entry.getKey()) <= bucket) {
+					it.remove();
+					++expectedRemoved;
+				}
+			}
+			assertEquals(table.prune(bucket), expectedRemoved);
+			assertEquals(table.getCapacity(), capacity);
+			assertContent(table, counts, deltas);
+		}
+	}
+	
+	@Test
+	public void testPruneWrapAround() {
+		OpenCountTable table = new OpenCountTable(8);
+		int capacity = table.getCapacity();
+		
+		//colliding keys with home at the last slot, so that the probe run wraps around
+		int hashCode = 0;
+		while ((Hashing.fmix64(hashCode) & (capacity - 1)) != capacity - 1) {
+			++hashCode;
+		}
+		Map<Object, Long> counts = new HashMap<Object, Long>();
+		for (int i = 0; i < capacity / 2; ++i) {
+			Object key = new CollidingKey(i, hashCode);
+			for (int j = 0; j <= i % 3; ++j) {
+				table.increment(key, 0);
+			}
+			counts.put(key, (long)(i % 3 + 1));
+		}
+		table.increment(capacity, 0);
+		counts.put(capacity, 1L);
+		assertEquals(table.getCapacity(), capacity);
+		
+		int expectedRemoved = 0;
+		for (Iterator<Map.Entry<Object, Long>> it = counts.entrySet().iterator(); it.hasNext(); ) {
+			if (it.next().getValue() <= 1) {
+				it.remove();
+				++expectedRemoved;
+			}
+		}
+		assertEquals(table.prune(1), expectedRemoved);
+		assertEquals(table.size(), counts.size());
+		for (Map.Entry<Object, Long> entry : counts.entrySet()) {
+			assertEquals(table.getCount(entry.getKey()), (long)entry.getValue());
+		}
+		assertEquals(table.prune(3), counts.size());
+		assertEquals(table.size(), 0);
+	}
+	
+	/**
+	 * @author pranab
+	 *
+	 */
+	private static class CollidingKey {
+		private int id;
+		private int hashCode;
+		
+		public CollidingKey(int id, int hashCode) {
+			this.id = id;
+			this.hashCode = hashCode;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof CollidingKey && ((CollidingKey)obj).id == id;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class OrderStatisticTreeTest {
+	
+	/**
+	 * @param values
+	 * @param beg
+	 * @param end
+	 * @return
+	 */
+	private double median(double[] values, int beg, int end) {
+		double[] window = Arrays.copyOfRange(values, beg, end);
+		Arrays.sort(window);
+		int n = window.length;
+		return n % 2 == 1 ? window[n / 2] : (window[n / 2 - 1] + window[n / 2]) / 2;
+	}
+	
+	@Test
+	public void testMatchesSortedWindow() {
+		Random random = new Random(19);
+		OrderStatisticTree tree = new OrderStatisticTree(100);
+		double[] window = new double[100];
+		for (int i = 0; i < 1000; ++i) {
+			double value = random.nextInt(50);
+			int slot = i % window.length;
+			if (i >= window.length) {
+				assertEquals(tree.remove(window[slot]), true);
+			}
+			window[slot] = value;
+			tree.add(value);
+			
+			int size = Math.min(i + 1, window.length);
+			double[] sorted = Arrays.copyOf(window, size);
+			Arrays.sort(sorted);
+			assertEquals(tree.size(), size);
+			assertEquals(tree.getMin(), sorted[0]);
+			assertEquals(tree.getMax(), sorted[size - 1]);
+			assertEquals(tree.kth(size / 3), sorted[size / 3]);
+			assertEquals(tree.getMedian(), median(sorted, 0, size), 1e-9);
+		}
+		assertEquals(tree.remove(-1), false);
+	}
+}
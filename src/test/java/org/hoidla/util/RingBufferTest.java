@@ -0,0 +1,102 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class RingBufferTest {
+	
+	@Test
+	public void testWrapAround() {
+		DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+		List<Double> expected = new ArrayList<Double>();
+		for (int i = 0; i < 100; ++i) {
+			buffer.add((double)i);
+			expected.add((double)i);
+			if (buffer.isFull()) {
+				buffer.removeFirst(1);
+				expected.remove(0);
+			}
+			assertEquals(buffer, expected);
+		}
+		assertEquals(buffer.getCapacity(), 4);
+		assertEquals(buffer.getDouble(0), 97.0);
+		assertTrue(Arrays.equals(buffer.toDoubleArray(), new double[]{97, 98, 99}));
+	}
+	
+	@Test
+	public void testGrow() {
+		RingBuffer<String> buffer = new RingBuffer<String>(3);
+		buffer.add("a");
+		buffer.add("b");
+		buffer.removeFirst(1);
+		for (int i = 0; i < 5; ++i) {
+			buffer.add("c" + i);
+		}
+		assertEquals(buffer.size(), 6);
+		assertTrue(buffer.getCapacity() >= 6);
+		assertEquals(buffer.get(0), "b");
+		assertEquals(buffer.get(5), "c4");
+	}
+	
+	@Test
+	public void testInsertAndRemove() {
+		RingBuffer<Integer> buffer = new RingBuffer<Integer>(5);
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 4; ++i) {
+			buffer.add(i);
+			expected.add(i);
+		}
+		buffer.removeFirst(2);
+		expected.subList(0, 2).clear();
+		buffer.add(4);
+		buffer.add(5);
+		expected.add(4);
+		expected.add(5);
+		
+		buffer.add(1, 10);
+		expected.add(1, 10);
+		assertEquals(buffer, expected);
+		assertEquals(buffer.remove(2), expected.remove(2));
+		assertEquals(buffer.remove(0), expected.remove(0));
+		assertEquals(buffer, expected);
+		
+		buffer.clear();
+		assertEquals(buffer.size(), 0);
+		assertFalse(buffer.isFull());
+	}
+	
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testIndexCheck() {
+		DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+		buffer.add(1.0);
+		buffer.get(1);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.util;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class SlidingMedianTest {
+	
+	/**
+	 * @param values
+	 * @param beg
+	 * @param end
+	 * @return
+	 */
+	private double median(double[] values, int beg, int end) {
+		double[] window = Arrays.copyOfRange(values, beg, end);
+		Arrays.sort(window);
+		int n = window.length;
+		return n % 2 == 1 ? window[n / 2] : (window[n / 2 - 1] + window[n / 2]) / 2;
+	}
+	
+	@Test
+	public void testMatchesSortedWindow() {
+		Random random = new Random(17);
+		double[] values = new double[2000];
+		for (int i = 0; i < values.length; ++i) {
+			//small integers to have duplicates
+			values[i] = random.nextInt(20);
+		}
+		for (int capacity : new int[]{1, 2, 7, 50}) {
+			SlidingMedian median = new SlidingMedian(capacity);
+			for (int i = 0; i < values.length; ++i) {
+				if (median.size() == capacity) {
+					median.removeOldest();
+				}
+				median.add(values[i]);
+				int beg = Math.max(0, i + 1 - capacity);
+				assertEquals(median.getMedian(), median(values, beg, i + 1), 1e-9);
+			}
+		}
+	}
+	
+	@Test
+	public void testClear() {
+		SlidingMedian median = new SlidingMedian(3);
+		median.add(5);
+		median.add(1);
+		median.clear();
+		median.add(2);
+		median.add(4);
+		assertEquals(median.size(), 2);
+		assertEquals(median.getMedian(), 3.0);
+	}
+	
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testCapacity() {
+		SlidingMedian median = new SlidingMedian(2);
+		median.add(1);
+		median.add(2);
+		median.add(3);
+	}
+}
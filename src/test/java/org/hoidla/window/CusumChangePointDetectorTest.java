@@ -0,0 +1,135 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.window;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.hoidla.analyze.ChangePoint;
+import org.hoidla.analyze.MeanShiftCost;
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class CusumChangePointDetectorTest {
+	
+	/**
+	 * @param detector
+	 * @param shiftAt
+	 * @param shift
+	 * @param scale
+	 * @param seed
+	 * @return change points with index as stream position and value as stream position when detected
+	 */
+	private List<long[]> detect(CusumChangePointDetector detector, int shiftAt, double shift, double scale, long seed) {
+		Random random = new Random(seed);
+		List<long[]> changePoints = new ArrayList<long[]>();
+		for (int i = 0; i < 3000; ++i) {
+			double value = i < shiftAt ? random.nextGaussian() : shift + scale * random.nextGaussian();
+			detector.add(value);
+			ChangePoint changePoint = detector.getNewChangePoint();
+			if (null != changePoint) {
+				changePoints.add(new long[]{changePoint.getIndex(), i});
+			}
+		}
+		return changePoints;
+	}
+	
+	@Test
+	public void testLocalizesLevelShift() {
+		for (int seed = 0; seed < 20; ++seed) {
+			List<long[]> changePoints = detect(new CusumChangePointDetector(400, 50), 1000, 3.0, 1.0, seed);
+			assertEquals(changePoints.size(), 1, "seed " + seed);
+			long[] changePoint = changePoints.get(0);
+			assertTrue(Math.abs(changePoint[0] - 1000) <= 3, "seed " + seed + " located at " + changePoint[0]);
+			
+			//confirmed only with min segment length samples after it
+			assertTrue(changePoint[1] >= changePoint[0] + 49);
+		}
+	}
+	
+	@Test
+	public void testLocalizesLevelShiftWithMeanCost() {
+		for (int seed = 0; seed < 10; ++seed) {
+			CusumChangePointDetector detector = new CusumChangePointDetector(400, 50).withCost(new MeanShiftCost());
+			List<long[]> changePoints = detect(detector, 1000, 3.0, 1.0, seed);
+			int nearShift = 0;
+			for (long[] changePoint : changePoints) {
+				if (Math.abs(changePoint[0] - 1000) <= 3) {
+					++nearShift;
+				}
+			}
+			assertEquals(nearShift, 1, "seed " + seed);
+		}
+	}
+	
+	@Test
+	public void testNoDuplicateAfterVarianceShift() {
+		for (int seed = 0; seed < 20; ++seed) {
+			List<long[]> changePoints = detect(new CusumChangePointDetector(400, 50), 1000, 0, 3.0, seed);
+			int nearShift = 0;
+			for (long[] changePoint : changePoints) {
+				if (changePoint[0] >= 950) {
+					assertTrue(Math.abs(changePoint[0] - 1000) <= 10, "seed " + seed + " located at " + changePoint[0]);
+					++nearShift;
+				}
+			}
+			assertEquals(nearShift, 1, "seed " + seed);
+		}
+	}
+	
+	@Test
+	public void testStationaryStream() {
+		CusumChangePointDetector detector = new CusumChangePointDetector(400, 50);
+		Random random = new Random(11);
+		int numChangePoints = 0;
+		for (int i = 0; i < 100000; ++i) {
+			detector.add(5 + 2 * random.nextGaussian());
+			if (null != detector.getNewChangePoint()) {
+				++numChangePoints;
+			}
+		}
+		assertTrue(numChangePoints <= 2, "false change points " + numChangePoints);
+		assertEquals(detector.getMean(), 5, 0.5);
+		assertEquals(detector.getStdDev(), 2, 0.7);
+	}
+	
+	@Test
+	public void testClear() {
+		CusumChangePointDetector detector = new CusumChangePointDetector(400, 50);
+		detect(detector, 1000, 3.0, 1.0, 1);
+		detector.clear();
+		assertEquals(detector.size(), 0);
+		assertNull(detector.getNewChangePoint());
+		List<long[]> changePoints = detect(detector, 1000, 3.0, 1.0, 2);
+		assertEquals(changePoints.size(), 1);
+		assertTrue(Math.abs(changePoints.get(0)[0] - 4000) <= 3);
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testMinSegmentLength() {
+		new CusumChangePointDetector(100, 60);
+	}
+}
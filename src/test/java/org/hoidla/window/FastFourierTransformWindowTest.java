@@ -0,0 +1,111 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.window;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.hoidla.analyze.FastFourierTransform;
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class FastFourierTransformWindowTest {
+	private static final int WINDOW_SIZE = 64;
+	private static final double TOLERANCE = 1e-8;
+	
+	/**
+	 * @param i
+	 * @param random
+	 * @return sinusoid at bin 5 with noise
+	 */
+	private double signal(int i, Random random) {
+		return 3 * Math.sin(2 * Math.PI * 5 * i / WINDOW_SIZE) + random.nextGaussian();
+	}
+	
+	@Test
+	public void testTumbling() {
+		FastFourierTransformWindow window = new FastFourierTransformWindow(WINDOW_SIZE);
+		Random random = new Random(37);
+		double[] data = new double[WINDOW_SIZE];
+		for (int i = 0; i < WINDOW_SIZE; ++i) {
+			data[i] = signal(i, random);
+			window.add(data[i]);
+		}
+		assertEquals(window.getDominantBin(), 5);
+		
+		double[] re = new double[WINDOW_SIZE / 2 + 1];
+		double[] im = new double[WINDOW_SIZE / 2 + 1];
+		FastFourierTransform.realFft(data, re, im);
+		for (int k = 0; k <= WINDOW_SIZE / 2; ++k) {
+			assertEquals(window.getReal()[k], re[k], TOLERANCE);
+			assertEquals(window.getImaginary()[k], im[k], TOLERANCE);
+		}
+		
+		//upper half is conjugate
+		assertEquals(window.getReal()[WINDOW_SIZE - 5], re[5], TOLERANCE);
+		assertEquals(window.getImaginary()[WINDOW_SIZE - 5], -im[5], TOLERANCE);
+	}
+	
+	@Test
+	public void testSlidingMatchesRealFft() {
+		for (int[] bins : new int[][]{null, {1, 5, 32}}) {
+			FastFourierTransformWindow window = new FastFourierTransformWindow(WINDOW_SIZE);
+			if (null == bins) {
+				window.withSliding();
+			} else {
+				window.withSlidingBins(bins);
+			}
+			Random random = new Random(41);
+			double[] values = new double[5 * WINDOW_SIZE + 19];
+			for (int i = 0; i < values.length; ++i) {
+				values[i] = signal(i, random);
+				window.add(values[i]);
+				if (i + 1 < WINDOW_SIZE || i % 7 != 0) {
+					continue;
+				}
+				
+				double[] data = Arrays.copyOfRange(values, i + 1 - WINDOW_SIZE, i + 1);
+				double[] re = new double[WINDOW_SIZE / 2 + 1];
+				double[] im = new double[WINDOW_SIZE / 2 + 1];
+				FastFourierTransform.realFft(data, re, im);
+				int[] checkBins = null == bins ? new int[]{0, 1, 5, 17, 32} : bins;
+				for (int k : checkBins) {
+					assertEquals(window.getReal()[k], re[k], TOLERANCE);
+					assertEquals(window.getImaginary()[k], im[k], TOLERANCE);
+				}
+				assertEquals(window.getDominantBin(), 5);
+			}
+		}
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testWindowSize() {
+		new FastFourierTransformWindow(48);
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testListStore() {
+		new FastFourierTransformWindow(WINDOW_SIZE).setDataWindow(new ArrayList<Double>());
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.window;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class SizeBoundFloatStatsWindowTest {
+	
+	@Test
+	public void testIncrementalMatchesFullScan() {
+		SizeBoundFloatStatsWindow fullScan = new SizeBoundFloatStatsWindow(50);
+		SizeBoundFloatStatsWindow incremental = new SizeBoundFloatStatsWindow(50).withIncremental(true);
+		Random random = new Random(1);
+		for (int i = 0; i < 500; ++i) {
+			double value = random.nextGaussian() * 3 + 10;
+			fullScan.add(value);
+			incremental.add(value);
+			if (fullScan.isProcessed()) {
+				assertEquals(incremental.getMean(), fullScan.getMean(), 1.0e-9);
+				assertEquals(incremental.getStdDev(), fullScan.getStdDev(), 1.0e-6);
+				assertEquals(incremental.getMin(), fullScan.getMin(), 0);
+				assertEquals(incremental.getMax(), fullScan.getMax(), 0);
+				assertEquals(incremental.getMedian(), fullScan.getMedian(), 0);
+			}
+		}
+	}
+	
+	@Test
+	public void testIncrementalStatsConsistentBetweenProcessing() {
+		SizeBoundFloatStatsWindow window = new SizeBoundFloatStatsWindow(20).withIncremental(true);
+		window.setProcessStepSize(5);
+		double processedMean = 0;
+		for (int i = 0; i < 100; ++i) {
+			window.add((double)i);
+			if (window.isProcessed()) {
+				processedMean = window.getMean();
+			} else if (i >= 20) {
+				//stats only change when processed
+				assertEquals(window.getMean(), processedMean, 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * hoidla: various algorithms for Big Data solutions
+ * Author: Pranab Ghosh
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hoidla.window;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.hoidla.util.DoubleRingBuffer;
+import org.hoidla.util.IntRingBuffer;
+import org.testng.annotations.Test;
+
+/**
+ * @author pranab
+ *
+ */
+public class SizeBoundWindowTest {
+	
+	@Test
+	public void testSlide() {
+		SizeBoundWindow<Integer> window = new SizeBoundWindow<Integer>(5, 2);
+		List<Integer> expected = new LinkedList<Integer>();
+		for (int i = 0; i < 50; ++i) {
+			window.add(i);
+			expected.add(i);
+			if (expected.size() > 5) {
+				expected.subList(0, 2).clear();
+			}
+			assertEquals(window.size(), expected.size());
+			for (int j = 0; j < expected.size(); ++j) {
+				assertEquals(window.get(j), expected.get(j));
+			}
+		}
+	}
+	
+	@Test
+	public void testStatsWindows() {
+		SizeBoundFloatStatsWindow floatWindow = new SizeBoundFloatStatsWindow(10);
+		SizeBoundIntStatsWindow intWindow = new SizeBoundIntStatsWindow(10);
+		for (int i = 0; i < 100; ++i) {
+			floatWindow.add((double)i);
+			intWindow.add(i);
+			if (i >= 9) {
+				//last 10 values
+				assertEquals(floatWindow.getMean(), i - 4.5, 1e-9);
+				assertEquals(floatWindow.getMin(), i - 9.0, 1e-9);
+				assertEquals(floatWindow.getMax(), (double)i, 1e-9);
+				assertEquals(intWindow.getMean(), i - 4.5, 1e-9);
+				assertEquals(intWindow.getStdDev(), Math.sqrt(8.25), 1e-9);
+			}
+		}
+	}
+	
+	@Test
+	public void testStatsWindowStore() {
+		SizeBoundFloatStatsWindow floatWindow = new SizeBoundFloatStatsWindow(10);
+		floatWindow.setDataWindow(new DoubleRingBuffer(11));
+		SizeBoundIntStatsWindow intWindow = new SizeBoundIntStatsWindow(10);
+		intWindow.setDataWindow(new IntRingBuffer(11));
+		for (int i = 0; i < 20; ++i) {
+			floatWindow.add((double)i);
+			intWindow.add(i);
+		}
+		assertEquals(floatWindow.getMean(), 14.5, 1e-9);
+		assertEquals(intWindow.getMean(), 14.5, 1e-9);
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testFloatStatsWindowListStore() {
+		new SizeBoundFloatStatsWindow(10).setDataWindow(new ArrayList<Double>());
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testIntStatsWindowListStore() {
+		new SizeBoundIntStatsWindow(10).setDataWindow(new LinkedList<Integer>());
+	}
+}